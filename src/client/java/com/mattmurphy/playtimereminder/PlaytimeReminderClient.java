@@ -0,0 +1,90 @@
+package com.mattmurphy.playtimereminder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.ChatFormatting;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Gui;
+import net.minecraft.client.gui.components.BossHealthOverlay;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ClientboundBossEventPacket;
+import net.minecraft.world.BossEvent;
+
+/**
+ * Companion client: draws the break countdown from the server's {@link SchedulePayload} instead of
+ * waiting for boss bar and title packets. The bar goes through the game's own boss bar overlay and the
+ * titles through the same calls the title packets end up in, so they look exactly like the server's.
+ * Registering the receiver announces the schedule channel, which is how the server tells this client apart.
+ */
+public final class PlaytimeReminderClient implements ClientModInitializer {
+	private static final UUID BAR_ID = UUID.nameUUIDFromBytes("playtime_reminder:countdown".getBytes(StandardCharsets.UTF_8));
+
+	// Title texts by SchedulePayload reason, matching the server's defaults for a break
+	private static final Component[] TITLES = {
+		Component.literal("BREAK REMINDER").withStyle(ChatFormatting.RED, ChatFormatting.BOLD),
+		Component.literal("PLAYTIME LIMIT").withStyle(ChatFormatting.RED, ChatFormatting.BOLD)
+	};
+	private static final Component[] SUBTITLES_1MIN = {
+		Component.literal("You will be kicked in 1 minute.").withStyle(ChatFormatting.YELLOW),
+		Component.literal("Your playtime limit runs out in 1 minute.").withStyle(ChatFormatting.YELLOW)
+	};
+	private static final Component[] SUBTITLES_10S = {
+		Component.literal("You will be kicked in 10s.").withStyle(ChatFormatting.YELLOW),
+		Component.literal("Your playtime limit runs out in 10s.").withStyle(ChatFormatting.YELLOW)
+	};
+
+	private final CompanionCountdown countdown = new CompanionCountdown();
+	private final BossEvent bar = new BossEvent(BAR_ID, Component.empty(), BossEvent.BossBarColor.RED, BossEvent.BossBarOverlay.PROGRESS) {
+	};
+
+	@Override
+	public void onInitializeClient() {
+		// Payload handlers run on the client thread, like the tick below
+		ClientPlayNetworking.registerGlobalReceiver(SchedulePayload.TYPE, (payload, context) -> countdown.start(payload, Util.getMillis()));
+		ClientTickEvents.END_CLIENT_TICK.register(this::draw);
+		// The game drops every boss bar when it leaves a server, so there is nothing to remove
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> countdown.clear());
+	}
+
+	private void draw(Minecraft client) {
+		int changes = countdown.update(Util.getMillis());
+		if (changes == 0 || client.gui == null) {
+			return;
+		}
+		Gui gui = client.gui;
+		BossHealthOverlay overlay = gui.getBossOverlay();
+		if ((changes & (CompanionCountdown.BAR_SHOWN | CompanionCountdown.BAR_CHANGED)) != 0) {
+			bar.setName(countdown.barLabel());
+			bar.setProgress(countdown.barProgress());
+		}
+		if ((changes & CompanionCountdown.BAR_SHOWN) != 0) {
+			overlay.update(ClientboundBossEventPacket.createAddPacket(bar));
+		} else if ((changes & CompanionCountdown.BAR_CHANGED) != 0) {
+			overlay.update(ClientboundBossEventPacket.createUpdateNamePacket(bar));
+			overlay.update(ClientboundBossEventPacket.createUpdateProgressPacket(bar));
+		} else if ((changes & CompanionCountdown.BAR_REMOVED) != 0) {
+			overlay.update(ClientboundBossEventPacket.createRemovePacket(BAR_ID));
+		}
+
+		int reason = countdown.reason() == SchedulePayload.LIMIT ? 1 : 0;
+		if ((changes & CompanionCountdown.TITLE_1MIN) != 0) {
+			showTitle(gui, TITLES[reason], SUBTITLES_1MIN[reason]);
+		}
+		if ((changes & CompanionCountdown.TITLE_10S) != 0) {
+			showTitle(gui, TITLES[reason], SUBTITLES_10S[reason]);
+		}
+	}
+
+	// Same order and timings as the server's title bundle: fade in 0.5s, stay 3.5s, fade out 1s
+	private static void showTitle(Gui gui, Component title, Component subtitle) {
+		gui.setTimes(10, 70, 20);
+		gui.setSubtitle(subtitle);
+		gui.setTitle(title);
+	}
+}
@@ -0,0 +1,147 @@
+package com.mattmurphy.playtimereminder;
+
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.UUID;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.BossEvent;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/**
+ * The server tick path with the Minecraft side stripped off. Synthetic players live in a real
+ * {@link SessionStore}, a {@link PlaytimeClock} driven by a steady {@link PlaytimeClock.TimeSource} gives
+ * the session timeline, the {@link DeadlineScheduler} decides who is looked at, and each due player goes
+ * through the mod's own {@link SessionUpdater}: the decision batch, message rendering and the countdown display.
+ * Only the {@link SessionUpdater.Output} is replaced, by counters. Join offsets are spread over a full kick
+ * cycle so every stage of a session is represented from the first tick.
+ */
+final class SimulatedServer {
+	// Moves 50 ms with every tick, like a server that keeps up
+	private static final class SteadyTime implements PlaytimeClock.TimeSource {
+		private long nanos;
+		private long millis = 1_700_000_000_000L;
+
+		void tick() {
+			nanos += PlaytimeClock.NANOS_PER_TICK;
+			millis += 50;
+		}
+
+		@Override
+		public long nanoTime() {
+			return nanos;
+		}
+
+		@Override
+		public long currentTimeMillis() {
+			return millis;
+		}
+	}
+
+	// Counts what the mod would send. Each slot has one bar made up front, so the output allocates nothing itself.
+	private final class CountingOutput implements SessionUpdater.Output {
+		private BossEvent[] bars = new BossEvent[0];
+
+		@Override
+		public void sendMessage(int slot, Component message) {
+			messages++;
+		}
+
+		@Override
+		public void sendTitle(int slot, Component title, Component subtitle) {
+			titles++;
+		}
+
+		@Override
+		public BossEvent addBar(int slot, Component label, float progress) {
+			barUpdates++;
+			BossEvent bar = bars[slot];
+			bar.setName(label);
+			bar.setProgress(progress);
+			return bar;
+		}
+
+		@Override
+		public void removeBar(int slot, BossEvent bar) {
+			barUpdates++;
+		}
+
+		@Override
+		public void sendSchedule(int slot, SchedulePayload payload) {
+			schedules++;
+		}
+
+		@Override
+		public void queueKick(int slot, long decidedTick) {
+			kicks++;
+		}
+	}
+
+	private final SteadyTime time = new SteadyTime();
+	private final PlaytimeClock clock = new PlaytimeClock(time);
+	private final SessionStore sessions = new SessionStore();
+	private final DeadlineScheduler scheduler = new DeadlineScheduler();
+	private final CountingOutput output = new CountingOutput();
+	private final SessionUpdater updater = new SessionUpdater(sessions, scheduler, clock, new PlaytimeMetrics(), output);
+	private final boolean parallel;
+
+	long kicks;
+	long messages;
+	long titles;
+	long barUpdates;
+	long schedules;
+
+	SimulatedServer(int players, long seed) {
+		this(players, seed, false);
+	}
+
+	/** With {@code parallel}, each tick's decisions are computed on the batch's fork/join pool. */
+	SimulatedServer(int players, long seed, boolean parallel) {
+		Config config = new Config();
+		config.reminderIntervalMinutes = 10;
+		config.strongReminderThresholdMinutes = 60;
+		config.strongReminderRepeatMinutes = 30;
+		config.breakDurationMinutes = 5;
+		PlaytimeCore core = new PlaytimeCore(10, 60, 30, 5);
+		updater.configure(config, new MessageTemplates(config), PlaytimePolicies.compile(config));
+		this.parallel = parallel;
+		clock.reset(PlaytimeClock.Accounting.TICKS, ZoneOffset.UTC);
+
+		Random random = new Random(seed);
+		long cycle = core.strongReminderThresholdTicks + core.strongReminderRepeatTicks;
+		for (int i = 0; i < players; i++) {
+			int slot = sessions.acquire(new UUID(seed, i));
+			long played = (long) (random.nextDouble() * cycle);
+			sessions.joinTick[slot] = -played;
+			sessions.lastTicksPlayed[slot] = played;
+			sessions.setFlag(slot, SessionStore.HAS_JOIN_TICK);
+			scheduler.schedule(slot, 1);
+		}
+		output.bars = new BossEvent[sessions.highWater()];
+		for (int slot = 0; slot < output.bars.length; slot++) {
+			output.bars[slot] = new BossEvent(new UUID(seed, ~slot), Component.empty(), BossEvent.BossBarColor.RED, BossEvent.BossBarOverlay.PROGRESS) {
+			};
+		}
+	}
+
+	/** Advances one tick and returns the number of players looked at. */
+	int tick() {
+		time.tick();
+		clock.tick();
+		long now = clock.now();
+		int processed = 0;
+		updater.beginTick();
+		int slot;
+		while ((slot = scheduler.pollDue(now)) >= 0) {
+			updater.process(slot, parallel, now);
+			processed++;
+		}
+		updater.finishTick(parallel, now);
+		return processed;
+	}
+
+	void close() {
+		updater.close();
+	}
+}
@@ -0,0 +1,44 @@
+package com.mattmurphy.playtimereminder;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Allocation regression check for the tick path, run by the {@code checkTickAllocation} Gradle task.
+ * Drives a warmed-up {@link SimulatedServer} and fails when the average bytes allocated per tick go
+ * over the budget given as the first argument.
+ */
+public final class TickAllocationCheck {
+	private static final int PLAYERS = 10_000;
+	private static final int WARMUP_TICKS = 20 * 60 * 10;
+	private static final int MEASURED_TICKS = 20 * 60 * 60;
+
+	private TickAllocationCheck() {
+	}
+
+	public static void main(String[] args) {
+		long budget = args.length > 0 ? Long.parseLong(args[0]) : 64;
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		SimulatedServer server = new SimulatedServer(PLAYERS, 42);
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			server.tick();
+		}
+
+		long processed = 0;
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			processed += server.tick();
+		}
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		server.close();
+		double perTick = (double) allocated / MEASURED_TICKS;
+
+		System.out.printf("[PlaytimeReminder] %d players, %d ticks, %d slots processed: %.1f bytes/tick (budget %d)%n", PLAYERS, MEASURED_TICKS, processed, perTick, budget);
+		if (perTick > budget) {
+			System.err.println("[PlaytimeReminder] Tick path allocates over budget");
+			System.exit(1);
+		}
+	}
+}
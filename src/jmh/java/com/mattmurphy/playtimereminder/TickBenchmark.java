@@ -0,0 +1,78 @@
+package com.mattmurphy.playtimereminder;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.management.ThreadMXBean;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of one server tick for the playtime logic, in ns/tick, with bytes allocated per tick as a secondary result. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TickBenchmark {
+	@Param({"100", "1000", "10000", "50000"})
+	public int players;
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	private SimulatedServer server;
+
+	/** Reported next to the timing; JMH resets and reads these once per iteration. */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Allocation {
+		private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		private long allocatedAtStart;
+		private long ticks;
+
+		public double bytesPerTick;
+
+		@Setup(Level.Iteration)
+		public void start() {
+			allocatedAtStart = threads.getCurrentThreadAllocatedBytes();
+			ticks = 0;
+		}
+
+		@TearDown(Level.Iteration)
+		public void end() {
+			if (ticks > 0) {
+				bytesPerTick = (double) (threads.getCurrentThreadAllocatedBytes() - allocatedAtStart) / ticks;
+			}
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		server = new SimulatedServer(players, 42, parallel);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.close();
+	}
+
+	@Benchmark
+	public int tick(Allocation allocation) {
+		allocation.ticks++;
+		return server.tick();
+	}
+}
@@ -0,0 +1,110 @@
+package com.mattmurphy.playtimereminder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import com.mojang.authlib.GameProfile;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.network.protocol.common.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.common.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ClientboundChunkBatchFinishedPacket;
+import net.minecraft.network.protocol.game.ServerboundChunkBatchReceivedPacket;
+import net.minecraft.network.protocol.game.ServerboundPlayerLoadedPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.CommonListenerCookie;
+
+/**
+ * A player without a client: a real {@link ServerPlayer} joined through the player list over an embedded
+ * channel, so join, disconnect and every packet go through the same paths as for a real connection.
+ * Outbound packets are counted and dropped. The few replies the server waits for (keep-alives, chunk
+ * batch acknowledgements, the loaded signal) are answered on the following tick, like a client would.
+ */
+final class FakePlayer {
+	final int index;
+	private final GameProfile profile;
+	private final LoadTestReport report;
+
+	private ServerPlayer player;
+	private Connection connection;
+	private boolean online;
+	private boolean loadedPending;
+	private long keepAlivePending = -1;
+	private boolean chunkBatchPending;
+	private boolean joinedBefore;
+	long joinTick = -1; // Harness tick of the next join; -1 while online
+
+	FakePlayer(int index, LoadTestReport report) {
+		this.index = index;
+		this.profile = new GameProfile(UUID.nameUUIDFromBytes(("playtime-loadtest-" + index).getBytes(StandardCharsets.UTF_8)), "LoadTest" + index);
+		this.report = report;
+	}
+
+	/** Joins through the player list and returns whether this is a rejoin. */
+	boolean join(MinecraftServer server) {
+		CommonListenerCookie cookie = CommonListenerCookie.createInitial(profile, false);
+		player = new ServerPlayer(server, server.overworld(), profile, cookie.clientInformation());
+		connection = new Connection(PacketFlow.SERVERBOUND);
+		new EmbeddedChannel(new Outbound(), connection);
+		server.getPlayerList().placeNewPlayer(connection, player, cookie);
+		online = true;
+		loadedPending = true;
+		joinTick = -1;
+		boolean rejoin = joinedBefore;
+		joinedBefore = true;
+		return rejoin;
+	}
+
+	boolean isOnline() {
+		return online;
+	}
+
+	/**
+	 * Answers what the server sent last tick and returns true once when the server has dropped the
+	 * connection, e.g. for a break kick.
+	 */
+	boolean tick() {
+		if (!online) {
+			return false;
+		}
+		if (!connection.isConnected()) {
+			// Normally already done by the kick; a no-op then
+			connection.handleDisconnection();
+			online = false;
+			return true;
+		}
+		if (loadedPending) {
+			loadedPending = false;
+			player.connection.handleAcceptPlayerLoad(new ServerboundPlayerLoadedPacket());
+		}
+		if (keepAlivePending != -1) {
+			player.connection.handleKeepAlive(new ServerboundKeepAlivePacket(keepAlivePending));
+			keepAlivePending = -1;
+		}
+		if (chunkBatchPending) {
+			chunkBatchPending = false;
+			player.connection.handleChunkBatchReceived(new ServerboundChunkBatchReceivedPacket(20.0F));
+		}
+		return false;
+	}
+
+	// Sits in front of the connection, so every packet it writes ends here instead of in a socket
+	private final class Outbound extends ChannelOutboundHandlerAdapter {
+		@Override
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+			if (msg instanceof ClientboundKeepAlivePacket keepAlive) {
+				keepAlivePending = keepAlive.getId();
+			} else if (msg instanceof ClientboundChunkBatchFinishedPacket) {
+				chunkBatchPending = true;
+			}
+			report.packetSent(msg);
+			promise.setSuccess();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * Load test entrypoint, run on a headless dedicated server by {@code ./gradlew runLoadTest}. Joins fake
+ * players spread over the first minute, with the config shortened so reminders, the countdown, kicks
+ * and both kinds of rejoin (within the break, with playtime restored, and after it) all happen within a
+ * few minutes. Every tick from the first join on is timed, and at the end a report is written and the
+ * server stops.
+ *
+ * <p>Settings are system properties, set by the Gradle task from project properties:
+ * {@code playtime.loadtest.players}, {@code .seconds}, {@code .joinSpreadSeconds}, {@code .report}, and
+ * {@code .baseline}, an earlier report to print the difference against.
+ */
+public final class LoadTestHarness implements ModInitializer {
+	private static final int WARMUP_TICKS = 200; // Spawn chunks settle before anyone joins
+	private static final int HEAP_SAMPLE_TICKS = 20;
+	// Kicked players alternate between coming back within the 1 minute break and after it
+	private static final int EARLY_REJOIN_TICKS = 20 * 20;
+	private static final int LATE_REJOIN_TICKS = 80 * 20;
+	// Tick timing starts ahead of every other START_SERVER_TICK listener, including the mod's
+	private static final ResourceLocation TIMING_PHASE = ResourceLocation.fromNamespaceAndPath("playtime_reminder_loadtest", "timing");
+
+	private final int players = Integer.getInteger("playtime.loadtest.players", 500);
+	private final int seconds = Integer.getInteger("playtime.loadtest.seconds", 600);
+	private final int joinSpreadSeconds = Integer.getInteger("playtime.loadtest.joinSpreadSeconds", 60);
+	private final Path reportFile = Paths.get(System.getProperty("playtime.loadtest.report", "playtime-loadtest-report.json"));
+	private final String baseline = System.getProperty("playtime.loadtest.baseline", "");
+
+	private final LoadTestReport report = new LoadTestReport();
+	private final List<FakePlayer> fakes = new ArrayList<>();
+	private long tick;
+	private long tickStart;
+	private boolean finished;
+
+	@Override
+	public void onInitialize() {
+		writeConfig();
+		for (int i = 0; i < players; i++) {
+			FakePlayer fake = new FakePlayer(i, report);
+			fake.joinTick = WARMUP_TICKS + (long) i * joinSpreadSeconds * 20 / Math.max(1, players);
+			fakes.add(fake);
+		}
+		ServerTickEvents.START_SERVER_TICK.addPhaseOrdering(TIMING_PHASE, Event.DEFAULT_PHASE);
+		ServerTickEvents.START_SERVER_TICK.register(TIMING_PHASE, server -> tickStart = System.nanoTime());
+		ServerTickEvents.END_SERVER_TICK.register(this::endTick);
+		ServerLifecycleEvents.SERVER_STARTED.register(server ->
+			System.out.println("[PlaytimeReminder] Load test: " + players + " players over " + joinSpreadSeconds + "s, " + seconds + "s measured"));
+	}
+
+	// Short thresholds so a whole session fits the run; the mod loads this when the server starts
+	private static void writeConfig() {
+		Config config = new Config();
+		config.reminderIntervalMinutes = 1;
+		config.strongReminderThresholdMinutes = 6;
+		config.strongReminderRepeatMinutes = 2;
+		config.breakDurationMinutes = 1;
+		config.metricsFile = "playtime-loadtest-metrics.prom";
+		config.sharedSessionsFile = ""; // Never inherit another server's breaks
+		try {
+			Path file = Paths.get("config", "playtime_reminder.json5");
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, new GsonBuilder().setPrettyPrinting().create().toJson(config), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Could not write the load test config: " + e.getMessage());
+		}
+	}
+
+	private void endTick(MinecraftServer server) {
+		if (finished) {
+			return;
+		}
+		tick++;
+		for (FakePlayer fake : fakes) {
+			if (fake.tick()) {
+				report.kicks++;
+				fake.joinTick = tick + (fake.index % 2 == 0 ? EARLY_REJOIN_TICKS : LATE_REJOIN_TICKS);
+			} else if (!fake.isOnline() && fake.joinTick == tick) {
+				report.joins++;
+				if (fake.join(server)) {
+					report.rejoins++;
+				}
+			}
+		}
+
+		if (tick < WARMUP_TICKS) {
+			return;
+		}
+		// Joins above are part of the tick, like a real login would be
+		report.recordTick(System.nanoTime() - tickStart);
+		if (tick % HEAP_SAMPLE_TICKS == 0) {
+			report.sampleHeap();
+		}
+		if (report.ticks() >= seconds * 20) {
+			finish(server);
+		}
+	}
+
+	private void finish(MinecraftServer server) {
+		finished = true;
+		Map<String, Object> settings = new LinkedHashMap<>();
+		settings.put("players", players);
+		settings.put("seconds", seconds);
+		settings.put("joinSpreadSeconds", joinSpreadSeconds);
+		settings.put("javaVersion", System.getProperty("java.version"));
+		settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+		settings.put("maxHeapMiB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+		try {
+			report.write(reportFile, settings);
+			System.out.println("[PlaytimeReminder] Load test report written to " + reportFile.toAbsolutePath());
+			if (!baseline.isBlank()) {
+				LoadTestReport.compare(reportFile, Paths.get(baseline));
+			}
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Could not write the load test report: " + e.getMessage());
+		}
+		server.halt(false);
+	}
+}
@@ -0,0 +1,151 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * What one load test run measured: the duration of every measured server tick, packets sent to the fake
+ * players by type, heap and GC use, and how many joins, kicks and rejoins happened. Written as JSON so a
+ * run can be kept as the baseline for the next one.
+ */
+final class LoadTestReport {
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	private long[] tickNanos = new long[20 * 60 * 10];
+	private int ticks;
+	private long packets;
+	private final Map<String, Long> packetsByType = new TreeMap<>();
+	private long peakHeapBytes;
+	private long gcCountAtStart = -1;
+	private long gcMillisAtStart;
+
+	long joins;
+	long kicks;
+	long rejoins;
+
+	void recordTick(long nanos) {
+		if (ticks == tickNanos.length) {
+			tickNanos = Arrays.copyOf(tickNanos, ticks * 2);
+		}
+		tickNanos[ticks++] = nanos;
+	}
+
+	void packetSent(Object packet) {
+		packets++;
+		packetsByType.merge(packet.getClass().getSimpleName(), 1L, Long::sum);
+	}
+
+	void sampleHeap() {
+		peakHeapBytes = Math.max(peakHeapBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		if (gcCountAtStart < 0) {
+			gcCountAtStart = gcCount();
+			gcMillisAtStart = gcMillis();
+		}
+	}
+
+	int ticks() {
+		return ticks;
+	}
+
+	/** Tick duration at quantile {@code q} in milliseconds, nearest-rank. */
+	private static double msptAt(long[] sorted, double q) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(q * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+	}
+
+	void write(Path file, Map<String, Object> settings) throws IOException {
+		long[] sorted = Arrays.copyOf(tickNanos, ticks);
+		Arrays.sort(sorted);
+		double total = 0;
+		for (long nanos : sorted) {
+			total += nanos;
+		}
+
+		Map<String, Object> mspt = new LinkedHashMap<>();
+		mspt.put("mean", ticks == 0 ? 0 : total / ticks / 1e6);
+		mspt.put("p50", msptAt(sorted, 0.50));
+		mspt.put("p95", msptAt(sorted, 0.95));
+		mspt.put("p99", msptAt(sorted, 0.99));
+		mspt.put("p999", msptAt(sorted, 0.999));
+		mspt.put("max", msptAt(sorted, 1.0));
+
+		Map<String, Object> heap = new LinkedHashMap<>();
+		heap.put("peakUsedMiB", peakHeapBytes / (1024 * 1024));
+		heap.put("endUsedMiB", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024));
+		heap.put("gcCount", gcCount() - Math.max(0, gcCountAtStart));
+		heap.put("gcMillis", gcMillis() - gcMillisAtStart);
+
+		Map<String, Object> sessions = new LinkedHashMap<>();
+		sessions.put("joins", joins);
+		sessions.put("kicks", kicks);
+		sessions.put("rejoins", rejoins);
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("settings", settings);
+		report.put("measuredTicks", ticks);
+		report.put("mspt", mspt);
+		report.put("packets", packets);
+		report.put("packetsByType", packetsByType);
+		report.put("heap", heap);
+		report.put("sessions", sessions);
+
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.writeString(file, GSON.toJson(report), StandardCharsets.UTF_8);
+	}
+
+	/** Prints this run's tick percentiles and packet count next to those of an earlier report. */
+	static void compare(Path current, Path baseline) {
+		try (Reader now = Files.newBufferedReader(current, StandardCharsets.UTF_8);
+			 Reader before = Files.newBufferedReader(baseline, StandardCharsets.UTF_8)) {
+			JsonObject a = JsonParser.parseReader(now).getAsJsonObject();
+			JsonObject b = JsonParser.parseReader(before).getAsJsonObject();
+			for (String key : new String[] {"mean", "p50", "p95", "p99", "max"}) {
+				double was = b.getAsJsonObject("mspt").get(key).getAsDouble();
+				double is = a.getAsJsonObject("mspt").get(key).getAsDouble();
+				System.out.printf("[PlaytimeReminder] mspt %-4s %8.3f -> %8.3f (%+.1f%%)%n", key, was, is, was == 0 ? 0 : (is - was) * 100 / was);
+			}
+			long was = b.get("packets").getAsLong();
+			long is = a.get("packets").getAsLong();
+			System.out.printf("[PlaytimeReminder] packets   %8d -> %8d (%+.1f%%)%n", was, is, was == 0 ? 0 : (is - was) * 100.0 / was);
+		} catch (IOException | JsonParseException | IllegalStateException | NullPointerException e) {
+			System.err.println("[PlaytimeReminder] Could not compare with baseline " + baseline + ": " + e.getMessage());
+		}
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+}
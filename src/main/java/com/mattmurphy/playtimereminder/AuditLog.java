@@ -0,0 +1,339 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Structured record of reminders, warnings, kicks and joins. The server thread only drops fixed-size
+ * events into a {@link RecordRing}; a background thread formats them as JSON lines into
+ * {@code audit.jsonl}, rotating it to {@code audit.1.jsonl} .. {@code audit.N.jsonl} by size, and keeps
+ * the last few lines of the most recently active players in memory for {@code /playtime audit}. Anyone
+ * else is looked up in the files themselves, on a separate search thread. When the ring is full new events
+ * are dropped, counted, and the gap is written to the file as a {@code dropped} line. Names are only held
+ * for tracked players and go with {@link #forget}; the lines written keep them.
+ */
+final class AuditLog {
+	static final int REMINDER = 1;
+	static final int WARNING_5MIN = 2;
+	static final int WARNING_1MIN = 3;
+	static final int WARNING_10S = 4;
+	static final int KICK = 5;
+	static final int JOIN = 6;
+	static final int DISCONNECT = 7;
+	private static final int FORGET = 8; // Not written; drops the name once the player's earlier events are out
+	private static final String[] EVENT_NAMES = {"", "reminder", "warning_5min", "warning_1min", "warning_10s", "kick", "join", "disconnect"};
+
+	private static final int RING_CAPACITY = 1 << 14;
+	private static final long ROTATE_BYTES = 8L * 1024 * 1024;
+	private static final int KEEP_FILES = 5;
+	private static final int RECENT_PER_PLAYER = 20;
+	private static final int RECENT_PLAYERS = 1024; // Least recently active players beyond this lose their recent lines
+
+	private final Path dir;
+	private final Path file;
+	private final RecordRing ring = new RecordRing(RING_CAPACITY);
+	private final Map<UUID, Named> names = new ConcurrentHashMap<>(); // Tracked players only
+	private final RecentPlayers recent = new RecentPlayers(); // Guarded by itself
+	private long nameSequence; // Server thread only
+
+	// A name and when it was remembered, so a forget still in the ring cannot drop the name of a rejoin
+	private record Named(String name, long sequence) {
+	}
+
+	/** Access-ordered, so the eldest entry is the least recently active player. */
+	private static final class RecentPlayers extends LinkedHashMap<UUID, RecentEvents> {
+		private static final long serialVersionUID = 1L;
+
+		RecentPlayers() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<UUID, RecentEvents> eldest) {
+			return size() > RECENT_PLAYERS;
+		}
+	}
+
+	private BufferedWriter out;
+	private long fileBytes;
+	private long droppedWritten;
+	private Thread writer;
+	private ExecutorService search;
+	private volatile boolean running;
+
+	/** Last lines written for one player, oldest first; guarded by the recent map. */
+	private static final class RecentEvents {
+		final String[] lines = new String[RECENT_PER_PLAYER];
+		int next;
+		int count;
+	}
+
+	AuditLog(Path dir) {
+		this.dir = dir;
+		this.file = dir.resolve("audit.jsonl");
+	}
+
+	void open() throws IOException {
+		Files.createDirectories(dir);
+		out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		fileBytes = Files.size(file);
+		running = true;
+		writer = new Thread(this::runWriter, "PlaytimeReminder-Audit");
+		writer.setDaemon(true);
+		writer.start();
+		search = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "PlaytimeReminder-AuditSearch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** Remembers the name to write next to a UUID. Called on join, off the per-tick path. */
+	void rememberName(UUID id, String name) {
+		names.put(id, new Named(name, ++nameSequence));
+	}
+
+	/**
+	 * Drops the name of a player whose session slot was released, after any of their events still in the
+	 * ring have been written. Their recent lines stay until other players push them out.
+	 */
+	void forget(UUID id) {
+		Named named = names.get(id);
+		if (named != null && !ring.offer(FORGET, id.getMostSignificantBits(), id.getLeastSignificantBits(), named.sequence(), 0)) {
+			names.remove(id, named); // Ring full: a queued event may go out without the name, which is harmless
+		}
+	}
+
+	/** Called from the server thread; never blocks or allocates. Returns false if the event was dropped. */
+	boolean record(int type, UUID id, long tick, int minutesPlayed, long wallMillis) {
+		return ring.offer(type | ((long) minutesPlayed << 8), id.getMostSignificantBits(), id.getLeastSignificantBits(), tick, wallMillis);
+	}
+
+	long droppedEvents() {
+		return ring.dropped();
+	}
+
+	/** The most recent lines written for a player, oldest first. */
+	List<String> recentEvents(UUID id) {
+		List<String> lines = new ArrayList<>();
+		synchronized (recent) {
+			RecentEvents events = recent.get(id);
+			if (events == null) {
+				return lines;
+			}
+			for (int i = 0; i < events.count; i++) {
+				lines.add(events.lines[(events.next - events.count + i + RECENT_PER_PLAYER) % RECENT_PER_PLAYER]);
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Looks a player's last lines up in the audit files on the search thread and hands them, oldest first,
+	 * to {@code reply} on {@code replyOn}. The player is the one with {@code id}, or when that is null,
+	 * whoever the newest line with {@code name} belongs to.
+	 */
+	void search(String name, UUID id, Executor replyOn, Consumer<List<String>> reply) {
+		search.execute(() -> {
+			List<String> lines;
+			try {
+				lines = find(dir, name, id, RECENT_PER_PLAYER);
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Audit search failed: " + e.getMessage());
+				lines = List.of();
+			}
+			List<String> found = lines;
+			replyOn.execute(() -> reply.accept(found));
+		});
+	}
+
+	/** The last {@code limit} lines for a player across the current and rotated files, oldest first. */
+	static List<String> find(Path dir, String name, UUID id, int limit) throws IOException {
+		String uuid = id != null ? id.toString() : resolve(dir, name);
+		List<String> found = new ArrayList<>();
+		for (int i = 0; uuid != null && i <= KEEP_FILES && found.size() < limit; i++) {
+			List<String> lines = readFile(dir, i);
+			for (int j = lines.size() - 1; j >= 0 && found.size() < limit; j--) {
+				if (uuid.equals(field(lines.get(j), "uuid"))) {
+					found.add(lines.get(j));
+				}
+			}
+		}
+		Collections.reverse(found);
+		return found;
+	}
+
+	// The UUID on the newest line that carries the name; a line can lack it if the name was dropped early
+	private static String resolve(Path dir, String name) throws IOException {
+		for (int i = 0; i <= KEEP_FILES; i++) {
+			List<String> lines = readFile(dir, i);
+			for (int j = lines.size() - 1; j >= 0; j--) {
+				if (name.equalsIgnoreCase(field(lines.get(j), "name"))) {
+					return field(lines.get(j), "uuid");
+				}
+			}
+		}
+		return null;
+	}
+
+	// File 0 is the current one, 1..KEEP_FILES the rotated ones from newest to oldest
+	private static List<String> readFile(Path dir, int index) throws IOException {
+		try {
+			return Files.readAllLines(dir.resolve(index == 0 ? "audit.jsonl" : "audit." + index + ".jsonl"), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			return List.of(); // Not rotated that far yet
+		}
+	}
+
+	// A string field of one of our own lines, or null; the values never contain quotes
+	private static String field(String line, String key) {
+		String marker = "\"" + key + "\":\"";
+		int start = line.indexOf(marker);
+		if (start < 0) {
+			return null;
+		}
+		start += marker.length();
+		int end = line.indexOf('"', start);
+		return end < 0 ? null : line.substring(start, end);
+	}
+
+	/** Players with names held, for tests. */
+	int namedPlayers() {
+		return names.size();
+	}
+
+	/** Players with recent lines held, for tests. */
+	int recentPlayers() {
+		synchronized (recent) {
+			return recent.size();
+		}
+	}
+
+	/** Drains outstanding events and stops the writer thread. */
+	void close() {
+		Thread thread = writer;
+		if (thread == null) {
+			return;
+		}
+		running = false;
+		search.shutdown();
+		LockSupport.unpark(thread);
+		try {
+			thread.join(10_000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+	}
+
+	private void runWriter() {
+		long[] event = new long[RecordRing.RECORD_LONGS];
+		StringBuilder line = new StringBuilder(256);
+		try {
+			while (running || !ring.isEmpty()) {
+				boolean wrote = false;
+				long dropped = ring.dropped();
+				if (dropped != droppedWritten) {
+					line.setLength(0);
+					line.append("{\"time\":\"").append(Instant.now()).append("\",\"event\":\"dropped\",\"count\":").append(dropped - droppedWritten).append('}');
+					write(line);
+					droppedWritten = dropped;
+					wrote = true;
+				}
+				while (ring.poll(event)) {
+					UUID id = new UUID(event[1], event[2]);
+					if ((event[0] & 0xFF) == FORGET) {
+						Named named = names.get(id);
+						if (named != null && named.sequence() == event[3]) {
+							names.remove(id, named);
+						}
+						continue;
+					}
+					format(line, event, id);
+					write(line);
+					remember(id, line.toString());
+					wrote = true;
+				}
+				if (wrote) {
+					out.flush();
+				} else if (running) {
+					LockSupport.parkNanos(50_000_000L);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Audit log stopped: " + e.getMessage());
+		} finally {
+			try {
+				out.close();
+			} catch (IOException ignored) {
+				// Nothing left to do
+			}
+		}
+	}
+
+	private void format(StringBuilder line, long[] event, UUID id) {
+		int type = (int) (event[0] & 0xFF);
+		Named named = names.get(id);
+		String name = named != null ? named.name() : null;
+		line.setLength(0);
+		line.append("{\"time\":\"").append(Instant.ofEpochMilli(event[4]))
+			.append("\",\"event\":\"").append(type < EVENT_NAMES.length ? EVENT_NAMES[type] : Integer.toString(type))
+			.append("\",\"uuid\":\"").append(id).append('"');
+		if (name != null) {
+			line.append(",\"name\":\"").append(name).append('"'); // Minecraft names are [A-Za-z0-9_], nothing to escape
+		}
+		line.append(",\"tick\":").append(event[3])
+			.append(",\"minutesPlayed\":").append(event[0] >>> 8)
+			.append('}');
+	}
+
+	private void write(StringBuilder line) throws IOException {
+		if (fileBytes + line.length() + 1 > ROTATE_BYTES) {
+			rotate();
+		}
+		out.append(line).append('\n');
+		fileBytes += line.length() + 1;
+	}
+
+	private void rotate() throws IOException {
+		out.close();
+		Files.deleteIfExists(dir.resolve("audit." + KEEP_FILES + ".jsonl"));
+		for (int i = KEEP_FILES - 1; i >= 1; i--) {
+			Path from = dir.resolve("audit." + i + ".jsonl");
+			if (Files.exists(from)) {
+				Files.move(from, dir.resolve("audit." + (i + 1) + ".jsonl"), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		Files.move(file, dir.resolve("audit.1.jsonl"), StandardCopyOption.REPLACE_EXISTING);
+		out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		fileBytes = 0;
+	}
+
+	private void remember(UUID id, String line) {
+		synchronized (recent) {
+			RecentEvents events = recent.computeIfAbsent(id, key -> new RecentEvents());
+			events.lines[events.next] = line;
+			events.next = (events.next + 1) % RECENT_PER_PLAYER;
+			events.count = Math.min(events.count + 1, RECENT_PER_PLAYER);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.mattmurphy.playtimereminder;
+
+import net.minecraft.network.chat.Component;
+
+/**
+ * A companion client's countdown to its next kick, counted on the client's own clock from the last
+ * {@link SchedulePayload}. {@link #update} reports what the player should see change, with the same
+ * rules the server applies to everyone else: the bar while at most the window's whole seconds remain,
+ * progress rounded to the server's steps, and the 1-minute and 10-second titles once per countdown.
+ * Free of client classes, so the client entrypoint only turns the reported changes into draw calls.
+ */
+final class CompanionCountdown {
+	// Changes reported by update()
+	static final int BAR_SHOWN = 1;
+	static final int BAR_CHANGED = 1 << 1; // Label or progress of a bar already shown
+	static final int BAR_REMOVED = 1 << 2;
+	static final int TITLE_1MIN = 1 << 3;
+	static final int TITLE_10S = 1 << 4;
+
+	// The server resends a drifting countdown once it is 2 s off, so a deadline this close is the same countdown
+	private static final long SAME_COUNTDOWN_MILLIS = 5000;
+
+	private boolean running;
+	private long deadlineMillis;
+	private int reason = SchedulePayload.BREAK;
+	private int windowSeconds;
+	private int progressSteps;
+	private String labelFormat;
+	private MessageTemplate label;
+	private int titlesShown; // TITLE_1MIN and TITLE_10S already shown in this countdown
+
+	private boolean barShown;
+	private int barSeconds = -1; // Seconds the bar shows, or -1 when it needs redrawing
+	private Component barLabel;
+	private float barProgress;
+
+	/** Starts counting down to the schedule's kick, or stops with a cleared schedule. */
+	void start(SchedulePayload payload, long nowMillis) {
+		if (payload.secondsUntilKick() == SchedulePayload.NONE) {
+			running = false;
+			return;
+		}
+		long deadline = nowMillis + payload.secondsUntilKick() * 1000L;
+		if (!running || Math.abs(deadline - deadlineMillis) >= SAME_COUNTDOWN_MILLIS) {
+			titlesShown = 0;
+		}
+		running = true;
+		deadlineMillis = deadline;
+		reason = payload.reason();
+		windowSeconds = Math.max(1, payload.countdownSeconds());
+		progressSteps = Math.max(1, payload.progressSteps());
+		if (!payload.bossBarTitle().equals(labelFormat)) {
+			labelFormat = payload.bossBarTitle();
+			label = parseLabel(labelFormat);
+		}
+		barSeconds = -1; // The window, steps or title may have changed
+	}
+
+	/** Stops without reporting a removal, for when the game has already dropped its boss bars. */
+	void clear() {
+		running = false;
+		barShown = false;
+		barSeconds = -1;
+	}
+
+	/** Moves the countdown to {@code nowMillis} and returns what changed as BAR_ and TITLE_ bits. */
+	int update(long nowMillis) {
+		int seconds = running ? (int) Math.max(0, (deadlineMillis - nowMillis) / 1000) : 0;
+		int changes = 0;
+		if (seconds > 0 && seconds <= windowSeconds) {
+			if (!barShown || seconds != barSeconds) {
+				long step = ((long) seconds * progressSteps + windowSeconds - 1) / windowSeconds;
+				barProgress = Math.min(1.0f, (float) step / progressSteps);
+				barLabel = label.render(0, seconds, 0);
+				barSeconds = seconds;
+				changes |= barShown ? BAR_CHANGED : BAR_SHOWN;
+				barShown = true;
+			}
+		} else if (barShown) {
+			barShown = false;
+			barSeconds = -1;
+			changes |= BAR_REMOVED;
+		}
+
+		if (running && seconds <= 60 && seconds > 10 && (titlesShown & TITLE_1MIN) == 0) {
+			titlesShown |= TITLE_1MIN;
+			changes |= TITLE_1MIN;
+		}
+		if (running && seconds <= 10 && (titlesShown & TITLE_10S) == 0) {
+			titlesShown |= TITLE_10S;
+			changes |= TITLE_10S;
+		}
+		return changes;
+	}
+
+	/** {@link SchedulePayload#BREAK} or {@link SchedulePayload#LIMIT}, for picking the title texts. */
+	int reason() {
+		return reason;
+	}
+
+	Component barLabel() {
+		return barLabel;
+	}
+
+	float barProgress() {
+		return barProgress;
+	}
+
+	// The server validates its format, but a client may meet a server that does not
+	private static MessageTemplate parseLabel(String format) {
+		String pattern;
+		try {
+			pattern = MessageTemplate.fromFormat(format);
+		} catch (IllegalArgumentException e) {
+			pattern = MessageTemplate.TIME;
+		}
+		return new MessageTemplate(pattern, 512);
+	}
+}
@@ -0,0 +1,321 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/**
+ * Owns the config file. Readers get whole {@link Config} snapshots through a single volatile reference;
+ * a published snapshot is never modified, so changes are made on a copy, validated and swapped in.
+ * Saves are debounced onto a background thread and written through a temp file, and edits made to the
+ * file while the server runs are picked up by a {@link WatchService}.
+ */
+final class ConfigService {
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+	// Finds a comma followed by optional whitespace and a closing brace/bracket
+	private static final Pattern TRAILING_COMMA = Pattern.compile(",(\\s*[\\}\\]])");
+	private static final long SAVE_DELAY_MILLIS = 500;
+	private static final long RELOAD_DELAY_MILLIS = 250;
+
+	private final Path dir;
+	private final Path file;
+	private final Path legacyFile;
+	private final ScheduledExecutorService io;
+
+	private volatile Config current = new Config();
+	private ScheduledFuture<?> pendingSave; // Guarded by this
+	private ScheduledFuture<?> pendingReload; // Guarded by this
+	private volatile String lastWritten; // Contents of our own last write, so the watcher can ignore it
+	private WatchService watcher;
+	private Thread watchThread;
+
+	ConfigService(Path dir) {
+		this.dir = dir;
+		this.file = dir.resolve("playtime_reminder.json5");
+		this.legacyFile = dir.resolve("playtime_reminder.json");
+		this.io = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "PlaytimeReminder-Config");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	Config current() {
+		return current;
+	}
+
+	/**
+	 * Loads (or creates) the config file synchronously. Used at server start, before anything reads the
+	 * config; an invalid file keeps the previous snapshot.
+	 */
+	void load() {
+		try {
+			Files.createDirectories(dir);
+
+			// 1. Check for and migrate old .json file
+			if (Files.exists(legacyFile)) {
+				Config loaded = read(legacyFile);
+				if (loaded != null) {
+					publish(loaded, "legacy config");
+				}
+				// Delete old file after successful load
+				Files.delete(legacyFile);
+				System.out.println("[PlaytimeReminder] Migrated config from .json to .json5");
+			}
+
+			// 2. Load new .json5 file (or continue with defaults/migrated config)
+			if (Files.exists(file)) {
+				Config loaded = read(file);
+				if (loaded != null) {
+					publish(loaded, file.toString());
+				}
+			}
+		} catch (IOException e) {
+			// Keep defaults on error
+			System.err.println("[PlaytimeReminder] Error loading or migrating config: " + e.getMessage());
+		}
+
+		// Always save the config after loading/merging to persist any new default values,
+		// or to create the file if it didn't exist.
+		write(current);
+	}
+
+	/**
+	 * Applies {@code change} to a copy of the current snapshot and publishes it if it validates.
+	 * Returns the validation problems, empty on success.
+	 */
+	synchronized List<String> update(Consumer<Config> change) {
+		Config next = copy(current);
+		change.accept(next);
+		List<String> problems = validate(next);
+		if (problems.isEmpty()) {
+			current = next;
+			scheduleSave();
+		}
+		return problems;
+	}
+
+	/** Starts watching the config directory for edits made outside the server. */
+	void startWatching() {
+		if (watchThread != null) {
+			return;
+		}
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+			dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Config hot reload unavailable: " + e.getMessage());
+			return;
+		}
+		watchThread = new Thread(this::watch, "PlaytimeReminder-ConfigWatcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/** Stops the watcher and writes out any pending save. */
+	void close() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException ignored) {
+				// Already closing
+			}
+			watcher = null;
+			watchThread = null;
+		}
+		synchronized (this) {
+			if (pendingSave != null && pendingSave.cancel(false)) {
+				pendingSave = null;
+				io.execute(() -> write(current));
+			}
+		}
+		io.shutdown();
+		try {
+			io.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path changed && changed.getFileName().equals(file.getFileName())) {
+						scheduleReload();
+					}
+				}
+				if (!key.reset()) {
+					return;
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Shutting down
+		}
+	}
+
+	// Editors often write a file in several steps, so wait for it to settle before reading
+	private synchronized void scheduleReload() {
+		if (pendingReload != null) {
+			pendingReload.cancel(false);
+		}
+		pendingReload = io.schedule(this::reload, RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private void reload() {
+		String content;
+		try {
+			content = Files.readString(file);
+		} catch (IOException e) {
+			return;
+		}
+		if (content.equals(lastWritten)) {
+			return;
+		}
+		Config loaded = parse(content, file);
+		if (loaded != null && publish(loaded, file.toString())) {
+			System.out.println("[PlaytimeReminder] Reloaded config from " + file);
+		}
+	}
+
+	private synchronized void scheduleSave() {
+		if (pendingSave != null) {
+			pendingSave.cancel(false);
+		}
+		pendingSave = io.schedule(() -> write(current), SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized boolean publish(Config loaded, String source) {
+		fillDefaults(loaded);
+		List<String> problems = validate(loaded);
+		if (!problems.isEmpty()) {
+			System.err.println("[PlaytimeReminder] Ignoring " + source + ": " + String.join("; ", problems));
+			return false;
+		}
+		current = loaded;
+		return true;
+	}
+
+	private void write(Config config) {
+		String json = GSON.toJson(config);
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(dir);
+			Files.writeString(tmp, json, StandardCharsets.UTF_8);
+			lastWritten = json;
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Error saving config: " + e.getMessage());
+		}
+	}
+
+	private static Config read(Path path) {
+		try {
+			return parse(Files.readString(path), path);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Error reading config file " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static Config parse(String content, Path path) {
+		try {
+			return GSON.fromJson(TRAILING_COMMA.matcher(content).replaceAll("$1"), Config.class);
+		} catch (JsonParseException e) {
+			System.err.println("[PlaytimeReminder] Error parsing config file " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static Config copy(Config config) {
+		return GSON.fromJson(GSON.toJsonTree(config), Config.class);
+	}
+
+	// Fill in any missing String fields with defaults (config migration).
+	private static void fillDefaults(Config config) {
+		Config defaults = new Config();
+		if (config.regularMessagePrefix == null) config.regularMessagePrefix = defaults.regularMessagePrefix;
+		if (config.regularMessageSuffix == null) config.regularMessageSuffix = defaults.regularMessageSuffix;
+		if (config.strongMessagePrefix == null) config.strongMessagePrefix = defaults.strongMessagePrefix;
+		if (config.strongMessageSuffix == null) config.strongMessageSuffix = defaults.strongMessageSuffix;
+		if (config.disconnectMessage == null) config.disconnectMessage = defaults.disconnectMessage;
+		if (config.warningMessage5min == null) config.warningMessage5min = defaults.warningMessage5min;
+		if (config.warningMessage1min == null) config.warningMessage1min = defaults.warningMessage1min;
+		if (config.warningMessage10s == null) config.warningMessage10s = defaults.warningMessage10s;
+		if (config.bossBarTitle == null) config.bossBarTitle = defaults.bossBarTitle;
+		if (config.timeZone == null) config.timeZone = defaults.timeZone;
+		if (config.accountingMode == null) config.accountingMode = defaults.accountingMode;
+		if (config.metricsFile == null) config.metricsFile = defaults.metricsFile;
+		if (config.limitReachedMessage == null) config.limitReachedMessage = defaults.limitReachedMessage;
+		if (config.sharedSessionsFile == null) config.sharedSessionsFile = defaults.sharedSessionsFile;
+		if (config.policyProfiles == null) config.policyProfiles = defaults.policyProfiles;
+		if (config.policyRules == null) config.policyRules = defaults.policyRules;
+		if (config.playerPolicies == null) config.playerPolicies = defaults.playerPolicies;
+		if (config.curfews == null) config.curfews = defaults.curfews;
+		if (config.curfewMessage == null) config.curfewMessage = defaults.curfewMessage;
+	}
+
+	static List<String> validate(Config config) {
+		List<String> problems = new ArrayList<>();
+		if (config.reminderIntervalMinutes < 1) problems.add("reminderIntervalMinutes must be at least 1");
+		if (config.strongReminderThresholdMinutes < 1) problems.add("strongReminderThresholdMinutes must be at least 1");
+		if (config.strongReminderRepeatMinutes < 1) problems.add("strongReminderRepeatMinutes must be at least 1");
+		if (config.breakDurationMinutes < 1) problems.add("breakDurationMinutes must be at least 1");
+		if (config.bossBarProgressSteps < 1) problems.add("bossBarProgressSteps must be at least 1");
+		if (config.dailyLimitMinutes < 0) problems.add("dailyLimitMinutes must be 0 (no limit) or more");
+		if (config.weeklyLimitMinutes < 0) problems.add("weeklyLimitMinutes must be 0 (no limit) or more");
+		if (config.monthlyLimitMinutes < 0) problems.add("monthlyLimitMinutes must be 0 (no limit) or more");
+		if (config.maxTrackedPlayers < 0) problems.add("maxTrackedPlayers must be 0 (no cap) or more");
+		if (config.tickBudgetOperations < 0) problems.add("tickBudgetOperations must be 0 (no limit) or more");
+		if (config.tickBudgetMicros < 0) problems.add("tickBudgetMicros must be 0 (no limit) or more");
+		if (config.maxLatenessSeconds < 1) problems.add("maxLatenessSeconds must be at least 1");
+		if (config.afkThresholdSeconds < 0) problems.add("afkThresholdSeconds must be 0 (off) or more");
+		if (config.afkSampleTicks < 1 || config.afkSampleTicks > 1200) problems.add("afkSampleTicks must be between 1 and 1200");
+		if (config.parallelDecideThreshold < 0) problems.add("parallelDecideThreshold must be 0 (off) or more");
+		if (config.deadlineJitterSeconds < 0 || config.deadlineJitterSeconds > 60) problems.add("deadlineJitterSeconds must be between 0 and 60");
+		if (config.metricsPort < 0 || config.metricsPort > 65535) problems.add("metricsPort must be between 0 and 65535");
+		try {
+			MessageTemplate.fromFormat(config.bossBarTitle); // The same parser the boss bar renders with
+		} catch (IllegalArgumentException e) {
+			problems.add("bossBarTitle is not a valid format string: " + e.getMessage());
+		}
+		if (!config.timeZone.isBlank()) {
+			try {
+				ZoneId.of(config.timeZone);
+			} catch (DateTimeException e) {
+				problems.add("timeZone '" + config.timeZone + "' is not a known zone");
+			}
+		}
+		PlaytimePolicies.validate(config, problems);
+		CurfewSchedule.validate(config, problems);
+		if (!config.accountingMode.equalsIgnoreCase("ticks") && !config.accountingMode.equalsIgnoreCase("wallclock")) {
+			problems.add("accountingMode must be \"ticks\" or \"wallclock\"");
+		}
+		return problems;
+	}
+}
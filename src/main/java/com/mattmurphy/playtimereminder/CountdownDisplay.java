@@ -0,0 +1,90 @@
+package com.mattmurphy.playtimereminder;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.BossEvent;
+
+/**
+ * Outbound side of the countdown. Boss bar updates are compared against what the player's bar already
+ * shows and only changes are sent, with progress rounded to a configurable number of steps; the three
+ * title packets of a warning go out as one bundle. Bars are created, shown and removed through the
+ * {@link SessionUpdater.Output}, and a bar's name and progress changes reach the player through the bar
+ * itself. What was sent is counted in {@link PlaytimeMetrics}, and so are the progress packets the step
+ * rounding saved: vanilla already drops unchanged names and progress, but unrounded progress changes
+ * every second.
+ */
+final class CountdownDisplay {
+	// Rough wire size of a progress update, used to estimate the bandwidth saved
+	private static final int BOSS_BAR_PROGRESS_BYTES = 23; // Packet id, uuid, operation, float
+
+	private final SessionStore sessions;
+	private final PlaytimeMetrics metrics;
+	private final SessionUpdater.Output output;
+	private int activeBars;
+
+	CountdownDisplay(SessionStore sessions, PlaytimeMetrics metrics, SessionUpdater.Output output) {
+		this.sessions = sessions;
+		this.metrics = metrics;
+		this.output = output;
+	}
+
+	/** Shows or updates the countdown bar for an online slot. */
+	void show(int slot, Component label, long secondsUntilKick, int windowSeconds, int progressSteps) {
+		long step = (secondsUntilKick * progressSteps + windowSeconds - 1) / windowSeconds;
+		float progress = Math.min(1.0f, (float) step / progressSteps);
+
+		BossEvent bossBar = sessions.bossBars[slot];
+		if (bossBar == null) {
+			sessions.bossBars[slot] = output.addBar(slot, label, progress);
+			activeBars++;
+			metrics.increment(PlaytimeMetrics.BOSS_BAR_UPDATES);
+			metrics.increment(PlaytimeMetrics.PACKETS_SENT);
+			return;
+		}
+
+		// Labels come from the template cache and show the seconds left, so a new instance means a new second
+		boolean renamed = bossBar.getName() != label;
+		if (renamed) {
+			bossBar.setName(label);
+			metrics.increment(PlaytimeMetrics.BOSS_BAR_UPDATES);
+			metrics.increment(PlaytimeMetrics.PACKETS_SENT);
+		}
+		if (bossBar.getProgress() != progress) {
+			bossBar.setProgress(progress);
+			metrics.increment(PlaytimeMetrics.BOSS_BAR_UPDATES);
+			metrics.increment(PlaytimeMetrics.PACKETS_SENT);
+		} else if (renamed) {
+			// Unrounded, the progress would have moved with the second and been sent
+			metrics.increment(PlaytimeMetrics.PACKETS_SKIPPED);
+			metrics.add(PlaytimeMetrics.BYTES_SKIPPED, BOSS_BAR_PROGRESS_BYTES);
+		}
+	}
+
+	/** Removes the slot's bar, if any; the player must still be online. */
+	void hide(int slot) {
+		BossEvent bossBar = sessions.bossBars[slot];
+		if (bossBar != null) {
+			sessions.bossBars[slot] = null;
+			output.removeBar(slot, bossBar);
+			activeBars--;
+			metrics.increment(PlaytimeMetrics.BOSS_BAR_UPDATES);
+			metrics.increment(PlaytimeMetrics.PACKETS_SENT);
+		}
+	}
+
+	/** Sends the title animation, title and subtitle together so the client applies them in one frame. */
+	void sendTitle(int slot, Component title, Component subtitle) {
+		output.sendTitle(slot, title, subtitle);
+		metrics.increment(PlaytimeMetrics.PACKETS_SENT);
+		metrics.add(PlaytimeMetrics.FLUSHES_SAVED, 2);
+	}
+
+	/** Number of boss bars currently shown. */
+	int activeBars() {
+		return activeBars;
+	}
+
+	/** Forgets all bars, for when the session store is cleared. */
+	void reset() {
+		activeBars = 0;
+	}
+}
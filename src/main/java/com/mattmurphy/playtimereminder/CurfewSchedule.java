@@ -0,0 +1,196 @@
+package com.mattmurphy.playtimereminder;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/**
+ * Curfew rules compiled into concrete windows for the next week, plus a sorted timeline of the instants at
+ * which something changes: each window's start and end, and a lead point before each start at which
+ * online players' deadlines are corrected before the countdown begins. Between transitions the tick path
+ * only compares the time with {@link #nextTransitionMillis()}. A curfew reaches players as a playtime
+ * limit, so it gets the usual 5m/1m/10s warnings, boss bar and kick.
+ */
+final class CurfewSchedule {
+	private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+	private static final int HORIZON_DAYS = 8;
+	// Deadlines are recomputed this long before a curfew, so tick drift is corrected before the countdown shows
+	private static final long LEAD_MILLIS = (PlaytimeCore.COUNTDOWN_SECONDS + 60) * 1000L;
+
+	private record Rule(Set<DayOfWeek> days, LocalTime start, LocalTime end, Set<String> profiles) {
+	}
+
+	private final List<Rule> rules = new ArrayList<>();
+	private final ZoneId zone;
+
+	// Windows in start order; rule indexes which rule each came from
+	private long[] starts = new long[0];
+	private long[] ends = new long[0];
+	private int[] rule = new int[0];
+	private long[] transitions = new long[0];
+	private int nextTransition;
+	private long rebuildMillis = Long.MAX_VALUE;
+
+	private CurfewSchedule(List<Config.Curfew> curfews, ZoneId zone, long nowMillis) {
+		this.zone = zone;
+		for (Config.Curfew curfew : curfews) {
+			Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+			if (curfew.days != null && !curfew.days.isEmpty()) {
+				days.clear();
+				for (String day : curfew.days) {
+					days.add(DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT)));
+				}
+			}
+			Set<String> profiles = curfew.profiles != null ? new HashSet<>(curfew.profiles) : null;
+			rules.add(new Rule(days, LocalTime.parse(curfew.start), LocalTime.parse(curfew.end), profiles));
+		}
+		build(nowMillis);
+	}
+
+	/** Compiles a validated snapshot's curfews in the given zone. */
+	static CurfewSchedule compile(List<Config.Curfew> curfews, ZoneId zone, long nowMillis) {
+		return new CurfewSchedule(curfews, zone, nowMillis);
+	}
+
+	/** No curfews, until the clock's zone is known. */
+	static CurfewSchedule none() {
+		return new CurfewSchedule(List.of(), ZoneOffset.UTC, 0);
+	}
+
+	/** The next instant at which a curfew starts, ends or is about to start; Long.MAX_VALUE with no curfews. */
+	long nextTransitionMillis() {
+		return nextTransition < transitions.length ? transitions[nextTransition] : Long.MAX_VALUE;
+	}
+
+	/** Moves past the transitions that are due, laying out the windows again once a day. */
+	void advance(long nowMillis) {
+		if (nowMillis >= rebuildMillis) {
+			build(nowMillis);
+			return;
+		}
+		while (nextTransition < transitions.length && transitions[nextTransition] <= nowMillis) {
+			nextTransition++;
+		}
+	}
+
+	/**
+	 * Start of the curfew in force or next to come for a policy profile; at or before {@code nowMillis}
+	 * while one is in force, Long.MAX_VALUE if none applies within the horizon.
+	 */
+	long nextStartMillis(String profile, long nowMillis) {
+		long earliest = Long.MAX_VALUE;
+		for (int i = 0; i < starts.length && starts[i] < earliest; i++) {
+			if (ends[i] > nowMillis && appliesTo(rule[i], profile)) {
+				earliest = starts[i];
+			}
+		}
+		return earliest;
+	}
+
+	boolean inCurfew(String profile, long nowMillis) {
+		return nextStartMillis(profile, nowMillis) <= nowMillis;
+	}
+
+	/** Config checks for the curfews, added to {@link ConfigService#validate}. */
+	static void validate(Config config, List<String> problems) {
+		for (int i = 0; i < config.curfews.size(); i++) {
+			Config.Curfew curfew = config.curfews.get(i);
+			if (curfew == null || curfew.start == null || curfew.end == null) {
+				problems.add("curfew " + (i + 1) + " needs start and end");
+				continue;
+			}
+			try {
+				if (LocalTime.parse(curfew.start).equals(LocalTime.parse(curfew.end))) {
+					problems.add("curfew " + (i + 1) + ": start and end must differ");
+				}
+			} catch (DateTimeParseException e) {
+				problems.add("curfew " + (i + 1) + ": start and end must be times like \"22:00\"");
+			}
+			if (curfew.days != null) {
+				for (String day : curfew.days) {
+					try {
+						DayOfWeek.valueOf(String.valueOf(day).toUpperCase(Locale.ROOT));
+					} catch (IllegalArgumentException e) {
+						problems.add("curfew " + (i + 1) + ": '" + day + "' is not a day of the week");
+					}
+				}
+			}
+			if (curfew.profiles != null) {
+				for (String profile : curfew.profiles) {
+					if (profile == null || !profile.equals(PlaytimePolicies.DEFAULT) && !config.policyProfiles.containsKey(profile)) {
+						problems.add("curfew " + (i + 1) + ": '" + profile + "' is not a known policy profile");
+					}
+				}
+			}
+		}
+	}
+
+	private boolean appliesTo(int index, String profile) {
+		Set<String> profiles = rules.get(index).profiles();
+		return profiles == null || profiles.contains(profile);
+	}
+
+	// Lays out every window that overlaps [now - 1 day, now + HORIZON_DAYS] and the transitions after now
+	private void build(long nowMillis) {
+		LocalDate today = Instant.ofEpochMilli(nowMillis).atZone(zone).toLocalDate();
+		List<long[]> windows = new ArrayList<>();
+		for (int r = 0; r < rules.size(); r++) {
+			Rule curfew = rules.get(r);
+			for (LocalDate day = today.minusDays(1); !day.isAfter(today.plusDays(HORIZON_DAYS)); day = day.plusDays(1)) {
+				if (!curfew.days().contains(day.getDayOfWeek())) {
+					continue;
+				}
+				long start = day.atTime(curfew.start()).atZone(zone).toInstant().toEpochMilli();
+				LocalDate endDay = curfew.end().isAfter(curfew.start()) ? day : day.plusDays(1);
+				long end = endDay.atTime(curfew.end()).atZone(zone).toInstant().toEpochMilli();
+				if (end > nowMillis) {
+					windows.add(new long[] {start, end, r});
+				}
+			}
+		}
+		windows.sort((a, b) -> Long.compare(a[0], b[0]));
+
+		starts = new long[windows.size()];
+		ends = new long[windows.size()];
+		rule = new int[windows.size()];
+		long[] points = new long[windows.size() * 3 + 1];
+		int count = 0;
+		for (int i = 0; i < windows.size(); i++) {
+			long[] window = windows.get(i);
+			starts[i] = window[0];
+			ends[i] = window[1];
+			rule[i] = (int) window[2];
+			count = addIfAfter(points, count, window[0] - LEAD_MILLIS, nowMillis);
+			count = addIfAfter(points, count, window[0], nowMillis);
+			count = addIfAfter(points, count, window[1], nowMillis);
+		}
+		// Rebuilt daily, long before the horizon runs out, so the next week's windows are always known
+		if (!rules.isEmpty()) {
+			rebuildMillis = nowMillis + DAY_MILLIS;
+			points[count++] = rebuildMillis;
+		}
+		transitions = Arrays.copyOf(points, count);
+		Arrays.sort(transitions);
+		nextTransition = 0;
+	}
+
+	private static int addIfAfter(long[] points, int count, long point, long nowMillis) {
+		if (point > nowMillis) {
+			points[count++] = point;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,138 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.Arrays;
+
+/**
+ * Min-heap of absolute tick deadlines keyed by session slot. Each slot has at most one pending
+ * deadline, so rescheduling a slot moves its existing heap entry instead of adding a second one.
+ */
+final class DeadlineScheduler {
+	private int[] heap = new int[64];
+	private long[] deadlines = new long[64]; // Indexed by slot
+	private int[] heapIndex = new int[64]; // Indexed by slot, -1 when not scheduled
+	private int size;
+
+	DeadlineScheduler() {
+		Arrays.fill(heapIndex, -1);
+	}
+
+	void schedule(int slot, long deadline) {
+		ensureSlotCapacity(slot);
+		int index = heapIndex[slot];
+		if (index < 0) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			deadlines[slot] = deadline;
+			heap[size] = slot;
+			heapIndex[slot] = size;
+			siftUp(size++);
+			return;
+		}
+
+		long previous = deadlines[slot];
+		deadlines[slot] = deadline;
+		if (deadline < previous) {
+			siftUp(index);
+		} else if (deadline > previous) {
+			siftDown(index);
+		}
+	}
+
+	void cancel(int slot) {
+		if (slot < heapIndex.length && heapIndex[slot] >= 0) {
+			removeAt(heapIndex[slot]);
+		}
+	}
+
+	boolean isScheduled(int slot) {
+		return slot < heapIndex.length && heapIndex[slot] >= 0;
+	}
+
+	/** Removes and returns the earliest slot whose deadline is at or before {@code now}, or -1 if nothing is due. */
+	int pollDue(long now) {
+		if (size == 0 || deadlines[heap[0]] > now) {
+			return -1;
+		}
+		int slot = heap[0];
+		removeAt(0);
+		return slot;
+	}
+
+	long peekDeadline() {
+		return size == 0 ? Long.MAX_VALUE : deadlines[heap[0]];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			heapIndex[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private void ensureSlotCapacity(int slot) {
+		if (slot < heapIndex.length) {
+			return;
+		}
+		int oldLength = heapIndex.length;
+		int newLength = Math.max(oldLength * 2, slot + 1);
+		deadlines = Arrays.copyOf(deadlines, newLength);
+		heapIndex = Arrays.copyOf(heapIndex, newLength);
+		Arrays.fill(heapIndex, oldLength, newLength, -1);
+	}
+
+	private void removeAt(int index) {
+		heapIndex[heap[index]] = -1;
+		int last = --size;
+		if (index != last) {
+			int moved = heap[last];
+			heap[index] = moved;
+			heapIndex[moved] = index;
+			siftDown(index);
+			siftUp(heapIndex[moved]);
+		}
+	}
+
+	private void siftUp(int index) {
+		int slot = heap[index];
+		long deadline = deadlines[slot];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			int p = heap[parent];
+			if (deadlines[p] <= deadline) {
+				break;
+			}
+			heap[index] = p;
+			heapIndex[p] = index;
+			index = parent;
+		}
+		heap[index] = slot;
+		heapIndex[slot] = index;
+	}
+
+	private void siftDown(int index) {
+		int slot = heap[index];
+		long deadline = deadlines[slot];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && deadlines[heap[right]] < deadlines[heap[child]]) {
+				child = right;
+			}
+			int c = heap[child];
+			if (deadline <= deadlines[c]) {
+				break;
+			}
+			heap[index] = c;
+			heapIndex[c] = index;
+			index = child;
+		}
+		heap[index] = slot;
+		heapIndex[slot] = index;
+	}
+}
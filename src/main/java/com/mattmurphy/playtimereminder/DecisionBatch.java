@@ -0,0 +1,107 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The due players of one tick, split into the two phases of a tick: the server thread copies each
+ * player's inputs in, {@link #decide} runs {@link PlaytimeCore#decide} over them, and the server thread
+ * then carries out the resulting actions. Deciding reads only the copied inputs, so it can be spread over
+ * a fork/join pool for large batches and still give exactly the decisions of the serial path, which
+ * uses the same arrays with one player at a time.
+ */
+final class DecisionBatch {
+	// Below this many players a batch is decided on the calling thread; above it, split into halves
+	private static final int LEAF_SIZE = 512;
+
+	int size;
+	int[] slots = new int[64];
+	PlaytimeCore[] cores = new PlaytimeCore[64];
+	long[] ticksPlayed = new long[64];
+	long[] previousTicksPlayed = new long[64];
+	int[] lastReminderMinute = new int[64];
+	int[] warnedFlags = new int[64];
+	boolean[] messagePending = new boolean[64];
+	long[] limitTicksPlayed = new long[64];
+	int[] actions = new int[64];
+
+	private ForkJoinPool pool;
+
+	void clear() {
+		Arrays.fill(cores, 0, size, null);
+		size = 0;
+	}
+
+	/** Makes room for one more player and returns its index; the caller fills in the inputs. */
+	int add(int slot) {
+		if (size == slots.length) {
+			int capacity = size * 2;
+			slots = Arrays.copyOf(slots, capacity);
+			cores = Arrays.copyOf(cores, capacity);
+			ticksPlayed = Arrays.copyOf(ticksPlayed, capacity);
+			previousTicksPlayed = Arrays.copyOf(previousTicksPlayed, capacity);
+			lastReminderMinute = Arrays.copyOf(lastReminderMinute, capacity);
+			warnedFlags = Arrays.copyOf(warnedFlags, capacity);
+			messagePending = Arrays.copyOf(messagePending, capacity);
+			limitTicksPlayed = Arrays.copyOf(limitTicksPlayed, capacity);
+			actions = Arrays.copyOf(actions, capacity);
+		}
+		slots[size] = slot;
+		return size++;
+	}
+
+	/** Fills in {@link #actions} for the whole batch, in parallel if asked to and the batch is big enough. */
+	void decide(boolean parallel) {
+		if (!parallel || size <= LEAF_SIZE) {
+			decide(0, size);
+			return;
+		}
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), p -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setName("PlaytimeReminder-Decide-" + thread.getPoolIndex());
+				thread.setDaemon(true);
+				return thread;
+			}, null, false);
+		}
+		// invoke() waits for the whole batch, which also publishes the workers' writes to this thread
+		pool.invoke(new Split(0, size));
+	}
+
+	void close() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	private void decide(int from, int to) {
+		for (int i = from; i < to; i++) {
+			actions[i] = cores[i].decide(ticksPlayed[i], previousTicksPlayed[i], lastReminderMinute[i], warnedFlags[i], messagePending[i], limitTicksPlayed[i]);
+		}
+	}
+
+	private final class Split extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		Split(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= LEAF_SIZE) {
+				decide(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Split(from, mid), new Split(mid, to));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+
+/**
+ * A config message parsed once into literal text and placeholders ({@code {minutes}}, {@code {time}} as
+ * m:ss, {@code {daily}}). Rendered components are kept in a small direct-mapped cache keyed by the
+ * placeholder values, so players who share a countdown second or a minute count share one
+ * {@link Component}. A template with one placeholder indexes the cache by its value, so a run of
+ * consecutive values, like the seconds of a countdown, never evicts itself; other keys go through a
+ * multiplicative hash. Components handed out must not be modified.
+ *
+ * <p>{@code {{}} stands for a literal brace; operator text goes through {@link #escape} so it is never
+ * read as a placeholder.
+ */
+final class MessageTemplate {
+	static final String MINUTES = "{minutes}";
+	static final String TIME = "{time}";
+	static final String DAILY = "{daily}";
+	private static final String ESCAPED_BRACE = "{{";
+
+	private static final int KIND_MINUTES = 0;
+	private static final int KIND_TIME = 1;
+	private static final int KIND_DAILY = 2;
+	private static final int VALUE_BITS = 21;
+	private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+	private final String[] literals; // literals[i] comes before placeholders[i]; the last literal closes the text
+	private final int[] placeholders;
+	private final ChatFormatting[] style;
+	private final boolean usesMinutes;
+	private final boolean usesTime;
+	private final boolean usesDaily;
+
+	private final long[] cacheKeys;
+	private final Component[] cacheValues;
+	private final int cacheMask;
+	private final int cacheBits;
+	private final int keyShift; // Position of the only placeholder's value in the key, or -1 with several
+
+	MessageTemplate(String pattern, int cacheSize, ChatFormatting... style) {
+		List<String> literalList = new ArrayList<>();
+		List<Integer> placeholderList = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while (i < pattern.length()) {
+			if (pattern.startsWith(ESCAPED_BRACE, i)) {
+				literal.append('{');
+				i += ESCAPED_BRACE.length();
+				continue;
+			}
+			int kind = pattern.startsWith(MINUTES, i) ? KIND_MINUTES
+				: pattern.startsWith(TIME, i) ? KIND_TIME
+				: pattern.startsWith(DAILY, i) ? KIND_DAILY
+				: -1;
+			if (kind < 0) {
+				literal.append(pattern.charAt(i++));
+				continue;
+			}
+			literalList.add(literal.toString());
+			literal.setLength(0);
+			placeholderList.add(kind);
+			i += kind == KIND_MINUTES ? MINUTES.length() : kind == KIND_TIME ? TIME.length() : DAILY.length();
+		}
+		literalList.add(literal.toString());
+
+		this.literals = literalList.toArray(new String[0]);
+		this.placeholders = placeholderList.stream().mapToInt(Integer::intValue).toArray();
+		this.style = style;
+		this.usesMinutes = placeholderList.contains(KIND_MINUTES);
+		this.usesTime = placeholderList.contains(KIND_TIME);
+		this.usesDaily = placeholderList.contains(KIND_DAILY);
+
+		int size = Integer.highestOneBit(Math.max(1, cacheSize - 1)) << 1;
+		this.cacheKeys = new long[size];
+		this.cacheValues = new Component[size];
+		this.cacheMask = size - 1;
+		this.cacheBits = Integer.numberOfTrailingZeros(size);
+		int used = (usesMinutes ? 1 : 0) + (usesTime ? 1 : 0) + (usesDaily ? 1 : 0);
+		this.keyShift = used != 1 ? -1 : usesMinutes ? 0 : usesTime ? VALUE_BITS : 2 * VALUE_BITS;
+		Arrays.fill(cacheKeys, -1L);
+	}
+
+	/** Makes {@code text} render as-is, even if it contains something that looks like a placeholder. */
+	static String escape(String text) {
+		return text.replace("{", ESCAPED_BRACE);
+	}
+
+	/**
+	 * Converts a legacy {@code String.format} pattern into the {@code {time}} form. Only a single
+	 * {@code %s} and {@code %%} are understood; anything else throws {@link IllegalArgumentException}.
+	 */
+	static String fromFormat(String format) {
+		StringBuilder pattern = new StringBuilder(format.length() + 8);
+		int times = 0;
+		for (int i = 0; i < format.length(); i++) {
+			char c = format.charAt(i);
+			if (c != '%') {
+				pattern.append(c == '{' ? ESCAPED_BRACE : String.valueOf(c));
+				continue;
+			}
+			char conversion = ++i < format.length() ? format.charAt(i) : 0;
+			if (conversion == '%') {
+				pattern.append('%');
+			} else if (conversion == 's') {
+				pattern.append(TIME);
+				times++;
+			} else {
+				throw new IllegalArgumentException("only %s and %% are supported, found " + format.substring(i - 1, Math.min(i + 1, format.length())));
+			}
+		}
+		if (times != 1) {
+			throw new IllegalArgumentException("expected exactly one %s for the time, found " + times);
+		}
+		return pattern.toString();
+	}
+
+	/** Renders with the given values; placeholders the template does not use are ignored. */
+	Component render(int minutes, int secondsRemaining, int dailyMinutes) {
+		long key = (usesMinutes ? minutes & VALUE_MASK : 0)
+			| (usesTime ? (secondsRemaining & VALUE_MASK) << VALUE_BITS : 0)
+			| (usesDaily ? (dailyMinutes & VALUE_MASK) << (2 * VALUE_BITS) : 0);
+		int index = keyShift >= 0
+			? (int) (key >>> keyShift) & cacheMask
+			: (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - cacheBits));
+		if (cacheKeys[index] == key) {
+			return cacheValues[index];
+		}
+		Component rendered = Component.literal(format(minutes, secondsRemaining, dailyMinutes)).withStyle(style);
+		cacheKeys[index] = key;
+		cacheValues[index] = rendered;
+		return rendered;
+	}
+
+	String format(int minutes, int secondsRemaining, int dailyMinutes) {
+		StringBuilder out = new StringBuilder(64);
+		for (int i = 0; i < placeholders.length; i++) {
+			out.append(literals[i]);
+			switch (placeholders[i]) {
+				case KIND_MINUTES -> out.append(minutes);
+				case KIND_DAILY -> out.append(dailyMinutes);
+				default -> {
+					int seconds = secondsRemaining % 60;
+					out.append(secondsRemaining / 60).append(':');
+					if (seconds < 10) {
+						out.append('0');
+					}
+					out.append(seconds);
+				}
+			}
+		}
+		return out.append(literals[placeholders.length]).toString();
+	}
+}
@@ -0,0 +1,38 @@
+package com.mattmurphy.playtimereminder;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/** Every player-facing message of one config snapshot, compiled once when the snapshot goes live. */
+final class MessageTemplates {
+	private static final String DAILY_SUFFIX = " (Total today: " + MessageTemplate.DAILY + "m)";
+
+	final MessageTemplate regular;
+	final MessageTemplate strong;
+	final MessageTemplate warning5min;
+	final MessageTemplate warning1min;
+	final MessageTemplate warning10s;
+	final MessageTemplate bossBarTitle;
+
+	// Title/subtitle texts have no placeholders, so one component each is enough
+	final Component titleText;
+	final Component subtitle1min;
+	final Component subtitle10s;
+
+	MessageTemplates(Config config) {
+		// Operator text is escaped, so only the placeholders added here are ever substituted
+		regular = new MessageTemplate(MessageTemplate.escape(config.regularMessagePrefix) + MessageTemplate.MINUTES + MessageTemplate.escape(config.regularMessageSuffix) + DAILY_SUFFIX, 256);
+		strong = new MessageTemplate(MessageTemplate.escape(config.strongMessagePrefix) + MessageTemplate.MINUTES + MessageTemplate.escape(config.strongMessageSuffix), 64);
+		warning5min = new MessageTemplate(MessageTemplate.escape(config.warningMessage5min) + DAILY_SUFFIX, 64, ChatFormatting.RED);
+		warning1min = new MessageTemplate(MessageTemplate.escape(config.warningMessage1min) + DAILY_SUFFIX, 64, ChatFormatting.RED);
+		warning10s = new MessageTemplate(MessageTemplate.escape(config.warningMessage10s) + DAILY_SUFFIX, 64, ChatFormatting.RED);
+		// Sized for every label of the 5-minute countdown (0:00 to 5:00)
+		bossBarTitle = new MessageTemplate(MessageTemplate.fromFormat(config.bossBarTitle), 512);
+
+		titleText = Component.literal("BREAK REMINDER").withStyle(ChatFormatting.RED, ChatFormatting.BOLD);
+		subtitle1min = Component.literal(config.warningMessage1min).withStyle(ChatFormatting.YELLOW);
+		subtitle10s = Component.literal(config.warningMessage10s).withStyle(ChatFormatting.YELLOW);
+	}
+}
@@ -0,0 +1,117 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publishes {@link PlaytimeMetrics} in Prometheus text format, either by rewriting a file every few
+ * seconds (for node_exporter's textfile collector) or from an HTTP endpoint bound to localhost. All
+ * work happens on the exporter's own daemon thread.
+ */
+final class MetricsExporter {
+	private static final long FILE_INTERVAL_SECONDS = 15;
+
+	private final PlaytimeMetrics metrics;
+	private final ScheduledExecutorService io;
+
+	private String file = "";
+	private int port;
+	private ScheduledFuture<?> fileTask;
+	private HttpServer http;
+
+	MetricsExporter(PlaytimeMetrics metrics) {
+		this.metrics = metrics;
+		this.io = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "PlaytimeReminder-Metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** Starts, stops or moves the exports to match the config; unchanged settings are left running. */
+	synchronized void configure(String metricsFile, int metricsPort) {
+		if (!metricsFile.equals(file)) {
+			stopFile();
+			file = metricsFile;
+			if (!file.isBlank()) {
+				Path path = Paths.get(file);
+				fileTask = io.scheduleWithFixedDelay(() -> writeFile(path), 0, FILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+			}
+		}
+		if (metricsPort != port) {
+			stopHttp();
+			port = metricsPort;
+			if (port > 0) {
+				startHttp();
+			}
+		}
+	}
+
+	synchronized void close() {
+		stopFile();
+		stopHttp();
+		file = "";
+		port = 0;
+		io.shutdown();
+	}
+
+	private void startHttp() {
+		try {
+			http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+			return;
+		}
+		http.setExecutor(io);
+		http.createContext("/metrics", exchange -> {
+			byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		http.start();
+		System.out.println("[PlaytimeReminder] Serving metrics on http://localhost:" + port + "/metrics");
+	}
+
+	private void stopHttp() {
+		if (http != null) {
+			http.stop(0);
+			http = null;
+		}
+	}
+
+	private void stopFile() {
+		if (fileTask != null) {
+			fileTask.cancel(false);
+			fileTask = null;
+		}
+	}
+
+	private void writeFile(Path path) {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			Files.writeString(tmp, metrics.toPrometheus(), StandardCharsets.UTF_8);
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Error writing metrics file: " + e.getMessage());
+		}
+	}
+}
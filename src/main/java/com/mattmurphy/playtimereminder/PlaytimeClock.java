@@ -0,0 +1,142 @@
+package com.mattmurphy.playtimereminder;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * The mod's notion of time. Playtime is measured on a session timeline in 1/20 s units that either
+ * follows server ticks or, in wall-clock mode, monotonic {@code nanoTime} so that lag or a changed
+ * tick rate does not stretch a session. The next local midnight is precomputed so the per-tick day
+ * rollover check is one comparison. All readings come from an injectable {@link TimeSource}.
+ */
+final class PlaytimeClock {
+	static final long NANOS_PER_TICK = 50_000_000L;
+
+	interface TimeSource {
+		long nanoTime();
+
+		long currentTimeMillis();
+	}
+
+	static final TimeSource SYSTEM = new TimeSource() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	enum Accounting {
+		TICKS,
+		WALL_CLOCK;
+
+		static Accounting parse(String value) {
+			return "wallclock".equalsIgnoreCase(value) || "wall_clock".equalsIgnoreCase(value) ? WALL_CLOCK : TICKS;
+		}
+	}
+
+	private final TimeSource source;
+	private Accounting accounting = Accounting.TICKS;
+	private ZoneId zone = ZoneId.systemDefault();
+
+	private long serverTicks;
+	private long now; // Session timeline position for the current tick
+
+	// The timeline continues from baseTicks when the accounting mode changes
+	private long baseTicks;
+	private long serverTicksAtBase;
+	private long nanosAtBase;
+
+	private long nextMidnightMillis;
+
+	PlaytimeClock(TimeSource source) {
+		this.source = source;
+	}
+
+	/** Restarts the session timeline at zero. */
+	void reset(Accounting accounting, ZoneId zone) {
+		this.accounting = accounting;
+		this.zone = zone;
+		serverTicks = 0;
+		now = 0;
+		rebase();
+		nextMidnightMillis = nextMidnight(source.currentTimeMillis(), zone);
+	}
+
+	/** Applies new settings without a jump in the session timeline. */
+	void configure(Accounting accounting, ZoneId zone) {
+		if (accounting != this.accounting) {
+			this.accounting = accounting;
+			rebase();
+		}
+		if (!zone.equals(this.zone)) {
+			this.zone = zone;
+			nextMidnightMillis = nextMidnight(source.currentTimeMillis(), zone);
+		}
+	}
+
+	/** Advances by one server tick. Returns true when local midnight has passed since the previous tick. */
+	boolean tick() {
+		serverTicks++;
+		if (accounting == Accounting.TICKS) {
+			now = baseTicks + (serverTicks - serverTicksAtBase);
+		} else {
+			now = Math.max(now, baseTicks + (source.nanoTime() - nanosAtBase) / NANOS_PER_TICK);
+		}
+
+		long millis = source.currentTimeMillis();
+		if (millis < nextMidnightMillis) {
+			return false;
+		}
+		nextMidnightMillis = nextMidnight(millis, zone);
+		return true;
+	}
+
+	long now() {
+		return now;
+	}
+
+	/** Server ticks since the last reset, regardless of accounting mode. */
+	long serverTicks() {
+		return serverTicks;
+	}
+
+	long currentTimeMillis() {
+		return source.currentTimeMillis();
+	}
+
+	ZoneId zone() {
+		return zone;
+	}
+
+	long nextMidnightMillis() {
+		return nextMidnightMillis;
+	}
+
+	private void rebase() {
+		baseTicks = now;
+		serverTicksAtBase = serverTicks;
+		nanosAtBase = source.nanoTime();
+	}
+
+	static long nextMidnight(long millis, ZoneId zone) {
+		return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+	}
+
+	static ZoneId parseZone(String value) {
+		if (value == null || value.isBlank()) {
+			return ZoneId.systemDefault();
+		}
+		try {
+			return ZoneId.of(value);
+		} catch (DateTimeException e) {
+			System.err.println("[PlaytimeReminder] Unknown timeZone '" + value + "', using system default");
+			return ZoneId.systemDefault();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.mattmurphy.playtimereminder;
+
+/**
+ * Reminder, warning and kick decisions for one set of limits, as pure functions of a player's session
+ * numbers. Nothing here touches Minecraft types, so the whole tick path can be driven and measured
+ * headless. Tick values are on the session timeline (1/20 s).
+ */
+final class PlaytimeCore {
+	static final int TICKS_PER_MINUTE = 20 * 60;
+	static final int COUNTDOWN_SECONDS = 300;
+	// The boss bar shows while at most 300 whole seconds remain, i.e. from 6019 ticks before the kick.
+	static final long COUNTDOWN_WINDOW_TICKS = (COUNTDOWN_SECONDS + 1) * 20L - 1;
+
+	// Warning flags a player has already received in the current interval
+	static final int WARNED_5MIN = 1;
+	static final int WARNED_1MIN = 1 << 1;
+	static final int WARNED_10S = 1 << 2;
+
+	// Decision bits returned by decide()
+	static final int KICK = 1;
+	static final int REMINDER = 1 << 1;
+	static final int SHOW_BAR = 1 << 2;
+	static final int HIDE_BAR = 1 << 3;
+	static final int WARN_5MIN = 1 << 4;
+	static final int WARN_1MIN = 1 << 5;
+	static final int WARN_10S = 1 << 6;
+	static final int LIMIT = 1 << 7; // Set with KICK when a daily/weekly/monthly limit was reached
+
+	/** Passed as {@code limitTicksPlayed} when no playtime limit applies. */
+	static final long NO_LIMIT = Long.MAX_VALUE;
+
+	final int reminderIntervalMinutes;
+	final int strongReminderThresholdMinutes;
+	final long strongReminderThresholdTicks;
+	final long strongReminderRepeatTicks;
+	final long breakMillis;
+
+	PlaytimeCore(int reminderIntervalMinutes, int strongReminderThresholdMinutes, int strongReminderRepeatMinutes, int breakDurationMinutes) {
+		this.reminderIntervalMinutes = reminderIntervalMinutes;
+		this.strongReminderThresholdMinutes = strongReminderThresholdMinutes;
+		this.strongReminderThresholdTicks = (long) strongReminderThresholdMinutes * TICKS_PER_MINUTE;
+		this.strongReminderRepeatTicks = (long) strongReminderRepeatMinutes * TICKS_PER_MINUTE;
+		this.breakMillis = (long) breakDurationMinutes * 60 * 1000;
+	}
+
+	/** Returns the first kick tick strictly after {@code ticksPlayed}. */
+	long nextKickTick(long ticksPlayed) {
+		if (ticksPlayed < strongReminderThresholdTicks) {
+			// Case 1: Approaching the first kick
+			return strongReminderThresholdTicks;
+		}
+		// Case 2: After the first kick, calculating the next repeat kick
+		long ticksOverThreshold = ticksPlayed - strongReminderThresholdTicks;
+		long repeats = ticksOverThreshold / strongReminderRepeatTicks;
+		long lastKickTick = strongReminderThresholdTicks + repeats * strongReminderRepeatTicks;
+		return lastKickTick + strongReminderRepeatTicks;
+	}
+
+	static int minutesPlayed(long ticksPlayed) {
+		return Math.max(0, (int) (ticksPlayed / TICKS_PER_MINUTE));
+	}
+
+	/**
+	 * The next kick counting a playtime limit: {@code limitTicksPlayed} is the session tick at which the
+	 * player's tightest daily/weekly/monthly limit runs out, or {@link #NO_LIMIT}.
+	 */
+	long nextKickTick(long ticksPlayed, long limitTicksPlayed) {
+		return Math.min(nextKickTick(ticksPlayed), limitTicksPlayed);
+	}
+
+	long secondsUntilKick(long ticksPlayed) {
+		return secondsUntilKick(ticksPlayed, NO_LIMIT);
+	}
+
+	long secondsUntilKick(long ticksPlayed, long limitTicksPlayed) {
+		return (nextKickTick(ticksPlayed, limitTicksPlayed) - ticksPlayed) / 20;
+	}
+
+	/**
+	 * Returns the next session tick after {@code ticksPlayed} at which {@link #decide} can return anything new:
+	 * a regular reminder minute, the start of the countdown window, a boss bar second boundary, or the kick.
+	 */
+	long nextDueTicksPlayed(long ticksPlayed) {
+		return nextDueTicksPlayed(ticksPlayed, NO_LIMIT);
+	}
+
+	long nextDueTicksPlayed(long ticksPlayed, long limitTicksPlayed) {
+		long nextKickTick = nextKickTick(ticksPlayed, limitTicksPlayed);
+		long next = nextKickTick;
+
+		long windowStartTick = nextKickTick - COUNTDOWN_WINDOW_TICKS;
+		if (ticksPlayed < windowStartTick) {
+			next = windowStartTick;
+		} else {
+			// Inside the window the whole-second countdown drops whenever ticksUntilKick hits 20n + 19.
+			long ticksUntilKickNextTick = nextKickTick - ticksPlayed - 1;
+			if (ticksUntilKickNextTick >= 19) {
+				long boundary = ticksUntilKickNextTick - (ticksUntilKickNextTick - 19) % 20;
+				next = nextKickTick - boundary;
+			}
+		}
+
+		long nextReminderMinute = (ticksPlayed / TICKS_PER_MINUTE / reminderIntervalMinutes + 1) * reminderIntervalMinutes;
+		if (nextReminderMinute < strongReminderThresholdMinutes) {
+			next = Math.min(next, nextReminderMinute * TICKS_PER_MINUTE);
+		}
+		return next;
+	}
+
+	/**
+	 * Decides what a player is owed now.
+	 *
+	 * @param previousTicksPlayed ticks played when the player was last looked at; a slot can be looked at
+	 *        after its deadline, so kicks and reminders fire when their boundary lies in between
+	 * @param warnedFlags the {@code WARNED_*} bits already sent this interval
+	 * @param messagePending whether the delayed join message is still waiting, which holds back warnings
+	 */
+	int decide(long ticksPlayed, long previousTicksPlayed, int lastReminderMinute, int warnedFlags, boolean messagePending) {
+		return decide(ticksPlayed, previousTicksPlayed, lastReminderMinute, warnedFlags, messagePending, NO_LIMIT);
+	}
+
+	/** As {@link #decide(long, long, int, int, boolean)}, with a playtime limit counted as a kick. */
+	int decide(long ticksPlayed, long previousTicksPlayed, int lastReminderMinute, int warnedFlags, boolean messagePending, long limitTicksPlayed) {
+		// 1. Kick Check: a scheduled kick time (threshold or a multiple of repeat interval after it) or a limit was reached.
+		if (limitTicksPlayed <= ticksPlayed) {
+			return KICK | LIMIT;
+		}
+		if (nextKickTick(previousTicksPlayed) <= ticksPlayed) {
+			return KICK;
+		}
+
+		// 2. Warning Logic: Determine the next scheduled kick time for warnings.
+		long secondsUntilKick = secondsUntilKick(ticksPlayed, limitTicksPlayed);
+		int minutesPlayed = minutesPlayed(ticksPlayed);
+		int actions = 0;
+
+		// Regular reminders (once per minute), unless the countdown has started
+		boolean crossedMinute = ticksPlayed / TICKS_PER_MINUTE > previousTicksPlayed / TICKS_PER_MINUTE;
+		if (crossedMinute && minutesPlayed > 0 && minutesPlayed < strongReminderThresholdMinutes && minutesPlayed % reminderIntervalMinutes == 0
+			&& minutesPlayed != lastReminderMinute && secondsUntilKick > COUNTDOWN_SECONDS) {
+			actions |= REMINDER;
+		}
+
+		// Boss bar while the kick is 5 minutes or less away
+		actions |= secondsUntilKick <= COUNTDOWN_SECONDS && secondsUntilKick > 0 ? SHOW_BAR : HIDE_BAR;
+
+		if (!messagePending) {
+			// Only send 5-min warning if kick is scheduled for 5 minutes or less, AND more than 1 minute away.
+			if (secondsUntilKick <= 300 && secondsUntilKick > 60 && (warnedFlags & WARNED_5MIN) == 0) {
+				actions |= WARN_5MIN;
+			}
+			if (secondsUntilKick <= 60 && secondsUntilKick > 10 && (warnedFlags & WARNED_1MIN) == 0) {
+				actions |= WARN_1MIN;
+			}
+			if (secondsUntilKick <= 10 && (warnedFlags & WARNED_10S) == 0) {
+				actions |= WARN_10S;
+			}
+		}
+		return actions;
+	}
+
+	/**
+	 * Break-restore math for a rejoin: returns the ticks played to carry into the new session, which is
+	 * zero when the break was long enough or nothing was saved.
+	 */
+	long restoredTicksPlayed(long disconnectMillis, long nowMillis, boolean hasSavedPlaytime, long savedTicksPlayed) {
+		if (breakTaken(disconnectMillis, nowMillis) || !hasSavedPlaytime) {
+			return 0;
+		}
+		return savedTicksPlayed;
+	}
+
+	boolean breakTaken(long disconnectMillis, long nowMillis) {
+		return nowMillis - disconnectMillis >= breakMillis;
+	}
+
+	/** Whole minutes (rounded up) from {@code ticksPlayed} to the next kick, for the rejoin message. */
+	long minutesUntilKick(long ticksPlayed) {
+		long ticksUntilKick = nextKickTick(ticksPlayed) - ticksPlayed;
+		return (ticksUntilKick + TICKS_PER_MINUTE - 1) / TICKS_PER_MINUTE;
+	}
+}
@@ -0,0 +1,273 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Minutes played per player over the last 31 days in two tiers of one-byte buckets: 5-minute buckets
+ * for the last 48 hours and hourly buckets for the whole window. That is 576 + 744 bytes of buckets,
+ * 1360 bytes per player with the header and last known name, or about 136 MB for 100k players. Each
+ * tier is a ring indexed by absolute bucket number, so adding time is O(1) and old buckets are zeroed
+ * as the rings move forward. The records live in a memory-mapped file, so the history survives
+ * restarts without a separate save step; players not seen for longer than the window are dropped when
+ * the file is opened.
+ *
+ * <p>Minutes go into both tiers. A range is summed from the hourly tier up to the first whole hour the
+ * 5-minute tier holds, and from the 5-minute tier after that. 5-minute boundaries fall on multiples of
+ * 5 minutes since the epoch and every time zone offset is a multiple of 15 minutes, so the current day,
+ * which began less than 48 hours ago, is exact in any zone. Older boundaries are rounded down to the
+ * hour; in zones whose offset is not a whole number of hours, e.g. +5:30, a week or month start more
+ * than two days back can move up to 45 minutes. Server thread only.
+ */
+final class PlaytimeHistory {
+	static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+	static final long HOUR_MILLIS = 60 * 60 * 1000L;
+	static final int FINE_BUCKETS = 48 * 12; // 5-minute buckets, the last 48 hours
+	static final int HOUR_BUCKETS = 31 * 24; // Hourly buckets, the whole window
+	static final int BUCKETS = FINE_BUCKETS + HOUR_BUCKETS; // Bucket bytes per record, 5-minute tier first
+	static final int NO_RECORD = -1;
+
+	private static final int BUCKETS_PER_HOUR = (int) (HOUR_MILLIS / BUCKET_MILLIS);
+	private static final int WINDOW_BUCKETS = HOUR_BUCKETS * BUCKETS_PER_HOUR; // The window in 5-minute buckets
+	private static final int MAGIC = 0x50544853; // "PTHS"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int NAME_BYTES = 16; // Player names are at most 16 ASCII characters
+	private static final int RECORD_HEADER_BYTES = 24 + NAME_BYTES; // uuid, newest bucket number, name
+	private static final int RECORD_BYTES = RECORD_HEADER_BYTES + BUCKETS;
+	private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+	private final Path file;
+	private final Map<UUID, Integer> records = new HashMap<>();
+	private final Map<String, UUID> idsByName = new HashMap<>(); // Lower-case name -> id
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	private int count;
+	private int capacity;
+
+	PlaytimeHistory(Path dir) {
+		this.file = dir.resolve("history.bin");
+	}
+
+	/** Maps the history file, dropping players whose newest bucket is older than the window. */
+	void open(long nowMillis) throws IOException {
+		Files.createDirectories(file.getParent());
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		records.clear();
+		idsByName.clear();
+		count = 0;
+
+		long size = channel.size();
+		int stored = 0;
+		if (size >= HEADER_BYTES) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			channel.read(header, 0);
+			header.flip();
+			if (header.getInt() == MAGIC && header.getInt() == VERSION) {
+				stored = (int) Math.min(header.getInt(), (size - HEADER_BYTES) / RECORD_BYTES);
+			} else {
+				System.err.println("[PlaytimeReminder] Ignoring unrecognised playtime history " + file);
+			}
+		}
+
+		remap(Math.max(1024, stored));
+		long oldestKept = nowMillis / BUCKET_MILLIS - WINDOW_BUCKETS;
+		byte[] record = new byte[RECORD_BYTES];
+		for (int i = 0; i < stored; i++) {
+			map.get(offset(i), record);
+			ByteBuffer view = ByteBuffer.wrap(record);
+			if (view.getLong(16) <= oldestKept) {
+				continue;
+			}
+			map.put(offset(count), record);
+			index(count++);
+		}
+		map.putInt(8, count);
+	}
+
+	private void index(int record) {
+		UUID id = id(record);
+		records.put(id, record);
+		String name = name(record);
+		if (!name.isEmpty()) {
+			idsByName.put(name.toLowerCase(Locale.ROOT), id);
+		}
+	}
+
+	void close() {
+		if (map != null) {
+			map.force();
+			map = null;
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// Nothing left to do
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * Returns the player's record, creating an empty one if needed, and stores their current name;
+	 * {@link #NO_RECORD} if the file is full.
+	 */
+	int recordOf(UUID id, String name, long nowMillis) {
+		Integer existing = records.get(id);
+		if (existing != null) {
+			setName(existing, id, name);
+			return existing;
+		}
+		if (count == capacity) {
+			if (capacity == MAX_RECORDS) {
+				return NO_RECORD;
+			}
+			try {
+				remap((int) Math.min(MAX_RECORDS, capacity * 2L));
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Could not grow playtime history: " + e.getMessage());
+				return NO_RECORD;
+			}
+		}
+		int record = count++;
+		int base = offset(record);
+		map.putLong(base, id.getMostSignificantBits());
+		map.putLong(base + 8, id.getLeastSignificantBits());
+		map.putLong(base + 16, nowMillis / BUCKET_MILLIS);
+		for (int i = 0; i < BUCKETS; i++) {
+			map.put(base + RECORD_HEADER_BYTES + i, (byte) 0);
+		}
+		map.putInt(8, count);
+		records.put(id, record);
+		setName(record, id, name);
+		return record;
+	}
+
+	/** The player's record, or {@link #NO_RECORD} if they have no history. */
+	int find(UUID id) {
+		Integer record = records.get(id);
+		return record != null ? record : NO_RECORD;
+	}
+
+	/** Looks up a player with history by their last known name, ignoring case; null if unknown. */
+	UUID idOf(String name) {
+		return idsByName.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	UUID id(int record) {
+		int base = offset(record);
+		return new UUID(map.getLong(base), map.getLong(base + 8));
+	}
+
+	String name(int record) {
+		int base = offset(record) + 24;
+		int length = 0;
+		while (length < NAME_BYTES && map.get(base + length) != 0) {
+			length++;
+		}
+		byte[] bytes = new byte[length];
+		map.get(base, bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	/** Copies a record's buckets into {@code into} (length {@link #BUCKETS}) and returns its newest bucket number. */
+	long copyBuckets(int record, byte[] into) {
+		int base = offset(record);
+		map.get(base + RECORD_HEADER_BYTES, into);
+		return map.getLong(base + 16);
+	}
+
+	/** Minutes in copied buckets between two instants, each rounded down to a bucket of the tier it falls in. */
+	static int minutesBetween(byte[] buckets, long newestBucket, long fromMillis, long toMillis) {
+		return minutesBetween(ByteBuffer.wrap(buckets), 0, newestBucket, fromMillis, toMillis);
+	}
+
+	/** Adds minutes to the buckets holding {@code nowMillis}. */
+	void add(int record, long nowMillis, int minutes) {
+		int base = offset(record);
+		long bucket = advance(base, nowMillis / BUCKET_MILLIS);
+		int fine = base + RECORD_HEADER_BYTES + (int) (bucket % FINE_BUCKETS);
+		map.put(fine, (byte) Math.min(255, (map.get(fine) & 0xFF) + minutes));
+		int hour = base + RECORD_HEADER_BYTES + FINE_BUCKETS + (int) (bucket / BUCKETS_PER_HOUR % HOUR_BUCKETS);
+		map.put(hour, (byte) Math.min(255, (map.get(hour) & 0xFF) + minutes));
+	}
+
+	/** Minutes played from {@code fromMillis} (rounded down to a bucket) up to now. */
+	int minutesSince(int record, long fromMillis, long nowMillis) {
+		int base = offset(record);
+		return minutesBetween(map, base + RECORD_HEADER_BYTES, map.getLong(base + 16), fromMillis, (nowMillis / BUCKET_MILLIS + 1) * BUCKET_MILLIS);
+	}
+
+	// Hourly buckets up to the first whole hour in the 5-minute tier, then 5-minute buckets; at is the first bucket byte
+	private static int minutesBetween(ByteBuffer buckets, int at, long newest, long fromMillis, long toMillis) {
+		long fineStart = (newest - FINE_BUCKETS + BUCKETS_PER_HOUR) / BUCKETS_PER_HOUR * BUCKETS_PER_HOUR;
+		int minutes = 0;
+		long firstHour = Math.max(fromMillis / HOUR_MILLIS, newest / BUCKETS_PER_HOUR - HOUR_BUCKETS + 1);
+		long endHour = Math.min(toMillis, fineStart * BUCKET_MILLIS) / HOUR_MILLIS;
+		for (long hour = firstHour; hour < endHour; hour++) {
+			minutes += buckets.get(at + FINE_BUCKETS + (int) (hour % HOUR_BUCKETS)) & 0xFF;
+		}
+		long first = Math.max(fromMillis / BUCKET_MILLIS, fineStart);
+		long end = Math.min(toMillis / BUCKET_MILLIS, newest + 1);
+		for (long bucket = first; bucket < end; bucket++) {
+			minutes += buckets.get(at + (int) (bucket % FINE_BUCKETS)) & 0xFF;
+		}
+		return minutes;
+	}
+
+	int size() {
+		return count;
+	}
+
+	// The last known name, so that players can be named and looked up while offline
+	private void setName(int record, UUID id, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+		int base = offset(record) + 24;
+		for (int i = 0; i < NAME_BYTES; i++) {
+			map.put(base + i, i < bytes.length ? bytes[i] : 0);
+		}
+		idsByName.put(name.toLowerCase(Locale.ROOT), id);
+	}
+
+	// Moves both rings forward to the given bucket, zeroing the buckets they pass over
+	private long advance(int base, long bucket) {
+		long newest = map.getLong(base + 16);
+		if (bucket <= newest) {
+			return newest;
+		}
+		int fine = base + RECORD_HEADER_BYTES;
+		for (long b = Math.max(newest + 1, bucket - FINE_BUCKETS + 1); b <= bucket; b++) {
+			map.put(fine + (int) (b % FINE_BUCKETS), (byte) 0);
+		}
+		long newestHour = newest / BUCKETS_PER_HOUR;
+		long hour = bucket / BUCKETS_PER_HOUR;
+		for (long h = Math.max(newestHour + 1, hour - HOUR_BUCKETS + 1); h <= hour; h++) {
+			map.put(fine + FINE_BUCKETS + (int) (h % HOUR_BUCKETS), (byte) 0);
+		}
+		map.putLong(base + 16, bucket);
+		return bucket;
+	}
+
+	private void remap(int records) throws IOException {
+		capacity = records;
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+		map.putInt(0, MAGIC);
+		map.putInt(4, VERSION);
+		map.putInt(8, count);
+	}
+
+	private static int offset(int record) {
+		return HEADER_BYTES + record * RECORD_BYTES;
+	}
+}
@@ -0,0 +1,201 @@
+package com.mattmurphy.playtimereminder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters, gauges and a tick-cost histogram for the mod. Everything is written by the server thread
+ * only, as plain loads and ordered stores into preallocated {@link AtomicLongArray}s, so recording takes
+ * no lock and allocates nothing; readers on other threads (commands, the exporter) see values that are
+ * at most one store behind.
+ */
+final class PlaytimeMetrics {
+	// Counters
+	static final int REMINDERS = 0;
+	static final int WARNINGS_5MIN = 1;
+	static final int WARNINGS_1MIN = 2;
+	static final int WARNINGS_10S = 3;
+	static final int KICKS = 4;
+	static final int BOSS_BAR_UPDATES = 5;
+	static final int PACKETS_SENT = 6;
+	static final int PACKETS_SKIPPED = 7;
+	static final int BYTES_SKIPPED = 8;
+	static final int FLUSHES_SAVED = 9;
+	static final int SESSIONS_EXPIRED = 10;
+	static final int SESSIONS_EVICTED = 11;
+	static final int TICKS_DEFERRED = 12;
+	static final int WORK_FORCED = 13;
+	static final int AFK_PERIODS = 14;
+	static final int COMPANION_SCHEDULES = 15;
+	private static final int COUNTER_COUNT = 16;
+	private static final String[] COUNTER_NAMES = {
+		"reminders", "warnings_5min", "warnings_1min", "warnings_10s", "kicks",
+		"boss_bar_updates", "packets_sent", "packets_skipped", "bytes_skipped", "flushes_saved",
+		"sessions_expired", "sessions_evicted", "ticks_deferred", "work_forced", "afk_periods",
+		"companion_schedules"
+	};
+
+	// Gauges
+	static final int TRACKED_PLAYERS = 0;
+	static final int ACTIVE_COUNTDOWNS = 1;
+	static final int SCHEDULED_PLAYERS = 2;
+	static final int PENDING_KICKS = 3;
+	private static final int GAUGE_COUNT = 4;
+	private static final String[] GAUGE_NAMES = {"tracked_players", "active_countdowns", "scheduled_players", "pending_kicks"};
+
+	// Bucket i holds ticks that took [2^(i-1), 2^i) ns; bucket 0 holds zero-length ticks
+	private static final int BUCKETS = 64;
+
+	// One in this many ticks is measured for allocation, which keeps the MXBean calls off most ticks
+	static final int ALLOCATION_SAMPLE_INTERVAL = 20;
+
+	private final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+	private final AtomicLongArray gauges = new AtomicLongArray(GAUGE_COUNT);
+	private final AtomicLongArray tickBuckets = new AtomicLongArray(BUCKETS);
+	// Tick count, total nanos, max nanos, sampled ticks, bytes allocated on sampled ticks
+	private final AtomicLongArray tickTotals = new AtomicLongArray(5);
+
+	private final com.sun.management.ThreadMXBean threads;
+	private final boolean allocationSupported;
+
+	PlaytimeMetrics() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+			sunBean.setThreadAllocatedMemoryEnabled(true);
+			this.threads = sunBean;
+			this.allocationSupported = true;
+		} else {
+			this.threads = null;
+			this.allocationSupported = false;
+		}
+	}
+
+	/** Server thread only. */
+	void increment(int counter) {
+		counters.lazySet(counter, counters.get(counter) + 1);
+	}
+
+	/** Server thread only. */
+	void add(int counter, long amount) {
+		counters.lazySet(counter, counters.get(counter) + amount);
+	}
+
+	/** Server thread only. */
+	void setGauge(int gauge, long value) {
+		gauges.lazySet(gauge, value);
+	}
+
+	/** Server thread only. */
+	void recordTick(long nanos) {
+		int bucket = 64 - Long.numberOfLeadingZeros(Math.max(0, nanos));
+		tickBuckets.lazySet(bucket, tickBuckets.get(bucket) + 1);
+		tickTotals.lazySet(0, tickTotals.get(0) + 1);
+		tickTotals.lazySet(1, tickTotals.get(1) + nanos);
+		if (nanos > tickTotals.get(2)) {
+			tickTotals.lazySet(2, nanos);
+		}
+	}
+
+	/** Whether this tick should be measured for allocation. */
+	boolean sampleAllocation(long serverTicks) {
+		return allocationSupported && serverTicks % ALLOCATION_SAMPLE_INTERVAL == 0;
+	}
+
+	/** Bytes allocated so far by the calling thread, or 0 when the JVM cannot tell. */
+	long threadAllocatedBytes() {
+		return allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	/** Server thread only. */
+	void recordAllocation(long bytes) {
+		tickTotals.lazySet(3, tickTotals.get(3) + 1);
+		tickTotals.lazySet(4, tickTotals.get(4) + bytes);
+	}
+
+	long counter(int counter) {
+		return counters.get(counter);
+	}
+
+	long gauge(int gauge) {
+		return gauges.get(gauge);
+	}
+
+	long ticks() {
+		return tickTotals.get(0);
+	}
+
+	double meanTickNanos() {
+		long ticks = tickTotals.get(0);
+		return ticks == 0 ? 0 : (double) tickTotals.get(1) / ticks;
+	}
+
+	long maxTickNanos() {
+		return tickTotals.get(2);
+	}
+
+	/** Upper bound of the histogram bucket holding the given quantile (0..1), in ns. */
+	long tickQuantileNanos(double quantile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += tickBuckets.get(i);
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += tickBuckets.get(i);
+			if (seen >= rank && seen > 0) {
+				return bucketUpperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	/** Mean bytes allocated per sampled tick, or -1 when allocation cannot be measured. */
+	double allocatedBytesPerTick() {
+		long samples = tickTotals.get(3);
+		if (!allocationSupported) {
+			return -1;
+		}
+		return samples == 0 ? 0 : (double) tickTotals.get(4) / samples;
+	}
+
+	/** The current values in Prometheus text exposition format. */
+	String toPrometheus() {
+		StringBuilder out = new StringBuilder(4096);
+		for (int i = 0; i < COUNTER_COUNT; i++) {
+			String name = "playtime_reminder_" + COUNTER_NAMES[i] + "_total";
+			out.append("# TYPE ").append(name).append(" counter\n");
+			out.append(name).append(' ').append(counters.get(i)).append('\n');
+		}
+		for (int i = 0; i < GAUGE_COUNT; i++) {
+			String name = "playtime_reminder_" + GAUGE_NAMES[i];
+			out.append("# TYPE ").append(name).append(" gauge\n");
+			out.append(name).append(' ').append(gauges.get(i)).append('\n');
+		}
+
+		out.append("# TYPE playtime_reminder_tick_seconds histogram\n");
+		long cumulative = 0;
+		int highest = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			if (tickBuckets.get(i) > 0) {
+				highest = i;
+			}
+		}
+		for (int i = 0; i <= highest; i++) {
+			cumulative += tickBuckets.get(i);
+			out.append("playtime_reminder_tick_seconds_bucket{le=\"").append(bucketUpperBound(i) / 1e9).append("\"} ").append(cumulative).append('\n');
+		}
+		out.append("playtime_reminder_tick_seconds_bucket{le=\"+Inf\"} ").append(tickTotals.get(0)).append('\n');
+		out.append("playtime_reminder_tick_seconds_sum ").append(tickTotals.get(1) / 1e9).append('\n');
+		out.append("playtime_reminder_tick_seconds_count ").append(tickTotals.get(0)).append('\n');
+
+		out.append("# TYPE playtime_reminder_tick_allocated_bytes gauge\n");
+		out.append("playtime_reminder_tick_allocated_bytes ").append(allocatedBytesPerTick()).append('\n');
+		return out.toString();
+	}
+
+	private static long bucketUpperBound(int bucket) {
+		return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : 1L << bucket;
+	}
+}
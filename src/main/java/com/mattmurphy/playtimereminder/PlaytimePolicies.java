@@ -0,0 +1,162 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/**
+ * Enforcement policies compiled from one config snapshot: the global limits as the {@code default}
+ * profile, each named profile on top of them, and the rules that pick a profile for a player. A player's
+ * policy is resolved once on join and kept in their session slot, so the tick path only reads the
+ * precomputed tick thresholds of its {@link PlaytimeCore}.
+ */
+final class PlaytimePolicies {
+	static final String DEFAULT = "default";
+
+	/** One compiled profile. Immutable, so a slot can keep it for as long as it likes. */
+	record Policy(String name, PlaytimeCore core, int breakDurationMinutes, boolean disconnectOnStrong) {
+	}
+
+	// All given conditions must hold; players holds lower-case names and UUID strings
+	private record Rule(int minPermissionLevel, Set<String> players, String team, Policy policy) {
+		boolean matches(String id, String name, IntPredicate hasPermissionLevel, String playerTeam) {
+			return (minPermissionLevel < 0 || hasPermissionLevel.test(minPermissionLevel))
+				&& (players == null || players.contains(id) || players.contains(name))
+				&& (team == null || team.equals(playerTeam));
+		}
+	}
+
+	private final Policy defaultPolicy;
+	private final long longestBreakMillis;
+	private final Map<String, Policy> byName = new LinkedHashMap<>();
+	private final List<Rule> rules = new ArrayList<>();
+	private final Map<String, Policy> assigned = new LinkedHashMap<>(); // Lower-case name or UUID string
+
+	private PlaytimePolicies(Config config) {
+		defaultPolicy = new Policy(DEFAULT, new PlaytimeCore(config.reminderIntervalMinutes, config.strongReminderThresholdMinutes,
+			config.strongReminderRepeatMinutes, config.breakDurationMinutes), config.breakDurationMinutes, config.disconnectOnStrong);
+		byName.put(DEFAULT, defaultPolicy);
+		for (Map.Entry<String, Config.PolicyProfile> e : config.policyProfiles.entrySet()) {
+			Config.PolicyProfile p = e.getValue();
+			int interval = p.reminderIntervalMinutes != null ? p.reminderIntervalMinutes : config.reminderIntervalMinutes;
+			int threshold = p.strongReminderThresholdMinutes != null ? p.strongReminderThresholdMinutes : config.strongReminderThresholdMinutes;
+			int repeat = p.strongReminderRepeatMinutes != null ? p.strongReminderRepeatMinutes : config.strongReminderRepeatMinutes;
+			int breakMinutes = p.breakDurationMinutes != null ? p.breakDurationMinutes : config.breakDurationMinutes;
+			boolean disconnect = p.disconnectOnStrong != null ? p.disconnectOnStrong : config.disconnectOnStrong;
+			byName.put(e.getKey(), new Policy(e.getKey(), new PlaytimeCore(interval, threshold, repeat, breakMinutes), breakMinutes, disconnect));
+		}
+		long longest = 0;
+		for (Policy policy : byName.values()) {
+			longest = Math.max(longest, policy.core().breakMillis);
+		}
+		longestBreakMillis = longest;
+		for (Config.PolicyRule rule : config.policyRules) {
+			Set<String> players = null;
+			if (rule.players != null) {
+				players = new HashSet<>();
+				for (String player : rule.players) {
+					players.add(player.toLowerCase(Locale.ROOT));
+				}
+			}
+			int minPermissionLevel = rule.minPermissionLevel != null ? rule.minPermissionLevel : -1;
+			rules.add(new Rule(minPermissionLevel, players, rule.team, byName.get(rule.profile)));
+		}
+		for (Map.Entry<String, String> e : config.playerPolicies.entrySet()) {
+			assigned.put(e.getKey().toLowerCase(Locale.ROOT), byName.get(e.getValue()));
+		}
+	}
+
+	/** Compiles a validated snapshot. */
+	static PlaytimePolicies compile(Config config) {
+		return new PlaytimePolicies(config);
+	}
+
+	Policy defaultPolicy() {
+		return defaultPolicy;
+	}
+
+	/** The profile with this name, or the default if there is none (e.g. it was removed from the config). */
+	Policy byName(String name) {
+		Policy policy = byName.get(name);
+		return policy != null ? policy : defaultPolicy;
+	}
+
+	/** The longest break any profile asks for, for players whose policy is not known yet. */
+	long longestBreakMillis() {
+		return longestBreakMillis;
+	}
+
+	Collection<Policy> all() {
+		return byName.values();
+	}
+
+	int ruleCount() {
+		return rules.size();
+	}
+
+	/**
+	 * Picks a player's policy: a profile assigned to them by name or UUID first, then the first matching
+	 * rule, else the default. {@code team} is null when the player is on no team.
+	 */
+	Policy resolve(UUID id, String name, IntPredicate hasPermissionLevel, String team) {
+		String idKey = id.toString();
+		String nameKey = name.toLowerCase(Locale.ROOT);
+		Policy policy = assigned.get(idKey);
+		if (policy == null) {
+			policy = assigned.get(nameKey);
+		}
+		if (policy != null) {
+			return policy;
+		}
+		for (Rule rule : rules) {
+			if (rule.matches(idKey, nameKey, hasPermissionLevel, team)) {
+				return rule.policy();
+			}
+		}
+		return defaultPolicy;
+	}
+
+	/** Config checks for the policy sections, added to {@link ConfigService#validate}. */
+	static void validate(Config config, List<String> problems) {
+		for (Map.Entry<String, Config.PolicyProfile> e : config.policyProfiles.entrySet()) {
+			String name = e.getKey();
+			Config.PolicyProfile p = e.getValue();
+			if (name.equals(DEFAULT) || p == null) {
+				problems.add("policy profile '" + name + "' must be a non-default name with a profile object");
+				continue;
+			}
+			if (p.reminderIntervalMinutes != null && p.reminderIntervalMinutes < 1) problems.add("policy profile '" + name + "': reminderIntervalMinutes must be at least 1");
+			if (p.strongReminderThresholdMinutes != null && p.strongReminderThresholdMinutes < 1) problems.add("policy profile '" + name + "': strongReminderThresholdMinutes must be at least 1");
+			if (p.strongReminderRepeatMinutes != null && p.strongReminderRepeatMinutes < 1) problems.add("policy profile '" + name + "': strongReminderRepeatMinutes must be at least 1");
+			if (p.breakDurationMinutes != null && p.breakDurationMinutes < 1) problems.add("policy profile '" + name + "': breakDurationMinutes must be at least 1");
+		}
+		for (int i = 0; i < config.policyRules.size(); i++) {
+			Config.PolicyRule rule = config.policyRules.get(i);
+			if (rule == null || !isProfile(config, rule.profile)) {
+				problems.add("policy rule " + (i + 1) + " must name a known profile");
+			} else if (rule.minPermissionLevel == null && rule.players == null && rule.team == null) {
+				problems.add("policy rule " + (i + 1) + " needs minPermissionLevel, players or team");
+			} else if (rule.minPermissionLevel != null && (rule.minPermissionLevel < 0 || rule.minPermissionLevel > 4)) {
+				problems.add("policy rule " + (i + 1) + ": minPermissionLevel must be between 0 and 4");
+			}
+		}
+		for (Map.Entry<String, String> e : config.playerPolicies.entrySet()) {
+			if (!isProfile(config, e.getValue())) {
+				problems.add("playerPolicies: '" + e.getKey() + "' is assigned unknown profile '" + e.getValue() + "'");
+			}
+		}
+	}
+
+	private static boolean isProfile(Config config, String name) {
+		return name != null && (name.equals(DEFAULT) || config.policyProfiles.containsKey(name));
+	}
+}
@@ -0,0 +1,258 @@
+package com.mattmurphy.playtimereminder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Answers the read-only {@code /playtime} queries on a worker thread. The worker keeps its own ranking of
+ * every player with history by day, week and month totals, fed from the server thread through a
+ * {@link RecordRing} of total updates at each minute checkpoint, so a leaderboard is a walk down an
+ * ordered set rather than a scan. Results come back as text lines through the given server executor.
+ *
+ * <p>Each ranked player's last known name is kept with their totals, seeded from the history records
+ * and refreshed on join. A player is dropped once they are no longer tracked and have no minutes in any
+ * period, so the index holds the tracked players plus whoever played this month.
+ */
+final class PlaytimeQueries {
+	static final int DAY = 0;
+	static final int WEEK = 1;
+	static final int MONTH = 2;
+	private static final String[] PERIOD_NAMES = {"today", "this week", "this month"};
+
+	private static final long UPDATE = 1;
+	private static final long PERIODS = 2;
+	private static final int HISTORY_DAYS = 14;
+
+	private record Ranked(UUID id, int minutes) {
+	}
+
+	private static final Comparator<Ranked> BY_MINUTES = Comparator.comparingInt(Ranked::minutes).reversed().thenComparing(Ranked::id);
+
+	// One player's totals by period; name is null until known
+	private static final class Player {
+		final int[] minutes = new int[3];
+		String name;
+		boolean tracked; // Joined and not forgotten since
+
+		boolean isIdle() {
+			return !tracked && minutes[DAY] == 0 && minutes[WEEK] == 0 && minutes[MONTH] == 0;
+		}
+	}
+
+	private final RecordRing updates = new RecordRing(1 << 16);
+	private final ScheduledExecutorService worker;
+
+	// Worker thread only
+	private final Map<UUID, Player> players = new HashMap<>();
+	private final List<TreeSet<Ranked>> rankings = List.of(new TreeSet<>(BY_MINUTES), new TreeSet<>(BY_MINUTES), new TreeSet<>(BY_MINUTES));
+	private final long[] periodStarts = new long[3];
+	private final long[] event = new long[RecordRing.RECORD_LONGS];
+
+	PlaytimeQueries() {
+		this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "PlaytimeReminder-Query");
+			thread.setDaemon(true);
+			return thread;
+		});
+		worker.scheduleWithFixedDelay(this::drain, 1, 1, TimeUnit.SECONDS);
+	}
+
+	void close() {
+		worker.shutdownNow();
+	}
+
+	/** Replaces the whole index, e.g. from the history file at startup. Arrays are handed over, not copied. */
+	void rebuild(long dayStart, long weekStart, long monthStart, UUID[] ids, String[] playerNames, int[][] playerTotals) {
+		worker.execute(() -> {
+			players.clear();
+			rankings.forEach(TreeSet::clear);
+			periodStarts[DAY] = dayStart;
+			periodStarts[WEEK] = weekStart;
+			periodStarts[MONTH] = monthStart;
+			for (int i = 0; i < ids.length; i++) {
+				Player player = apply(ids[i], playerTotals[i][DAY], playerTotals[i][WEEK], playerTotals[i][MONTH]);
+				if (!playerNames[i].isEmpty()) {
+					player.name = playerNames[i];
+				}
+				if (player.isIdle()) {
+					players.remove(ids[i]);
+				}
+			}
+		});
+	}
+
+	/** Server thread; called on join, off the per-tick path. */
+	void rememberName(UUID id, String name) {
+		worker.execute(() -> {
+			Player player = players.computeIfAbsent(id, key -> new Player());
+			player.name = name;
+			player.tracked = true;
+		});
+	}
+
+	/** Server thread; the player's session slot was released, so they only stay while they rank somewhere. */
+	void forget(UUID id) {
+		worker.execute(() -> {
+			drain(); // Their last totals may still be in the ring
+			Player player = players.get(id);
+			if (player != null) {
+				player.tracked = false;
+				if (player.isIdle()) {
+					players.remove(id);
+				}
+			}
+		});
+	}
+
+	/** Players held by the worker, for tests; waits for work already queued. */
+	int size() throws InterruptedException, ExecutionException {
+		return worker.submit(() -> {
+			drain();
+			return players.size();
+		}).get();
+	}
+
+	/** Server thread; never blocks or allocates. */
+	void update(UUID id, int day, int week, int month) {
+		updates.offer(UPDATE, id.getMostSignificantBits(), id.getLeastSignificantBits(), (day & 0xFFFFFFFFL) | (long) week << 32, month);
+	}
+
+	/** Server thread; a period whose start moved is emptied, and online players' totals follow as updates. */
+	void periodsChanged(long dayStart, long weekStart, long monthStart) {
+		updates.offer(PERIODS, dayStart, weekStart, monthStart, 0);
+	}
+
+	void top(int period, int count, Executor serverThread, Consumer<List<String>> reply) {
+		worker.execute(() -> {
+			drain();
+			List<String> lines = new ArrayList<>();
+			lines.add("--- Top " + count + " " + PERIOD_NAMES[period] + " ---");
+			int rank = 0;
+			for (Ranked ranked : rankings.get(period)) {
+				if (++rank > count) {
+					break;
+				}
+				lines.add("  " + rank + ". " + nameOf(ranked.id()) + " - " + formatMinutes(ranked.minutes()));
+			}
+			if (rank == 0) {
+				lines.add("  (nobody has played " + PERIOD_NAMES[period] + ")");
+			}
+			serverThread.execute(() -> reply.accept(lines));
+		});
+	}
+
+	/** Formats a player's last two weeks from a copy of their history buckets. */
+	void history(String name, byte[] buckets, long newestBucket, ZoneId zone, long nowMillis, Executor serverThread, Consumer<List<String>> reply) {
+		worker.execute(() -> {
+			List<String> lines = new ArrayList<>();
+			lines.add("--- Playtime history for " + name + " ---");
+			LocalDate today = Instant.ofEpochMilli(nowMillis).atZone(zone).toLocalDate();
+			int total = 0;
+			for (int i = 0; i < HISTORY_DAYS; i++) {
+				LocalDate day = today.minusDays(i);
+				long from = day.atStartOfDay(zone).toInstant().toEpochMilli();
+				long to = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+				int minutes = PlaytimeHistory.minutesBetween(buckets, newestBucket, from, to);
+				total += minutes;
+				lines.add("  " + day + " (" + day.getDayOfWeek().toString().substring(0, 3) + "): " + formatMinutes(minutes));
+			}
+			lines.add("  last " + HISTORY_DAYS + " days: " + formatMinutes(total));
+			long monthFrom = today.minusDays(30).atStartOfDay(zone).toInstant().toEpochMilli();
+			lines.add("  last 31 days: " + formatMinutes(PlaytimeHistory.minutesBetween(buckets, newestBucket, monthFrom, nowMillis + PlaytimeHistory.BUCKET_MILLIS)));
+			serverThread.execute(() -> reply.accept(lines));
+		});
+	}
+
+	/**
+	 * Lists online players from a snapshot taken on the server thread, longest session first.
+	 * {@code secondsUntilKick} is negative for players with no kick scheduled.
+	 */
+	void online(String[] playerNames, int[] sessionMinutes, int[] todayMinutes, int[] secondsUntilKick, Executor serverThread, Consumer<List<String>> reply) {
+		worker.execute(() -> {
+			Integer[] order = new Integer[playerNames.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, Comparator.comparingInt((Integer i) -> sessionMinutes[i]).reversed());
+
+			List<String> lines = new ArrayList<>();
+			lines.add("--- " + playerNames.length + " players online ---");
+			for (int i : order) {
+				String kick = secondsUntilKick[i] < 0 ? "" : ", kick in " + formatMinutes(secondsUntilKick[i] / 60);
+				lines.add("  " + playerNames[i] + ": session " + formatMinutes(sessionMinutes[i]) + ", today " + formatMinutes(todayMinutes[i]) + kick);
+			}
+			serverThread.execute(() -> reply.accept(lines));
+		});
+	}
+
+	private void drain() {
+		while (updates.poll(event)) {
+			if (event[0] == PERIODS) {
+				movePeriod(DAY, event[1]);
+				movePeriod(WEEK, event[2]);
+				movePeriod(MONTH, event[3]);
+			} else {
+				apply(new UUID(event[1], event[2]), (int) event[3], (int) (event[3] >>> 32), (int) event[4]);
+			}
+		}
+	}
+
+	private void movePeriod(int period, long start) {
+		if (periodStarts[period] == start) {
+			return;
+		}
+		periodStarts[period] = start;
+		rankings.get(period).clear();
+		for (Player player : players.values()) {
+			player.minutes[period] = 0;
+		}
+		players.values().removeIf(Player::isIdle);
+	}
+
+	private Player apply(UUID id, int day, int week, int month) {
+		Player player = players.computeIfAbsent(id, key -> new Player());
+		set(id, player.minutes, DAY, day);
+		set(id, player.minutes, WEEK, week);
+		set(id, player.minutes, MONTH, month);
+		return player;
+	}
+
+	private void set(UUID id, int[] playerTotals, int period, int minutes) {
+		int previous = playerTotals[period];
+		if (previous == minutes) {
+			return;
+		}
+		TreeSet<Ranked> ranking = rankings.get(period);
+		if (previous > 0) {
+			ranking.remove(new Ranked(id, previous));
+		}
+		if (minutes > 0) {
+			ranking.add(new Ranked(id, minutes));
+		}
+		playerTotals[period] = minutes;
+	}
+
+	private String nameOf(UUID id) {
+		Player player = players.get(id);
+		return player != null && player.name != null ? player.name : id.toString();
+	}
+
+	static String formatMinutes(int minutes) {
+		return minutes >= 60 ? minutes / 60 + "h " + minutes % 60 + "m" : minutes + "m";
+	}
+}
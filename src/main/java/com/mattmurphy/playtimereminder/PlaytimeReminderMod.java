@@ -3,59 +3,146 @@ package com.mattmurphy.playtimereminder;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.S2CPlayChannelEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.fabricmc.fabric.api.message.v1.ServerMessageEvents;
+import net.fabricmc.fabric.api.event.player.AttackBlockCallback;
+import net.fabricmc.fabric.api.event.player.AttackEntityCallback;
+import net.fabricmc.fabric.api.event.player.UseBlockCallback;
+import net.fabricmc.fabric.api.event.player.UseEntityCallback;
+import net.fabricmc.fabric.api.event.player.UseItemCallback;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.network.chat.Component;
 import net.minecraft.ChatFormatting;
-import net.minecraft.network.protocol.game.ClientboundSetTitleTextPacket;
-import net.minecraft.network.protocol.game.ClientboundSetSubtitleTextPacket;
-import net.minecraft.network.protocol.game.ClientboundSetTitlesAnimationPacket;
+import net.minecraft.world.InteractionResult;
+import net.minecraft.world.entity.player.Player;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
-import java.nio.file.Files;
+import java.lang.reflect.Field;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Calendar;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Function;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import net.minecraft.world.BossEvent;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundSetSubtitleTextPacket;
+import net.minecraft.network.protocol.game.ClientboundSetTitleTextPacket;
+import net.minecraft.network.protocol.game.ClientboundSetTitlesAnimationPacket;
 import net.minecraft.server.level.ServerBossEvent;
+import net.minecraft.world.BossEvent;
+import net.minecraft.world.scores.PlayerTeam;
 
 public final class PlaytimeReminderMod implements ModInitializer {
-	private static final int TICKS_PER_MINUTE = 20 * 60;
-
-	private Config config = new Config();
-
-	    private final Map<UUID, Long> playerJoinTick = new HashMap<>();
-	    private final Map<UUID, ServerBossEvent> playerBossBar = new HashMap<>(); // Tracks the boss bar for each player
-	        private final Map<UUID, Long> playerDisconnectTime = new HashMap<>(); // Tracks the time a player disconnected in milliseconds
-	    private final Map<UUID, Long> playerPlaytimeTicks = new HashMap<>(); // Ticks played in the session before last disconnect
-	    private final Map<UUID, Integer> lastReminderMinute = new HashMap<>();
-	    private final Map<UUID, Boolean> warned5min = new HashMap<>();
-	    private final Map<UUID, Boolean> warned1min = new HashMap<>();
-	    private final Map<UUID, Boolean> warned10s = new HashMap<>();
-	    private final Map<UUID, Integer> playerDailyPlaytime = new HashMap<>(); // Total minutes played today
-	    private final Map<UUID, String> delayedJoinMessages = new HashMap<>(); // Messages to send after a short delay
-	    private long currentServerTick = 0;
-	    private int lastDayOfMonth = -1;
-	
+	private static final int TICKS_PER_MINUTE = PlaytimeCore.TICKS_PER_MINUTE;
+	private static final Path DATA_DIR = Paths.get("playtime_reminder");
+
+	private ConfigService configs = new ConfigService(Paths.get("config"));
+	private Config config = configs.current(); // Snapshot in use on the server thread, refreshed once per tick
+	private MessageTemplates messages = new MessageTemplates(config); // Compiled from config
+	private PlaytimePolicies policies = PlaytimePolicies.compile(config); // Compiled profiles; each slot keeps the one resolved on join
+	private CurfewSchedule curfews = CurfewSchedule.none(); // Compiled in the clock's zone once the clock is set up
+
+		private final SessionStore sessions = new SessionStore(); // All per-player state, one slot per tracked UUID
+		private final DeadlineScheduler scheduler = new DeadlineScheduler(); // Next due tick for each online player's slot
+		private final SessionExpiry expiry = new SessionExpiry(this::forget); // When each disconnected slot can be forgotten
+		private final IntArrayList playersToKick = new IntArrayList(); // Kicks waiting for tick budget, oldest first; reused to avoid allocation
+		private final LongArrayList kickQueuedTicks = new LongArrayList(); // Tick each queued kick was decided on
+		private int kickHead; // First kick in playersToKick not yet carried out
+		private long budgetNanosDeadline; // Per-tick work budget, reset at the start of each tick's player work
+		private int budgetOperations;
+		private final PlaytimeClock clock = new PlaytimeClock(PlaytimeClock.SYSTEM);
+		private final PlaytimeMetrics metrics = new PlaytimeMetrics();
+		private final SessionUpdater updater = new SessionUpdater(sessions, scheduler, clock, metrics, new ServerOutput()); // Per-player decisions and their effects
+		private final CountdownDisplay display = updater.display; // Boss bar and title packets
+		private MetricsExporter exporter; // Prometheus file or endpoint, per server run
+		private SessionJournal journal; // Null when persistence could not be opened
+		private AuditLog audit; // Null when the audit log could not be opened
+		private PlaytimeHistory history; // Null when the history file could not be opened
+		private PlaytimeQueries queries; // Leaderboard index and read-only commands, on their own thread
+		private SharedSessions shared; // Null unless sharedSessionsFile is set
+		// Starts of the current calendar day, week and month in the configured zone
+		private long dayStartMillis;
+		private long weekStartMillis;
+		private long monthStartMillis;
+
 	    @Override
 	    public void onInitialize() {
+		PayloadTypeRegistry.playS2C().register(SchedulePayload.TYPE, SchedulePayload.CODEC);
+
 	        ServerLifecycleEvents.SERVER_STARTING.register(server -> {
-				loadConfig();
+				configs.close();
+				configs = new ConfigService(Paths.get("config"));
+				configs.load();
+				configs.startWatching();
+				config = configs.current();
+				messages = new MessageTemplates(config);
+				policies = PlaytimePolicies.compile(config);
+				updater.configure(config, messages, policies);
 				clearPlayerState();
+				restoreSessions();
+				openHistory();
+				startQueries();
+				openSharedSessions();
+				openAuditLog();
+				if (exporter != null) {
+					exporter.close();
+				}
+				exporter = new MetricsExporter(metrics);
+				exporter.configure(config.metricsFile, config.metricsPort);
+			});
+			// Checkpoint everyone while the server is still intact, then flush once the players have been disconnected
+			ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+				for (int slot = 0; slot < sessions.highWater(); slot++) {
+					checkpoint(slot);
+				}
+			});
+			ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+				configs.close();
+				if (exporter != null) {
+					exporter.close();
+					exporter = null;
+				}
+				if (journal != null) {
+					journal.close();
+					journal = null;
+				}
+				if (audit != null) {
+					audit.close();
+					audit = null;
+				}
+				if (queries != null) {
+					queries.close();
+					queries = null;
+				}
+				if (shared != null) {
+					shared.close();
+					shared = null;
+				}
+				if (history != null) {
+					history.close();
+					history = null;
+				}
+				updater.close();
 			});
 
 	        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
@@ -74,451 +161,957 @@ public final class PlaytimeReminderMod implements ModInitializer {
 	                    .then(Commands.literal("breakDurationMinutes")
 	                        .then(Commands.argument("minutes", IntegerArgumentType.integer(1))
 	                            .executes(context -> setIntConfig(context.getSource(), "breakDurationMinutes", IntegerArgumentType.getInteger(context, "minutes")))))
+						.then(Commands.literal("bossBarProgressSteps")
+							.then(Commands.argument("steps", IntegerArgumentType.integer(1, 6000))
+								.executes(context -> setIntConfig(context.getSource(), "bossBarProgressSteps", IntegerArgumentType.getInteger(context, "steps")))))
+						.then(Commands.literal("dailyLimitMinutes")
+							.then(Commands.argument("minutes", IntegerArgumentType.integer(0))
+								.executes(context -> setIntConfig(context.getSource(), "dailyLimitMinutes", IntegerArgumentType.getInteger(context, "minutes")))))
+						.then(Commands.literal("weeklyLimitMinutes")
+							.then(Commands.argument("minutes", IntegerArgumentType.integer(0))
+								.executes(context -> setIntConfig(context.getSource(), "weeklyLimitMinutes", IntegerArgumentType.getInteger(context, "minutes")))))
+						.then(Commands.literal("monthlyLimitMinutes")
+							.then(Commands.argument("minutes", IntegerArgumentType.integer(0))
+								.executes(context -> setIntConfig(context.getSource(), "monthlyLimitMinutes", IntegerArgumentType.getInteger(context, "minutes")))))
 	                    .then(Commands.literal("disconnectOnStrong")
 	                        .then(Commands.argument("value", BoolArgumentType.bool())
 	                            .executes(context -> setBoolConfig(context.getSource(), "disconnectOnStrong", BoolArgumentType.getBool(context, "value")))))
 	                )
 	                .then(Commands.literal("get")
 	                    .executes(context -> getConfig(context.getSource())))
+					.then(Commands.literal("stats")
+						.executes(context -> getStats(context.getSource())))
+					// top [day|week|month] [count]; the period defaults to the week
+					.then(Commands.literal("top")
+						.executes(context -> showTop(context.getSource(), PlaytimeQueries.WEEK, 10))
+						.then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+							.executes(context -> showTop(context.getSource(), PlaytimeQueries.WEEK, IntegerArgumentType.getInteger(context, "count"))))
+						.then(Commands.literal("day")
+							.executes(context -> showTop(context.getSource(), PlaytimeQueries.DAY, 10))
+							.then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+								.executes(context -> showTop(context.getSource(), PlaytimeQueries.DAY, IntegerArgumentType.getInteger(context, "count")))))
+						.then(Commands.literal("week")
+							.executes(context -> showTop(context.getSource(), PlaytimeQueries.WEEK, 10))
+							.then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+								.executes(context -> showTop(context.getSource(), PlaytimeQueries.WEEK, IntegerArgumentType.getInteger(context, "count")))))
+						.then(Commands.literal("month")
+							.executes(context -> showTop(context.getSource(), PlaytimeQueries.MONTH, 10))
+							.then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+								.executes(context -> showTop(context.getSource(), PlaytimeQueries.MONTH, IntegerArgumentType.getInteger(context, "count")))))
+					)
+					.then(Commands.literal("player")
+						.then(Commands.argument("name", StringArgumentType.word())
+							.then(Commands.literal("history")
+								.executes(context -> showHistory(context.getSource(), StringArgumentType.getString(context, "name"))))))
+					.then(Commands.literal("online")
+						.executes(context -> showOnline(context.getSource())))
+					.then(Commands.literal("audit")
+						.then(Commands.argument("player", StringArgumentType.word())
+							.executes(context -> showAudit(context.getSource(), StringArgumentType.getString(context, "player")))))
+					.then(Commands.literal("policy")
+						.then(Commands.literal("list")
+							.executes(context -> listPolicies(context.getSource())))
+						.then(Commands.literal("show")
+							.then(Commands.argument("player", StringArgumentType.word())
+								.executes(context -> showPolicy(context.getSource(), StringArgumentType.getString(context, "player")))))
+						.then(Commands.literal("assign")
+							.then(Commands.argument("player", StringArgumentType.word())
+								.then(Commands.argument("profile", StringArgumentType.word())
+									.executes(context -> assignPolicy(context.getSource(), StringArgumentType.getString(context, "player"), StringArgumentType.getString(context, "profile"))))))
+						.then(Commands.literal("unassign")
+							.then(Commands.argument("player", StringArgumentType.word())
+								.executes(context -> assignPolicy(context.getSource(), StringArgumentType.getString(context, "player"), null))))
+						.then(Commands.literal("refresh")
+							.executes(context -> refreshPolicies(context.getSource()))))
 	            );
 	        });
 
 	        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
 	            ServerPlayer player = handler.getPlayer();
-	            UUID id = player.getUUID();
-	            Long disconnectTime = playerDisconnectTime.remove(id);
-	
-	            if (disconnectTime != null) {
-	                long breakMillis = System.currentTimeMillis() - disconnectTime;
-	                long breakThresholdMillis = (long)config.breakDurationMinutes * 60 * 1000;
-	
-	                if (breakMillis >= breakThresholdMillis) {
+				if (sessions.slotOf(player.getUUID()) == SessionStore.NO_SLOT) {
+					enforceTrackedCap(1);
+				}
+				int slot = sessions.acquire(player.getUUID());
+				expiry.cancel(slot);
+				sessions.players[slot] = player;
+				// Whatever a companion client was counting down belongs to the old session; the first processing resends it
+				sessions.companion[slot] = config.companionClients && ServerPlayNetworking.canSend(player, SchedulePayload.TYPE);
+				sessions.companionKickTick[slot] = SessionStore.NOT_SENT;
+				sessions.policy[slot] = resolvePolicy(player);
+				PlaytimePolicies.Policy policy = sessions.policy[slot];
+				// A more recent disconnect from another backend on this host counts as this one's
+				if (shared != null) {
+					shared.adopt(sessions, slot);
+				}
+
+				if (sessions.hasFlag(slot, SessionStore.DISCONNECTED)) {
+					sessions.clearFlag(slot, SessionStore.DISCONNECTED);
+					long now = clock.now();
+
+					if (policy.core().breakTaken(sessions.disconnectMillis[slot], clock.currentTimeMillis())) {
 	                    // Break taken, reset playtime
-	                    playerJoinTick.put(id, currentServerTick);
-	                    playerPlaytimeTicks.remove(id);
-	                } else {
+						sessions.joinTick[slot] = now;
+						sessions.clearFlag(slot, SessionStore.HAS_SAVED_PLAYTIME);
+					} else if (sessions.hasFlag(slot, SessionStore.HAS_SAVED_PLAYTIME)) {
 	                    // Break NOT taken, playtime continues.
 	                    // Restore the player's session playtime from before they disconnected.
-	                    Long previousTicksPlayed = playerPlaytimeTicks.remove(id);
-	                    if (previousTicksPlayed != null) {
-	                        // To restore playtime, calculate a new join tick that preserves the played time.
-	                        long newJoinTick = currentServerTick - previousTicksPlayed;
-	                        playerJoinTick.put(id, newJoinTick);
-
-	                        // Now, schedule a warning based on the restored playtime.
-	                        long nextKickTick = calculateNextKickTick(previousTicksPlayed);
-	                        long ticksUntilKick = nextKickTick - previousTicksPlayed;
-	                        long minutesUntilKick = (ticksUntilKick + TICKS_PER_MINUTE - 1) / TICKS_PER_MINUTE;
-
-	                        if (minutesUntilKick > 0) {
-	                            String message = "Your break was less than " + config.breakDurationMinutes + " minutes. Your playtime continues. You will be kicked in approximately " + minutesUntilKick + " minutes.";
-	                            delayedJoinMessages.put(id, message);
-	                        }
-	                    } else {
-	                        // Fallback if playtime wasn't tracked, start fresh
-	                        playerJoinTick.put(id, currentServerTick);
+						sessions.clearFlag(slot, SessionStore.HAS_SAVED_PLAYTIME);
+						long previousTicksPlayed = sessions.playtimeTicks[slot];
+
+						// To restore playtime, calculate a new join tick that preserves the played time.
+						sessions.joinTick[slot] = now - previousTicksPlayed;
+
+						// Now, schedule a warning based on the restored playtime.
+						long minutesUntilKick = policy.core().minutesUntilKick(previousTicksPlayed);
+
+						if (minutesUntilKick > 0) {
+							String message = "Your break was less than " + policy.breakDurationMinutes() + " minutes. Your playtime continues. You will be kicked in approximately " + minutesUntilKick + " minutes.";
+							sessions.delayedJoinMessages[slot] = message;
+							sessions.delayedMessageTick[slot] = (now / 20 + 1) * 20; // Next whole second
 	                    }
+					} else {
+						// Fallback if playtime wasn't tracked, start fresh
+						sessions.joinTick[slot] = now;
 	                }
 	            } else {
 	                // First join, record playtime
-	                playerJoinTick.put(id, currentServerTick);
+					sessions.joinTick[slot] = clock.now();
 	            }
-	
-	            lastReminderMinute.remove(id);
-	            warned5min.remove(id);
-	            warned1min.remove(id);
-	            warned10s.remove(id);
+				sessions.setFlag(slot, SessionStore.HAS_JOIN_TICK);
+				sessions.lastTicksPlayed[slot] = updater.decisionTicks(slot, clock.now());
+				sessions.lastActivityTick[slot] = clock.now();
+				sessions.activitySample[slot] = activitySample(player);
+
+				sessions.lastReminderMinute[slot] = -1;
+				sessions.clearFlag(slot, SessionStore.WARNED_MASK | SessionStore.LIMIT_REACHED);
+
+				// Credit carries over with a continued session and starts again with a new one
+				sessions.creditedTicks[slot] = Math.min(sessions.creditedTicks[slot], clock.now() - sessions.joinTick[slot]);
+				if (history != null) {
+					sessions.historyRecord[slot] = history.recordOf(player.getUUID(), player.getName().getString(), clock.currentTimeMillis());
+				}
+				if (queries != null) {
+					queries.rememberName(player.getUUID(), player.getName().getString());
+				}
+				loadPeriodTotals(slot);
+
+				if (journal != null) {
+					journal.record(SessionJournal.JOIN, player.getUUID(), clock.currentTimeMillis(), clock.now() - sessions.joinTick[slot]);
+				}
+				if (audit != null) {
+					audit.rememberName(player.getUUID(), player.getName().getString());
+				}
+				updater.audit(AuditLog.JOIN, slot, PlaytimeCore.minutesPlayed(clock.now() - sessions.joinTick[slot]));
+
+				// First look at the player on the next tick; from there on they are only touched when something is due.
+				scheduler.schedule(slot, clock.now() + 1);
 	        });
-	
+
 	        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
-	            UUID id = handler.getPlayer().getUUID();
-	            
+				int slot = sessions.slotOf(handler.getPlayer().getUUID());
+				if (slot == SessionStore.NO_SLOT) {
+					return;
+				}
+
 	            // Store session playtime to be restored if break is not taken
-	            Long joinTick = playerJoinTick.get(id);
-	            if (joinTick != null) {
-	                long ticksPlayed = currentServerTick - joinTick;
-	                playerPlaytimeTicks.put(id, ticksPlayed);
+				if (sessions.hasFlag(slot, SessionStore.HAS_JOIN_TICK)) {
+					long ticksPlayed = updater.sessionTicks(slot, clock.now());
+					sessions.playtimeTicks[slot] = ticksPlayed;
+					sessions.setFlag(slot, SessionStore.HAS_SAVED_PLAYTIME);
+					creditPlaytime(slot, ticksPlayed);
 	            }
+				scheduler.cancel(slot);
+				// Once the break has passed the saved state would be reset on rejoin anyway, so it can go
+				expiry.schedule(slot, clock.currentTimeMillis(), breakMillisOf(slot));
 
-	            playerDisconnectTime.put(id, System.currentTimeMillis()); // Store disconnect time in milliseconds
-	            
-	            // Do NOT remove playerJoinTick, so we can check it on rejoin
-	            lastReminderMinute.remove(id);
-	            warned5min.remove(id);
-	            warned1min.remove(id);
-	            warned10s.remove(id);
-	            
-	            // Remove boss bar on disconnect to ensure it is recreated and re-added on rejoin
-	            ServerBossEvent bossBar = playerBossBar.remove(id);
-	            if (bossBar != null) {
-	                bossBar.removePlayer(handler.getPlayer());
-	            }
+				sessions.disconnectMillis[slot] = clock.currentTimeMillis(); // Store disconnect time in milliseconds
+				sessions.setFlag(slot, SessionStore.DISCONNECTED);
+				if (shared != null && sessions.hasFlag(slot, SessionStore.HAS_SAVED_PLAYTIME)) {
+					shared.write(handler.getPlayer().getUUID(), sessions.playtimeTicks[slot], sessions.disconnectMillis[slot]);
+				}
+				if (journal != null) {
+					journal.record(SessionJournal.DISCONNECT, handler.getPlayer().getUUID(), sessions.disconnectMillis[slot], sessions.playtimeTicks[slot]);
+				}
+				updater.audit(AuditLog.DISCONNECT, slot, PlaytimeCore.minutesPlayed(sessions.playtimeTicks[slot]));
+
+				// Remove boss bar on disconnect to ensure it is recreated and re-added on rejoin
+				display.hide(slot);
+
+				// Keep the slot (and its join tick), so we can check it on rejoin
+				sessions.lastReminderMinute[slot] = -1;
+				sessions.clearFlag(slot, SessionStore.WARNED_MASK | SessionStore.IDLE);
+				sessions.delayedJoinMessages[slot] = null;
+				sessions.players[slot] = null;
 	        });
-	
+
+			// Clients that announce the schedule channel after joining switch over on their next processing
+			S2CPlayChannelEvents.REGISTER.register((handler, sender, server, channels) -> {
+				int slot = sessions.slotOf(handler.getPlayer().getUUID());
+				if (config.companionClients && slot != SessionStore.NO_SLOT && sessions.players[slot] != null && channels.contains(SchedulePayload.TYPE.id())) {
+					sessions.companion[slot] = true;
+					sessions.companionKickTick[slot] = SessionStore.NOT_SENT;
+					display.hide(slot);
+					if (scheduler.isScheduled(slot)) {
+						scheduler.schedule(slot, clock.now() + 1);
+					}
+				}
+			});
+
+			// Activity between position samples; these fire on the server thread, and for client-side calls too
+			ServerMessageEvents.CHAT_MESSAGE.register((message, sender, params) -> markActive(sender));
+			UseBlockCallback.EVENT.register((player, world, hand, hitResult) -> markActive(player));
+			UseItemCallback.EVENT.register((player, world, hand) -> markActive(player));
+			UseEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> markActive(player));
+			AttackBlockCallback.EVENT.register((player, world, hand, pos, direction) -> markActive(player));
+			AttackEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> markActive(player));
+
 	        ServerTickEvents.START_SERVER_TICK.register(this::onServerTick);
 	    }
 	
+		// Brings back sessions from before the last shutdown or crash, as if everyone disconnected when last seen
+		private void restoreSessions() {
+			if (journal != null) {
+				journal.close();
+			}
+			journal = new SessionJournal(DATA_DIR);
+			try {
+				Map<UUID, SessionJournal.Entry> restored = journal.open();
+				for (Map.Entry<UUID, SessionJournal.Entry> e : restored.entrySet()) {
+					int slot = sessions.acquire(e.getKey());
+					sessions.playtimeTicks[slot] = e.getValue().playtimeTicks();
+					sessions.disconnectMillis[slot] = e.getValue().lastSeenMillis();
+					sessions.creditedTicks[slot] = e.getValue().playtimeTicks(); // The history file already holds it
+					sessions.setFlag(slot, SessionStore.HAS_SAVED_PLAYTIME | SessionStore.DISCONNECTED);
+					expiry.schedule(slot, e.getValue().lastSeenMillis(), breakMillisOf(slot));
+				}
+				enforceTrackedCap(0);
+				System.out.println("[PlaytimeReminder] Restored " + restored.size() + " player sessions");
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Session persistence disabled: " + e.getMessage());
+				journal = null;
+			}
+		}
+
+		// Makes room under maxTrackedPlayers for incoming entries by evicting whoever disconnected longest ago.
+		// Online players are never evicted, so the cap can be exceeded while they alone fill it.
+		private void enforceTrackedCap(int incoming) {
+			int cap = config.maxTrackedPlayers;
+			int excess = sessions.size() + incoming - cap;
+			if (cap > 0 && excess > 0) {
+				metrics.add(PlaytimeMetrics.SESSIONS_EVICTED, expiry.evict(excess));
+			}
+		}
+
+		private void forget(int slot) {
+			if (journal != null) {
+				journal.record(SessionJournal.FORGET, sessions.ids[slot], clock.currentTimeMillis(), 0);
+			}
+			if (audit != null) {
+				audit.forget(sessions.ids[slot]);
+			}
+			if (queries != null) {
+				queries.forget(sessions.ids[slot]);
+			}
+			sessions.release(slot);
+		}
+
+		// A changed break duration moves every pending expiry
+		private void rescheduleExpiry() {
+			for (int slot = 0; slot < sessions.highWater(); slot++) {
+				if (expiry.isScheduled(slot)) {
+					expiry.schedule(slot, sessions.disconnectMillis[slot], breakMillisOf(slot));
+				}
+			}
+		}
+
+		private void openAuditLog() {
+			if (audit != null) {
+				audit.close();
+			}
+			audit = new AuditLog(DATA_DIR.resolve("audit"));
+			try {
+				audit.open();
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Audit log disabled: " + e.getMessage());
+				audit = null;
+			}
+			updater.setAuditLog(audit);
+		}
+
+		private void openHistory() {
+			if (history != null) {
+				history.close();
+			}
+			history = new PlaytimeHistory(DATA_DIR);
+			try {
+				history.open(clock.currentTimeMillis());
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Playtime history disabled: " + e.getMessage());
+				history = null;
+			}
+		}
+
+		private void openSharedSessions() {
+			if (shared != null) {
+				shared.close();
+				shared = null;
+			}
+			if (config.sharedSessionsFile.isBlank()) {
+				return;
+			}
+			shared = new SharedSessions(Paths.get(config.sharedSessionsFile));
+			try {
+				shared.open();
+			} catch (IOException e) {
+				System.err.println("[PlaytimeReminder] Shared sessions disabled: " + e.getMessage());
+				shared = null;
+			}
+		}
+
+		// Seeds the leaderboard index from the history file; runs once at startup, before the first tick
+		private void startQueries() {
+			if (queries != null) {
+				queries.close();
+			}
+			queries = new PlaytimeQueries();
+			if (history == null) {
+				return;
+			}
+			long nowMillis = clock.currentTimeMillis();
+			int count = history.size();
+			UUID[] ids = new UUID[count];
+			String[] names = new String[count];
+			int[][] totals = new int[count][];
+			for (int record = 0; record < count; record++) {
+				ids[record] = history.id(record);
+				names[record] = history.name(record);
+				totals[record] = new int[] {
+					history.minutesSince(record, dayStartMillis, nowMillis),
+					history.minutesSince(record, weekStartMillis, nowMillis),
+					history.minutesSince(record, monthStartMillis, nowMillis)
+				};
+			}
+			queries.rebuild(dayStartMillis, weekStartMillis, monthStartMillis, ids, names, totals);
+		}
+
+		private void checkpoint(int slot) {
+			ServerPlayer player = sessions.players[slot];
+			if (player == null) {
+				return;
+			}
+			long ticksPlayed = updater.sessionTicks(slot, clock.now());
+			creditPlaytime(slot, ticksPlayed);
+			if (journal != null) {
+				journal.record(SessionJournal.CHECKPOINT, player.getUUID(), clock.currentTimeMillis(), ticksPlayed);
+			}
+		}
+
+		// Moves whole minutes played since the last credit into the history; the remainder waits for the next one
+		private void creditPlaytime(int slot, long ticksPlayed) {
+			int minutes = (int) ((ticksPlayed - sessions.creditedTicks[slot]) / TICKS_PER_MINUTE);
+			if (minutes <= 0) {
+				return;
+			}
+			sessions.creditedTicks[slot] += (long) minutes * TICKS_PER_MINUTE;
+			sessions.dailyMinutes[slot] += minutes;
+			sessions.weeklyMinutes[slot] += minutes;
+			sessions.monthlyMinutes[slot] += minutes;
+			if (history != null && sessions.historyRecord[slot] != PlaytimeHistory.NO_RECORD) {
+				history.add(sessions.historyRecord[slot], clock.currentTimeMillis(), minutes);
+			}
+			if (queries != null) {
+				queries.update(sessions.ids[slot], sessions.dailyMinutes[slot], sessions.weeklyMinutes[slot], sessions.monthlyMinutes[slot]);
+			}
+		}
+
+		private void loadPeriodTotals(int slot) {
+			int record = sessions.historyRecord[slot];
+			if (history == null || record == PlaytimeHistory.NO_RECORD) {
+				sessions.dailyMinutes[slot] = 0;
+				sessions.weeklyMinutes[slot] = 0;
+				sessions.monthlyMinutes[slot] = 0;
+			} else {
+				long nowMillis = clock.currentTimeMillis();
+				sessions.dailyMinutes[slot] = history.minutesSince(record, dayStartMillis, nowMillis);
+				sessions.weeklyMinutes[slot] = history.minutesSince(record, weekStartMillis, nowMillis);
+				sessions.monthlyMinutes[slot] = history.minutesSince(record, monthStartMillis, nowMillis);
+			}
+			if (queries != null) {
+				queries.update(sessions.ids[slot], sessions.dailyMinutes[slot], sessions.weeklyMinutes[slot], sessions.monthlyMinutes[slot]);
+			}
+			updateLimit(slot);
+		}
+
+		// Converts the remaining daily/weekly/monthly allowance and the next curfew into a session tick for the scheduler
+		private void updateLimit(int slot) {
+			int remaining = Integer.MAX_VALUE;
+			if (config.dailyLimitMinutes > 0) remaining = Math.min(remaining, config.dailyLimitMinutes - sessions.dailyMinutes[slot]);
+			if (config.weeklyLimitMinutes > 0) remaining = Math.min(remaining, config.weeklyLimitMinutes - sessions.weeklyMinutes[slot]);
+			if (config.monthlyLimitMinutes > 0) remaining = Math.min(remaining, config.monthlyLimitMinutes - sessions.monthlyMinutes[slot]);
+			long limit = remaining == Integer.MAX_VALUE
+				? PlaytimeCore.NO_LIMIT
+				: sessions.creditedTicks[slot] + (long) Math.max(0, remaining) * TICKS_PER_MINUTE;
+
+			// A curfew is a limit at the tick its start is reached; one already in force kicks on the next processing
+			long nowMillis = clock.currentTimeMillis();
+			long curfewStart = curfews.nextStartMillis(updater.policyOf(slot).name(), nowMillis);
+			if (curfewStart != Long.MAX_VALUE) {
+				limit = Math.min(limit, updater.decisionTicks(slot, clock.now()) + Math.max(0, curfewStart - nowMillis) / 50);
+			}
+			sessions.limitTicksPlayed[slot] = limit;
+		}
+
+		// A curfew started, ended or is about to start: idle players it covers are woken so it can kick them,
+		// and everyone's limit is recomputed from the wall clock, which also corrects any drift of the tick count
+		private void applyCurfewTransition(MinecraftServer server, long nowMillis) {
+			curfews.advance(nowMillis);
+			for (int slot = 0; slot < sessions.highWater(); slot++) {
+				if (sessions.players[slot] == null) {
+					continue;
+				}
+				if (sessions.hasFlag(slot, SessionStore.IDLE) && curfews.inCurfew(updater.policyOf(slot).name(), nowMillis)) {
+					updater.markActive(slot, clock.now());
+				}
+				updateLimit(slot);
+			}
+			rescheduleOnlinePlayers(server);
+		}
+
+		// Credits online players and recomputes everyone's period totals, e.g. after midnight or a zone change
+		private void refreshPeriodTotals() {
+			ZonedDateTime now = Instant.ofEpochMilli(clock.currentTimeMillis()).atZone(clock.zone());
+			LocalDate today = now.toLocalDate();
+			dayStartMillis = today.atStartOfDay(clock.zone()).toInstant().toEpochMilli();
+			weekStartMillis = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay(clock.zone()).toInstant().toEpochMilli();
+			monthStartMillis = today.withDayOfMonth(1).atStartOfDay(clock.zone()).toInstant().toEpochMilli();
+			if (queries != null) {
+				queries.periodsChanged(dayStartMillis, weekStartMillis, monthStartMillis);
+			}
+
+			for (int slot = 0; slot < sessions.highWater(); slot++) {
+				if (sessions.players[slot] != null) {
+					creditPlaytime(slot, updater.sessionTicks(slot, clock.now()));
+					loadPeriodTotals(slot);
+				}
+			}
+		}
+
+		// With AFK detection switched off nothing would ever wake idle players, so they all resume now
+		private void wakeIdlePlayers(long now) {
+			for (int slot = 0; slot < sessions.highWater(); slot++) {
+				if (sessions.players[slot] != null) {
+					updater.markActive(slot, now);
+				}
+			}
+		}
+
 	    private void clearPlayerState() {
-	        playerJoinTick.clear();
-	        playerBossBar.clear();
-	        playerDisconnectTime.clear();
-	        playerPlaytimeTicks.clear();
-	        lastReminderMinute.clear();
-	        warned5min.clear();
-	        warned1min.clear();
-	        warned10s.clear();
-	        playerDailyPlaytime.clear();
-	        delayedJoinMessages.clear();
-	        currentServerTick = 0;
-	        lastDayOfMonth = -1;
+			sessions.clear();
+			scheduler.clear();
+			expiry.clear();
+			playersToKick.clear();
+			kickQueuedTicks.clear();
+			kickHead = 0;
+			display.reset();
+			clock.reset(PlaytimeClock.Accounting.parse(config.accountingMode), PlaytimeClock.parseZone(config.timeZone));
+			curfews = CurfewSchedule.compile(config.curfews, clock.zone(), clock.currentTimeMillis());
+			refreshPeriodTotals();
 	    }
 
-	    private long calculateNextKickTick(long ticksPlayed) {
-	        long strongReminderThresholdTicks = (long)config.strongReminderThresholdMinutes * TICKS_PER_MINUTE;
-	        long strongReminderRepeatTicks = (long)config.strongReminderRepeatMinutes * TICKS_PER_MINUTE;
-	        
-	        if (ticksPlayed < strongReminderThresholdTicks) {
-	            // Case 1: Approaching the first kick
-	            return strongReminderThresholdTicks;
-	        } else {
-	            // Case 2: After the first kick, calculating the next repeat kick
-	            long ticksOverThreshold = ticksPlayed - strongReminderThresholdTicks;
-	            long repeats = ticksOverThreshold / strongReminderRepeatTicks;
-	            long lastKickTick = strongReminderThresholdTicks + repeats * strongReminderRepeatTicks;
-	            return lastKickTick + strongReminderRepeatTicks;
-	        }
-	    }
+		private PlaytimePolicies.Policy resolvePolicy(ServerPlayer player) {
+			PlayerTeam team = player.getTeam();
+			return policies.resolve(player.getUUID(), player.getName().getString(), player::hasPermissions, team != null ? team.getName() : null);
+		}
+
+		// An unknown policy keeps the slot for the longest break any profile asks for, so nobody is forgotten early
+		private long breakMillisOf(int slot) {
+			PlaytimePolicies.Policy policy = sessions.policy[slot];
+			return policy != null ? policy.core().breakMillis : policies.longestBreakMillis();
+		}
+
+		// Moves every slot onto the freshly compiled policies: online players are resolved again, the rest keep their profile by name
+		private void reresolvePolicies() {
+			for (int slot = 0; slot < sessions.highWater(); slot++) {
+				if (sessions.players[slot] != null) {
+					sessions.policy[slot] = resolvePolicy(sessions.players[slot]);
+					updateLimit(slot); // Curfews can differ between profiles
+				} else if (sessions.policy[slot] != null) {
+					sessions.policy[slot] = policies.byName(sessions.policy[slot].name());
+				}
+			}
+		}
 	
 	    private void onServerTick(MinecraftServer server) {
-	        currentServerTick++;
-	
-	        // Check for day change
-	        Calendar now = Calendar.getInstance();
-	        int currentDayOfMonth = now.get(Calendar.DAY_OF_MONTH);
-	        if (lastDayOfMonth == -1) {
-	            lastDayOfMonth = currentDayOfMonth;
-	        } else if (currentDayOfMonth != lastDayOfMonth) {
-	            playerDailyPlaytime.clear();
-	            lastDayOfMonth = currentDayOfMonth;
-	        }
-	
-	        // Process delayed join messages (1 second delay = 20 ticks)
-	        if (currentServerTick % 20 == 0) {
-	            for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-	                UUID id = player.getUUID();
-	                String message = delayedJoinMessages.remove(id);
-	                if (message != null) {
-	                    player.sendSystemMessage(Component.literal(message).withStyle(ChatFormatting.RED));
-	                }
-	            }
-	        }
-	
-			java.util.List<ServerPlayer> playersToKick = new java.util.ArrayList<>();
-
-	        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-	            UUID id = player.getUUID();
-	            boolean isDelayedMessagePending = delayedJoinMessages.containsKey(id);
-	            Long joinTick = playerJoinTick.get(id);
-	            if (joinTick == null) {
-	                joinTick = currentServerTick; // fallback if missed join event
-	                playerJoinTick.put(id, joinTick);
-	            }
-	
-	            long ticksPlayed = currentServerTick - joinTick;
-	            int minutesPlayed = Math.max(0, (int) (ticksPlayed / TICKS_PER_MINUTE));
-	            int lastMinute = lastReminderMinute.getOrDefault(id, -1);
-	            
-	            // Update daily playtime
-	            int dailyMinutes = playerDailyPlaytime.getOrDefault(id, 0);
-	            if (minutesPlayed > 0 && minutesPlayed > dailyMinutes) {
-	                playerDailyPlaytime.put(id, minutesPlayed);
-	                dailyMinutes = minutesPlayed; // Update the local variable for the message
-	            }
-	            
-	            String dailyPlaytimeMessage = " (Total today: " + dailyMinutes + "m)";
-	
-	            // Strong reminder constants
-	            long strongReminderThresholdTicks = (long)config.strongReminderThresholdMinutes * TICKS_PER_MINUTE;
-	            long strongReminderRepeatTicks = (long)config.strongReminderRepeatMinutes * TICKS_PER_MINUTE;
-	
-	            // Regular reminders (once per minute)
-	            boolean isRegularReminderTick = ticksPlayed % TICKS_PER_MINUTE == 0 && minutesPlayed > 0 && minutesPlayed < config.strongReminderThresholdMinutes && minutesPlayed % config.reminderIntervalMinutes == 0 && minutesPlayed != lastMinute;
-	
-	            // Check if a strong reminder warning is due in this minute.
-	            // We only need to check if we are in the minute where a warning is sent.
-	            boolean isStrongWarningMinute = false;
-	            if (minutesPlayed < config.strongReminderThresholdMinutes) {
-	                // Approaching first kick
-	                long ticksUntilFirstKick = strongReminderThresholdTicks - ticksPlayed;
-	                long secondsUntilFirstKick = ticksUntilFirstKick / 20;
-	                if (secondsUntilFirstKick <= 300) {
-	                    isStrongWarningMinute = true;
-	                }
-	            } else {
-	                // Approaching a repeat kick
-	                long ticksOverThreshold = ticksPlayed - strongReminderThresholdTicks;
-	                long repeats = ticksOverThreshold / strongReminderRepeatTicks;
-	                long lastKickTick = strongReminderThresholdTicks + repeats * strongReminderRepeatTicks;
-	                long nextKickTick = lastKickTick + strongReminderRepeatTicks;
-	                long ticksUntilNextKick = nextKickTick - ticksPlayed;
-	                long secondsUntilNextKick = ticksUntilNextKick / 20;
-	                if (secondsUntilNextKick <= 300) {
-	                    isStrongWarningMinute = true;
-	                }
-	            }
-	
-	            if (isRegularReminderTick && !isStrongWarningMinute) {
-	                player.sendSystemMessage(Component.literal(config.regularMessagePrefix + minutesPlayed + config.regularMessageSuffix + dailyPlaytimeMessage));
-	                lastReminderMinute.put(id, minutesPlayed);
-	            }
-	
-	            // 1. Kick Check: Check if the threshold has been reached and if it's a scheduled kick time.
-	            if (minutesPlayed >= config.strongReminderThresholdMinutes) {
-	                long ticksOverThreshold = ticksPlayed - strongReminderThresholdTicks;
-	
-	                // Check if we are exactly on a kick tick (threshold or a multiple of repeat interval after threshold)
-	                if (ticksOverThreshold >= 0 && ticksOverThreshold % strongReminderRepeatTicks == 0) {
-						playersToKick.add(player);
-	                    System.out.println("[PlaytimeReminder] KICKED " + player.getName().getString() + " (Playtime: " + minutesPlayed + "m) - Kick time reached.");
-	
-	                    // Reset for next interval
-	                    warned5min.remove(id);
-	                    warned1min.remove(id);
-	                    warned10s.remove(id);
-	                    lastReminderMinute.put(id, minutesPlayed);
-	
-	                    // Continue to next player, as this player is now disconnected or about to be.
-	                    continue;
-	                }
-	            }
-	
-	            // 2. Warning Logic: Determine the next scheduled kick time for warnings.
-	            long nextKickTick;
-	            if (ticksPlayed < strongReminderThresholdTicks) {
-	                // Case 1: Approaching the first kick
-	                nextKickTick = strongReminderThresholdTicks;
-	            } else {
-	                // Case 2: After the first kick, calculating the next repeat kick
-	                long ticksOverThreshold = ticksPlayed - strongReminderThresholdTicks;
-	                long repeats = ticksOverThreshold / strongReminderRepeatTicks;
-	                long lastKickTick = strongReminderThresholdTicks + repeats * strongReminderRepeatTicks;
-	                nextKickTick = lastKickTick + strongReminderRepeatTicks;
-	            }
-	
-	            			long ticksUntilKick = nextKickTick - ticksPlayed;
-	            			long secondsUntilKick = ticksUntilKick / 20;
-
-	            			// Check if player has just joined (less than 3 seconds)
-	            			boolean isNewlyJoined = ticksPlayed < (20 * 3); // 60 ticks
-	            			
-	            			// Boss Bar Logic
-	            			ServerBossEvent bossBar = playerBossBar.get(id);
-	            			
-	            			if (secondsUntilKick <= 300 && secondsUntilKick > 0) {
-	            				float progress = (float)secondsUntilKick / 300.0f;
-	            				int minutesRemaining = (int) (secondsUntilKick / 60);
-	            				int secondsRemaining = (int) (secondsUntilKick % 60);
-	            				
-	            				String titleText = String.format(config.bossBarTitle, String.format("%d:%02d", minutesRemaining, secondsRemaining));
-	            				
-	            				if (bossBar == null) {
-	            					bossBar = new ServerBossEvent(
-	            						Component.literal(titleText), 
-	            						BossEvent.BossBarColor.RED, 
-	            						BossEvent.BossBarOverlay.PROGRESS
-	            					);
-	            					playerBossBar.put(id, bossBar);
-	            					bossBar.addPlayer(player);
-	            				} else {
-	            					bossBar.setName(Component.literal(titleText));
-	            					// Re-add player to boss bar for a few ticks after joining to ensure the packet is sent
-	            					if (isNewlyJoined) {
-	            						bossBar.addPlayer(player);
-	            					}
-	            				}
-	            				bossBar.setProgress(progress);
-	            			} else if (bossBar != null) {
-	            				// Remove boss bar if time is up or > 5 minutes away
-	            				bossBar.removePlayer(player);
-	            				playerBossBar.remove(id);
-	            			}
-	            
-	            			// Only send 5-min warning if kick is scheduled for 5 minutes or less, AND more than 1 minute away.
-	            			if (!isDelayedMessagePending && secondsUntilKick <= 300 && secondsUntilKick > 60 && !warned5min.getOrDefault(id, false)) {
-	            				player.sendSystemMessage(Component.literal(config.warningMessage5min + dailyPlaytimeMessage).withStyle(ChatFormatting.RED));
-	            				System.out.println("[PlaytimeReminder] 5-min warning sent to " + player.getName().getString() + " (Playtime: " + minutesPlayed + "m)");
-	            				warned5min.put(id, true);
-	            			}
-	            			
-	            			// Send 60-sec warning as a big on-screen title/subtitle message.
-	            			// This also serves as the 1-minute system message warning.
-	            			if (!isDelayedMessagePending && secondsUntilKick <= 60 && secondsUntilKick > 10 && !warned1min.getOrDefault(id, false)) {
-	            				// Send Title/Subtitle
-	            				player.connection.send(new ClientboundSetTitlesAnimationPacket(10, 70, 20)); // Fade in: 0.5s, Stay: 3.5s, Fade out: 1s
-	            				player.connection.send(new ClientboundSetTitleTextPacket(Component.literal("BREAK REMINDER").withStyle(ChatFormatting.RED, ChatFormatting.BOLD)));
-	            				player.connection.send(new ClientboundSetSubtitleTextPacket(Component.literal(config.warningMessage1min).withStyle(ChatFormatting.YELLOW)));
-	            				
-	            				player.sendSystemMessage(Component.literal(config.warningMessage1min + dailyPlaytimeMessage).withStyle(ChatFormatting.RED));
-	            				System.out.println("[PlaytimeReminder] 1-min warning sent to " + player.getName().getString() + " (Playtime: " + minutesPlayed + "m)");
-	            				warned1min.put(id, true);
-	            			}
-	            			
-	            			// Send 10-sec warning as a big on-screen title/subtitle message.
-	            			if (!isDelayedMessagePending && secondsUntilKick <= 10 && !warned10s.getOrDefault(id, false)) {
-	            				// Send Title/Subtitle
-	            				player.connection.send(new ClientboundSetTitlesAnimationPacket(10, 70, 20)); // Fade in: 0.5s, Stay: 3.5s, Fade out: 1s
-	            				player.connection.send(new ClientboundSetTitleTextPacket(Component.literal("BREAK REMINDER").withStyle(ChatFormatting.RED, ChatFormatting.BOLD)));
-	            				player.connection.send(new ClientboundSetSubtitleTextPacket(Component.literal(config.warningMessage10s).withStyle(ChatFormatting.YELLOW)));
-	            				
-	            				player.sendSystemMessage(Component.literal(config.warningMessage10s + dailyPlaytimeMessage).withStyle(ChatFormatting.RED));
-	            				System.out.println("[PlaytimeReminder] 10-sec warning sent to " + player.getName().getString() + " (Playtime: " + minutesPlayed + "m)");
-	            				warned10s.put(id, true);
-	            			}	        }
-			for (ServerPlayer player : playersToKick) {
-				long ticksPlayed = currentServerTick - playerJoinTick.get(player.getUUID());
-				int minutesPlayed = Math.max(0, (int) (ticksPlayed / TICKS_PER_MINUTE));
-				insistBreak(player, minutesPlayed);
+		long start = System.nanoTime();
+		boolean sampleAllocation = metrics.sampleAllocation(clock.serverTicks());
+		long allocatedBefore = sampleAllocation ? metrics.threadAllocatedBytes() : 0;
+
+		runTick(server);
+
+		metrics.setGauge(PlaytimeMetrics.TRACKED_PLAYERS, sessions.size());
+		metrics.setGauge(PlaytimeMetrics.ACTIVE_COUNTDOWNS, display.activeBars());
+		metrics.setGauge(PlaytimeMetrics.SCHEDULED_PLAYERS, scheduler.size());
+		metrics.setGauge(PlaytimeMetrics.PENDING_KICKS, playersToKick.size() - kickHead);
+		if (sampleAllocation) {
+			metrics.recordAllocation(metrics.threadAllocatedBytes() - allocatedBefore);
+		}
+		metrics.recordTick(System.nanoTime() - start);
+	}
+
+	private void runTick(MinecraftServer server) {
+		// Day rollover is a single comparison against the precomputed next local midnight
+		if (clock.tick()) {
+			refreshPeriodTotals();
+			rescheduleOnlinePlayers(server);
+		}
+		long now = clock.now();
+
+		// Pick up config changes from commands or the file watcher; a snapshot is never modified once published
+		Config latest = configs.current();
+		if (latest != config) {
+			config = latest;
+			messages = new MessageTemplates(config);
+			policies = PlaytimePolicies.compile(config);
+			updater.configure(config, messages, policies);
+			reresolvePolicies();
+			if (config.afkThresholdSeconds == 0) {
+				wakeIdlePlayers(now);
 			}
-	    }
+			if (!config.companionClients) {
+				// Back to server-driven countdowns; the reschedule below brings the boss bars back
+				Arrays.fill(sessions.companion, false);
+			}
+			clock.configure(PlaytimeClock.Accounting.parse(config.accountingMode), PlaytimeClock.parseZone(config.timeZone));
+			curfews = CurfewSchedule.compile(config.curfews, clock.zone(), clock.currentTimeMillis());
+			refreshPeriodTotals();
+			if (exporter != null) {
+				exporter.configure(config.metricsFile, config.metricsPort);
+			}
+			rescheduleOnlinePlayers(server);
+			rescheduleExpiry();
+		}
 
-	    private int setIntConfig(CommandSourceStack source, String fieldName, int value) {
-	        try {
-	            java.lang.reflect.Field field = Config.class.getDeclaredField(fieldName);
-	            field.setAccessible(true);
-	            field.set(config, value);
-	            saveConfig();
-	            source.sendSuccess(() -> Component.literal("Set config '" + fieldName + "' to " + value).withStyle(ChatFormatting.GREEN), true);
-	            return 1;
-	        } catch (NoSuchFieldException | IllegalAccessException e) {
-	            source.sendFailure(Component.literal("Failed to set config: " + e.getMessage()));
-	            return 0;
-	        }
+		// Curfews only cost a comparison against the next precomputed transition
+		if (clock.currentTimeMillis() >= curfews.nextTransitionMillis()) {
+			applyCurfewTransition(server, clock.currentTimeMillis());
+		}
+
+		// Each online slot is checkpointed once a minute, spread across the minute by slot index
+		for (int slot = (int) (clock.serverTicks() % TICKS_PER_MINUTE); slot < sessions.highWater(); slot += TICKS_PER_MINUTE) {
+			checkpoint(slot);
+		}
+
+		// Likewise each online player is sampled for activity once every afkSampleTicks
+		if (config.afkThresholdSeconds > 0) {
+			for (int slot = (int) (clock.serverTicks() % config.afkSampleTicks); slot < sessions.highWater(); slot += config.afkSampleTicks) {
+				sampleActivity(slot, now);
+			}
+		}
+
+		metrics.add(PlaytimeMetrics.SESSIONS_EXPIRED, expiry.expireDue(clock.currentTimeMillis()));
+
+		// Only players whose next event is due this tick are touched; everyone else is waiting in the scheduler.
+		// Due players and kicks share the tick's budget. Whatever does not fit stays queued in deadline order
+		// and goes first next tick, and anything maxLatenessSeconds overdue runs regardless of the budget.
+		budgetOperations = config.tickBudgetOperations > 0 ? config.tickBudgetOperations : Integer.MAX_VALUE;
+		budgetNanosDeadline = config.tickBudgetMicros > 0 ? System.nanoTime() + config.tickBudgetMicros * 1000L : Long.MAX_VALUE;
+		long overdueTick = now - (long) config.maxLatenessSeconds * 20;
+		// With many players the decisions of the whole tick are computed in parallel before any are carried out
+		boolean parallel = config.parallelDecideThreshold > 0 && scheduler.size() >= config.parallelDecideThreshold;
+		updater.beginTick();
+		boolean deferred = !runQueuedKicks(now, overdueTick);
+		while (!deferred) {
+			long dueTick = scheduler.peekDeadline();
+			if (dueTick > now) {
+				break;
+			}
+			if (dueTick > overdueTick && !takeBudget()) {
+				deferred = true;
+				break;
+			}
+			processDue(scheduler.pollDue(now), parallel);
+		}
+		// Overdue players still run once the budget is spent
+		while (deferred && scheduler.peekDeadline() <= overdueTick) {
+			metrics.increment(PlaytimeMetrics.WORK_FORCED);
+			processDue(scheduler.pollDue(overdueTick), parallel);
+		}
+		updater.finishTick(parallel, now);
+		if (!runQueuedKicks(now, overdueTick)) {
+			deferred = true;
+		}
+		if (deferred) {
+			metrics.increment(PlaytimeMetrics.TICKS_DEFERRED);
+		}
+	}
+
+	private void processDue(int slot, boolean parallel) {
+		if (sessions.players[slot] != null) {
+			updater.process(slot, parallel, clock.now());
+		}
+	}
+
+	// Spends one operation of the tick's budget; false once either budget is used up
+	private boolean takeBudget() {
+		if (budgetOperations <= 0 || System.nanoTime() >= budgetNanosDeadline) {
+			return false;
+		}
+		budgetOperations--;
+		return true;
+	}
+
+	// Carries out queued kicks in the order they were decided; returns false if some had to wait for the next tick
+	private boolean runQueuedKicks(long now, long overdueTick) {
+		boolean done = true;
+		while (kickHead < playersToKick.size()) {
+			if (!takeBudget()) {
+				if (kickQueuedTicks.getLong(kickHead) > overdueTick) {
+					done = false;
+					break;
+				}
+				metrics.increment(PlaytimeMetrics.WORK_FORCED);
+			}
+			int kickedSlot = playersToKick.getInt(kickHead++);
+			ServerPlayer player = sessions.players[kickedSlot];
+			if (player == null) {
+				continue;
+			}
+			long ticksPlayed = updater.sessionTicks(kickedSlot, now);
+			int minutesPlayed = PlaytimeCore.minutesPlayed(ticksPlayed);
+			insistBreak(player, kickedSlot, minutesPlayed);
+		}
+		if (kickHead == playersToKick.size()) {
+			playersToKick.clear();
+			kickQueuedTicks.clear();
+			kickHead = 0;
+		}
+		return done;
+	}
+
+	// A changed block position or view direction counts as activity; being pushed around within a block does not
+	private static long activitySample(ServerPlayer player) {
+		long sample = (long) Math.floor(player.getX()) * 31 + (long) Math.floor(player.getY());
+		sample = sample * 31 + (long) Math.floor(player.getZ());
+		sample = sample * 31 + Float.floatToIntBits(player.getYRot());
+		return sample * 31 + Float.floatToIntBits(player.getXRot());
+	}
+
+	private void sampleActivity(int slot, long now) {
+		ServerPlayer player = sessions.players[slot];
+		if (player == null) {
+			return;
+		}
+		long sample = activitySample(player);
+		if (sample != sessions.activitySample[slot]) {
+			sessions.activitySample[slot] = sample;
+			updater.markActive(slot, now);
+		} else if (!sessions.hasFlag(slot, SessionStore.IDLE) && now - sessions.lastActivityTick[slot] >= config.afkThresholdSeconds * 20L) {
+			updater.goIdle(slot, now);
+		}
+	}
+
+	private InteractionResult markActive(Player player) {
+		if (config.afkThresholdSeconds > 0 && player instanceof ServerPlayer) {
+			int slot = sessions.slotOf(player.getUUID());
+			if (slot != SessionStore.NO_SLOT && sessions.players[slot] != null) {
+				updater.markActive(slot, clock.now());
+			}
+		}
+		return InteractionResult.PASS;
+	}
+
+	private void rescheduleOnlinePlayers(MinecraftServer server) {
+		for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+			int slot = sessions.slotOf(player.getUUID());
+			if (slot != SessionStore.NO_SLOT && scheduler.isScheduled(slot)) {
+				scheduler.schedule(slot, clock.now() + 1);
+				sessions.companionKickTick[slot] = SessionStore.NOT_SENT; // The title or window may have changed too
+			}
+		}
+	}
+
+		private int setIntConfig(CommandSourceStack source, String fieldName, int value) {
+			return setConfigField(source, fieldName, value);
 	    }
 
 	    private int setBoolConfig(CommandSourceStack source, String fieldName, boolean value) {
+			return setConfigField(source, fieldName, value);
+		}
+
+		// The change is validated and swapped in as a new snapshot; the next tick applies it and the file is saved off-thread.
+		private int setConfigField(CommandSourceStack source, String fieldName, Object value) {
+			Field field;
 	        try {
-	            java.lang.reflect.Field field = Config.class.getDeclaredField(fieldName);
+				field = Config.class.getDeclaredField(fieldName);
 	            field.setAccessible(true);
-	            field.set(config, value);
-	            saveConfig();
-	            source.sendSuccess(() -> Component.literal("Set config '" + fieldName + "' to " + value).withStyle(ChatFormatting.GREEN), true);
-	            return 1;
-	        } catch (NoSuchFieldException | IllegalAccessException e) {
+			} catch (NoSuchFieldException e) {
 	            source.sendFailure(Component.literal("Failed to set config: " + e.getMessage()));
 	            return 0;
 	        }
+			List<String> problems = configs.update(next -> {
+				try {
+					field.set(next, value);
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			if (!problems.isEmpty()) {
+				source.sendFailure(Component.literal("Failed to set config: " + String.join("; ", problems)));
+				return 0;
+			}
+			source.sendSuccess(() -> Component.literal("Set config '" + fieldName + "' to " + value).withStyle(ChatFormatting.GREEN), true);
+			return 1;
 	    }
 
 	    private int getConfig(CommandSourceStack source) {
+			Config config = configs.current();
 	        source.sendSuccess(() -> Component.literal("--- Playtime Reminder Config ---").withStyle(ChatFormatting.YELLOW), false);
 	        source.sendSuccess(() -> Component.literal("  reminderIntervalMinutes: " + config.reminderIntervalMinutes), false);
 	        source.sendSuccess(() -> Component.literal("  strongReminderThresholdMinutes: " + config.strongReminderThresholdMinutes), false);
 	        source.sendSuccess(() -> Component.literal("  strongReminderRepeatMinutes: " + config.strongReminderRepeatMinutes), false);
 	        source.sendSuccess(() -> Component.literal("  breakDurationMinutes: " + config.breakDurationMinutes), false);
 	        source.sendSuccess(() -> Component.literal("  disconnectOnStrong: " + config.disconnectOnStrong), false);
+			source.sendSuccess(() -> Component.literal("  bossBarProgressSteps: " + config.bossBarProgressSteps), false);
+			source.sendSuccess(() -> Component.literal("  daily/weekly/monthly limit: " + config.dailyLimitMinutes + "/" + config.weeklyLimitMinutes + "/" + config.monthlyLimitMinutes + " minutes (0 = none)"), false);
+			source.sendSuccess(() -> Component.literal("----------------------------------").withStyle(ChatFormatting.YELLOW), false);
+			return 1;
+		}
+
+		private int getStats(CommandSourceStack source) {
+			source.sendSuccess(() -> Component.literal("--- Playtime Reminder Stats ---").withStyle(ChatFormatting.YELLOW), false);
+		source.sendSuccess(() -> Component.literal(String.format("  tick cost: mean %.1f us, p50 <%d us, p99 <%d us, max %d us (%d ticks)",
+				metrics.meanTickNanos() / 1000, metrics.tickQuantileNanos(0.5) / 1000, metrics.tickQuantileNanos(0.99) / 1000, metrics.maxTickNanos() / 1000, metrics.ticks())), false);
+		double allocated = metrics.allocatedBytesPerTick();
+		source.sendSuccess(() -> Component.literal(allocated < 0 ? "  allocation: not supported by this JVM" : String.format("  allocation: %.0f bytes/tick (sampled)", allocated)), false);
+		source.sendSuccess(() -> Component.literal("  tracked players: " + metrics.gauge(PlaytimeMetrics.TRACKED_PLAYERS) + " (cap " + (config.maxTrackedPlayers > 0 ? config.maxTrackedPlayers : "none") + "), active countdowns: " + metrics.gauge(PlaytimeMetrics.ACTIVE_COUNTDOWNS)), false);
+		source.sendSuccess(() -> Component.literal("  players with playtime history: " + (history != null ? history.size() : 0)), false);
+		source.sendSuccess(() -> Component.literal("  stale entries expired: " + metrics.counter(PlaytimeMetrics.SESSIONS_EXPIRED) + ", evicted over cap: " + metrics.counter(PlaytimeMetrics.SESSIONS_EVICTED)), false);
+		source.sendSuccess(() -> Component.literal("  reminders: " + metrics.counter(PlaytimeMetrics.REMINDERS) + ", kicks: " + metrics.counter(PlaytimeMetrics.KICKS)), false);
+		source.sendSuccess(() -> Component.literal("  warnings 5m/1m/10s: " + metrics.counter(PlaytimeMetrics.WARNINGS_5MIN) + "/" + metrics.counter(PlaytimeMetrics.WARNINGS_1MIN) + "/" + metrics.counter(PlaytimeMetrics.WARNINGS_10S)), false);
+		source.sendSuccess(() -> Component.literal("  boss bar updates: " + metrics.counter(PlaytimeMetrics.BOSS_BAR_UPDATES) + ", countdown packets sent: " + metrics.counter(PlaytimeMetrics.PACKETS_SENT)), false);
+		source.sendSuccess(() -> Component.literal("  boss bar progress updates saved by rounding: " + metrics.counter(PlaytimeMetrics.PACKETS_SKIPPED) + " (~" + metrics.counter(PlaytimeMetrics.BYTES_SKIPPED) / 1024 + " KiB)"), false);
+		source.sendSuccess(() -> Component.literal("  flushes saved by bundling: " + metrics.counter(PlaytimeMetrics.FLUSHES_SAVED)), false);
+		source.sendSuccess(() -> Component.literal("  audit events dropped: " + (audit != null ? audit.droppedEvents() : 0)), false);
 	        source.sendSuccess(() -> Component.literal("----------------------------------").withStyle(ChatFormatting.YELLOW), false);
 	        return 1;
 	    }
 
-	private void insistBreak(ServerPlayer player, int minutesPlayed) {
-		UUID id = player.getUUID();
-		ServerBossEvent bossBar = playerBossBar.remove(id);
-		if (bossBar != null) {
-			bossBar.removePlayer(player);
+	// The query runs on the query thread; only the replies come back to the server thread
+	private int showTop(CommandSourceStack source, int period, int count) {
+		if (queries == null) {
+			source.sendFailure(Component.literal("Playtime queries are not running"));
+			return 0;
 		}
-		
-		player.sendSystemMessage(Component.literal(config.strongMessagePrefix + minutesPlayed + config.strongMessageSuffix));
-		if (!config.disconnectOnStrong) {
-			return;
+		queries.top(period, count, source.getServer(), lines -> sendLines(source, lines));
+		return 1;
+	}
+
+	private int showHistory(CommandSourceStack source, String name) {
+		if (queries == null || history == null) {
+			source.sendFailure(Component.literal("Playtime history is not available"));
+			return 0;
 		}
-		player.connection.disconnect(Component.literal(config.disconnectMessage));
+		ServerPlayer online = source.getServer().getPlayerList().getPlayerByName(name);
+		UUID id = online != null ? online.getUUID() : history.idOf(name);
+		int record = id != null ? history.find(id) : PlaytimeHistory.NO_RECORD;
+		if (record == PlaytimeHistory.NO_RECORD) {
+			source.sendFailure(Component.literal("No playtime history for " + name));
+			return 0;
+		}
+		int slot = sessions.slotOf(id);
+		if (slot != SessionStore.NO_SLOT && sessions.players[slot] != null) {
+			creditPlaytime(slot, updater.sessionTicks(slot, clock.now()));
+		}
+		// A copy of the record's buckets (1320 bytes, both tiers) keeps the worker off the history file,
+		// which only the server thread touches; the day boundaries are worked out on the worker
+		byte[] buckets = new byte[PlaytimeHistory.BUCKETS];
+		long newestBucket = history.copyBuckets(record, buckets);
+		queries.history(name, buckets, newestBucket, clock.zone(), clock.currentTimeMillis(), source.getServer(), lines -> sendLines(source, lines));
+		return 1;
 	}
 
-	private void saveConfig() {
-		Path dir = Paths.get("config");
-		Path file = dir.resolve("playtime_reminder.json5");
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-		try {
-			if (!Files.exists(dir)) {
-				Files.createDirectories(dir);
+	private int showOnline(CommandSourceStack source) {
+		if (queries == null) {
+			source.sendFailure(Component.literal("Playtime queries are not running"));
+			return 0;
+		}
+		List<ServerPlayer> players = source.getServer().getPlayerList().getPlayers();
+		int count = players.size();
+		String[] names = new String[count];
+		int[] sessionMinutes = new int[count];
+		int[] todayMinutes = new int[count];
+		int[] secondsUntilKick = new int[count];
+		for (int i = 0; i < count; i++) {
+			ServerPlayer player = players.get(i);
+			names[i] = player.getName().getString();
+			secondsUntilKick[i] = -1;
+			int slot = sessions.slotOf(player.getUUID());
+			if (slot == SessionStore.NO_SLOT) {
+				continue;
 			}
-			try (Writer w = Files.newBufferedWriter(file)) {
-				gson.toJson(this.config, w);
+			long ticksPlayed = updater.sessionTicks(slot, clock.now());
+			sessionMinutes[i] = PlaytimeCore.minutesPlayed(ticksPlayed);
+			todayMinutes[i] = sessions.dailyMinutes[slot] + (int) ((ticksPlayed - sessions.creditedTicks[slot]) / TICKS_PER_MINUTE);
+			secondsUntilKick[i] = (int) updater.policyOf(slot).core().secondsUntilKick(updater.decisionTicks(slot, clock.now()), sessions.limitTicksPlayed[slot]);
+		}
+		queries.online(names, sessionMinutes, todayMinutes, secondsUntilKick, source.getServer(), lines -> sendLines(source, lines));
+		return 1;
+	}
+
+	private static void sendLines(CommandSourceStack source, List<String> lines) {
+		source.sendSuccess(() -> Component.literal(lines.get(0)).withStyle(ChatFormatting.YELLOW), false);
+		for (int i = 1; i < lines.size(); i++) {
+			String line = lines.get(i);
+			source.sendSuccess(() -> Component.literal(line), false);
+		}
+	}
+
+	// Recent lines are kept in memory for active players; anyone else is looked up in the audit files off-thread
+	private int showAudit(CommandSourceStack source, String name) {
+		if (audit == null) {
+			source.sendFailure(Component.literal("The audit log is not running"));
+			return 0;
+		}
+		ServerPlayer online = source.getServer().getPlayerList().getPlayerByName(name);
+		if (online != null) {
+			List<String> lines = audit.recentEvents(online.getUUID());
+			if (!lines.isEmpty()) {
+				sendAuditLines(source, name, lines);
+				return 1;
 			}
-		} catch (IOException e) {
-			// Keep defaults on error
 		}
+		audit.search(name, online != null ? online.getUUID() : null, source.getServer(), lines -> sendAuditLines(source, name, lines));
+		return 1;
 	}
 
-	private void loadConfig() {
-		Path dir = Paths.get("config");
-		Path newFile = dir.resolve("playtime_reminder.json5");
-		Path oldFile = dir.resolve("playtime_reminder.json");
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-		
-		// Keep a copy of the defaults for merging
-		Config defaults = new Config();
-		
-		try {
-			if (!Files.exists(dir)) {
-				Files.createDirectories(dir);
-			}
-			
-			// Helper to load and clean config content
-			java.util.function.Function<Path, Config> loadAndClean = (path) -> {
-				try {
-					String content = Files.readString(path);
-					// Regex to remove trailing commas: finds a comma followed by optional whitespace and a closing brace/bracket
-					content = content.replaceAll(",(\\s*[\\}\\]])", "$1");
-					return gson.fromJson(content, Config.class);
-				} catch (IOException e) {
-					System.err.println("[PlaytimeReminder] Error reading config file " + path + ": " + e.getMessage());
-					return null;
-				}
-			};
+	private void sendAuditLines(CommandSourceStack source, String name, List<String> lines) {
+		if (lines.isEmpty()) {
+			source.sendFailure(Component.literal("No audit events for " + name + " in the audit log"));
+			return;
+		}
+		source.sendSuccess(() -> Component.literal("--- Recent events for " + name + " ---").withStyle(ChatFormatting.YELLOW), false);
+		for (String line : lines) {
+			source.sendSuccess(() -> Component.literal("  " + line), false);
+		}
+	}
 
-			// 1. Check for and migrate old .json file
-			if (Files.exists(oldFile)) {
-				Config loaded = loadAndClean.apply(oldFile);
-				if (loaded != null) {
-					this.config = loaded;
-				}
-				// Delete old file after successful load
-				Files.delete(oldFile);
-				System.out.println("[PlaytimeReminder] Migrated config from .json to .json5");
-			}
-			
-			// 2. Load new .json5 file (or continue with defaults/migrated config)
-			if (Files.exists(newFile)) {
-				Config loaded = loadAndClean.apply(newFile);
-				
-				if (loaded != null) {
-					// Set the current config to the loaded one.
-					this.config = loaded;
-					
-					// Fill in any missing String fields with defaults (config migration).
-					if (this.config.regularMessagePrefix == null) this.config.regularMessagePrefix = defaults.regularMessagePrefix;
-					if (this.config.regularMessageSuffix == null) this.config.regularMessageSuffix = defaults.regularMessageSuffix;
-					if (this.config.strongMessagePrefix == null) this.config.strongMessagePrefix = defaults.strongMessagePrefix;
-					if (this.config.strongMessageSuffix == null) this.config.strongMessageSuffix = defaults.strongMessageSuffix;
-					if (this.config.disconnectMessage == null) this.config.disconnectMessage = defaults.disconnectMessage;
-					if (this.config.warningMessage5min == null) this.config.warningMessage5min = defaults.warningMessage5min;
-					if (this.config.warningMessage1min == null) this.config.warningMessage1min = defaults.warningMessage1min;
-					if (this.config.warningMessage10s == null) this.config.warningMessage10s = defaults.warningMessage10s;
-					if (this.config.bossBarTitle == null) this.config.bossBarTitle = defaults.bossBarTitle; // New config
-				}
+	private int listPolicies(CommandSourceStack source) {
+		Map<PlaytimePolicies.Policy, Integer> online = new HashMap<>();
+		for (int slot = 0; slot < sessions.highWater(); slot++) {
+			if (sessions.players[slot] != null) {
+				online.merge(updater.policyOf(slot), 1, Integer::sum);
+			}
+		}
+		source.sendSuccess(() -> Component.literal("--- Playtime Policies ---").withStyle(ChatFormatting.YELLOW), false);
+		for (PlaytimePolicies.Policy policy : policies.all()) {
+			PlaytimeCore core = policy.core();
+			int players = online.getOrDefault(policy, 0);
+			source.sendSuccess(() -> Component.literal("  " + policy.name() + ": reminder every " + core.reminderIntervalMinutes + "m, kick at " + core.strongReminderThresholdMinutes
+				+ "m then every " + core.strongReminderRepeatTicks / TICKS_PER_MINUTE + "m, break " + policy.breakDurationMinutes() + "m"
+				+ (policy.disconnectOnStrong() ? "" : ", no disconnect") + " (" + players + " online)"), false);
+		}
+		source.sendSuccess(() -> Component.literal("  " + policies.ruleCount() + " rules, " + config.playerPolicies.size() + " assigned players"), false);
+		return 1;
+	}
+
+	private int showPolicy(CommandSourceStack source, String name) {
+		ServerPlayer player = source.getServer().getPlayerList().getPlayerByName(name);
+		int slot = player != null ? sessions.slotOf(player.getUUID()) : SessionStore.NO_SLOT;
+		if (slot == SessionStore.NO_SLOT) {
+			source.sendFailure(Component.literal(name + " is not online"));
+			return 0;
+		}
+		String policyName = updater.policyOf(slot).name();
+		source.sendSuccess(() -> Component.literal(name + " is on the '" + policyName + "' policy"), false);
+		return 1;
+	}
+
+	// Stored in the config like any other setting; the next tick compiles it and resolves online players again
+	private int assignPolicy(CommandSourceStack source, String name, String profile) {
+		List<String> problems = configs.update(next -> {
+			next.playerPolicies.keySet().removeIf(key -> key.equalsIgnoreCase(name));
+			if (profile != null) {
+				next.playerPolicies.put(name, profile);
 			}
-			
-			// Always save the config after loading/merging to persist any new default values, 
-			// or to create the file if it didn't exist.
-			saveConfig();
-			
-		} catch (IOException e) {
-			// Keep defaults on error
-			System.err.println("[PlaytimeReminder] Error loading or migrating config: " + e.getMessage());
+		});
+		if (!problems.isEmpty()) {
+			source.sendFailure(Component.literal("Failed to assign policy: " + String.join("; ", problems)));
+			return 0;
+		}
+		String message = profile != null ? "Assigned policy '" + profile + "' to " + name : "Removed the policy assignment for " + name;
+		source.sendSuccess(() -> Component.literal(message).withStyle(ChatFormatting.GREEN), true);
+		return 1;
+	}
+
+	// Drops every cached policy, e.g. after permission levels or teams changed
+	private int refreshPolicies(CommandSourceStack source) {
+		reresolvePolicies();
+		rescheduleOnlinePlayers(source.getServer());
+		source.sendSuccess(() -> Component.literal("Resolved policies again for online players").withStyle(ChatFormatting.GREEN), true);
+		return 1;
+	}
+
+	private void insistBreak(ServerPlayer player, int slot, int minutesPlayed) {
+		display.hide(slot);
+
+		// Limits and curfews are hard: the player is disconnected whatever disconnectOnStrong says
+		if (sessions.hasFlag(slot, SessionStore.LIMIT_REACHED)) {
+			// A second's slack covers a kick decided a tick ahead of the curfew's wall-clock start
+			boolean curfew = curfews.inCurfew(updater.policyOf(slot).name(), clock.currentTimeMillis() + 1000);
+			player.connection.disconnect(Component.literal(curfew ? config.curfewMessage : config.limitReachedMessage));
+			return;
+		}
+
+		player.sendSystemMessage(messages.strong.render(minutesPlayed, 0, 0));
+		if (!updater.policyOf(slot).disconnectOnStrong()) {
+			return;
+		}
+		player.connection.disconnect(Component.literal(config.disconnectMessage));
+	}
+
+	// Sends the effects of SessionUpdater's decisions to the players they are about
+	private final class ServerOutput implements SessionUpdater.Output {
+		@Override
+		public void sendMessage(int slot, Component message) {
+			sessions.players[slot].sendSystemMessage(message);
+		}
+
+		@Override
+		public void sendTitle(int slot, Component title, Component subtitle) {
+			sessions.players[slot].connection.send(new ClientboundBundlePacket(List.of(
+				new ClientboundSetTitlesAnimationPacket(10, 70, 20), // Fade in: 0.5s, Stay: 3.5s, Fade out: 1s
+				new ClientboundSetTitleTextPacket(title),
+				new ClientboundSetSubtitleTextPacket(subtitle)
+			)));
+		}
+
+		@Override
+		public BossEvent addBar(int slot, Component label, float progress) {
+			ServerBossEvent bossBar = new ServerBossEvent(label, BossEvent.BossBarColor.RED, BossEvent.BossBarOverlay.PROGRESS);
+			bossBar.setProgress(progress);
+			bossBar.addPlayer(sessions.players[slot]);
+			return bossBar;
+		}
+
+		@Override
+		public void removeBar(int slot, BossEvent bar) {
+			((ServerBossEvent) bar).removePlayer(sessions.players[slot]);
+		}
+
+		@Override
+		public void sendSchedule(int slot, SchedulePayload payload) {
+			ServerPlayNetworking.send(sessions.players[slot], payload);
+		}
+
+		@Override
+		public void queueKick(int slot, long decidedTick) {
+			playersToKick.add(slot);
+			kickQueuedTicks.add(decidedTick);
 		}
 	}
 
+	// Published snapshots are shared between threads and must not be modified; see ConfigService.
+	// Message texts are shown as written; reminders add the minutes and daily total around them, and bossBarTitle takes the time as %s.
 	public static final class Config {
 		public int reminderIntervalMinutes = 30; // default for testing
 		public int strongReminderThresholdMinutes = 120;
@@ -534,5 +1127,54 @@ public final class PlaytimeReminderMod implements ModInitializer {
 		public String warningMessage1min = "You will be kicked in 1 minute.";
 		public String warningMessage10s = "[Break Enforcement] You will be kicked in 10s.";
 		public String bossBarTitle = "Break Reminder: %s remaining"; // New config for boss bar title
+		public int bossBarProgressSteps = 300; // How finely the boss bar progress moves over the 5 minute countdown; 300 = every second
+		public String timeZone = ""; // Zone for the daily rollover, e.g. "Europe/London"; empty uses the system zone
+		public String accountingMode = "ticks"; // "ticks" counts server ticks, "wallclock" counts real time even when the server lags
+		public String metricsFile = ""; // Prometheus text file rewritten every 15s, e.g. for node_exporter's textfile collector; empty disables
+		public int metricsPort = 0; // Serves Prometheus metrics on http://localhost:<port>/metrics; 0 disables
+		public int dailyLimitMinutes = 0; // Total playtime allowed per calendar day in timeZone; 0 = no limit
+		public int weeklyLimitMinutes = 0; // Per calendar week, starting Monday; 0 = no limit
+		public int monthlyLimitMinutes = 0; // Per calendar month; 0 = no limit
+		public String limitReachedMessage = "You've reached your playtime limit. Please come back later.";
+		public int maxTrackedPlayers = 100000; // Hard cap on remembered players; the longest-disconnected are evicted first. 0 = no cap
+		public int tickBudgetOperations = 0; // Most player updates and kicks per tick; the rest wait for later ticks. 0 = no limit
+		public int tickBudgetMicros = 0; // Most time per tick spent on player updates and kicks; 0 = no limit
+		public int maxLatenessSeconds = 3; // Work this far past its deadline runs even when over budget
+		public int afkThresholdSeconds = 0; // Playtime stops counting after this long without movement, looking around, chat or interaction; 0 = off
+		public int afkSampleTicks = 20; // How often each player's position and view are compared with the last sample
+		public boolean companionClients = true; // Players with the companion client get one schedule message instead of server-driven countdown packets
+		public int parallelDecideThreshold = 0; // Scheduled players at which each tick's decisions are computed on a fork/join pool; 0 = always serial
+		public int deadlineJitterSeconds = 0; // Spreads each player's reminders, warnings and kick by a fixed offset up to this many seconds
+		public Map<String, PolicyProfile> policyProfiles = new LinkedHashMap<>(); // Named overrides of the five limits above, e.g. "staff" or "minors"
+		public List<PolicyRule> policyRules = new ArrayList<>(); // Checked in order on join; the first match picks the profile, otherwise "default"
+		public Map<String, String> playerPolicies = new LinkedHashMap<>(); // Player name or UUID -> profile, ahead of the rules; see /playtime policy assign
+		public List<Curfew> curfews = new ArrayList<>(); // Quiet hours in timeZone; players are warned like for a limit and kicked when one starts
+		public String curfewMessage = "It's curfew time. Please come back later.";
+		public String sharedSessionsFile = ""; // Session table shared by servers on this host so breaks follow players between them; read at startup, empty disables
+
+		// Fields left out (null) fall back to the global value
+		public static final class PolicyProfile {
+			public Integer reminderIntervalMinutes;
+			public Integer strongReminderThresholdMinutes;
+			public Integer strongReminderRepeatMinutes;
+			public Integer breakDurationMinutes;
+			public Boolean disconnectOnStrong;
+		}
+
+		// A window that starts at start on each of days and ends at end, the next day if end is not after start
+		public static final class Curfew {
+			public List<String> days; // Day names, e.g. "FRIDAY"; left out = every day
+			public String start; // "HH:mm"
+			public String end; // "HH:mm"
+			public List<String> profiles; // Policy profiles it applies to; left out = everyone
+		}
+
+		// Every condition that is set must hold
+		public static final class PolicyRule {
+			public String profile;
+			public Integer minPermissionLevel; // Op level the player must have, 0-4
+			public List<String> players; // Names or UUIDs
+			public String team; // Scoreboard team name
+		}
 	}
 }
@@ -0,0 +1,68 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated single-producer, single-consumer ring of fixed five-long records. The producer never
+ * blocks or allocates: when the ring is full the record is dropped and counted instead.
+ */
+final class RecordRing {
+	static final int RECORD_LONGS = 5;
+
+	private final long[] buffer;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(); // Next record the consumer reads
+	private final AtomicLong tail = new AtomicLong(); // Next record the producer writes
+	private final AtomicLong dropped = new AtomicLong();
+
+	/** @param capacity number of records, rounded up to a power of two */
+	RecordRing(int capacity) {
+		int records = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.buffer = new long[records * RECORD_LONGS];
+		this.mask = records - 1;
+	}
+
+	boolean offer(long a, long b, long c, long d, long e) {
+		long t = tail.get();
+		if (t - head.get() > mask) {
+			dropped.lazySet(dropped.get() + 1);
+			return false;
+		}
+		int base = (int) (t & mask) * RECORD_LONGS;
+		buffer[base] = a;
+		buffer[base + 1] = b;
+		buffer[base + 2] = c;
+		buffer[base + 3] = d;
+		buffer[base + 4] = e;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/** Copies the oldest record into {@code into} and returns true, or returns false when the ring is empty. */
+	boolean poll(long[] into) {
+		long h = head.get();
+		if (h == tail.get()) {
+			return false;
+		}
+		int base = (int) (h & mask) * RECORD_LONGS;
+		System.arraycopy(buffer, base, into, 0, RECORD_LONGS);
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+	long dropped() {
+		return dropped.get();
+	}
+}
@@ -0,0 +1,55 @@
+package com.mattmurphy.playtimereminder;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Server-to-client {@code playtime_reminder:schedule} message for companion clients. It is sent whenever
+ * the player's next kick moves (join, rejoin with restored playtime, a kick, a config or policy change,
+ * going idle or coming back) or the client's countdown would have drifted from the server's. The client
+ * counts down locally from receipt with a {@link CompanionCountdown} and draws the boss bar and the
+ * 1-minute and 10-second titles itself, so the server sends no countdown packets to it.
+ *
+ * <p>Wire format, version 1: varint version, varint seconds until the kick ({@link #NONE} clears the
+ * countdown), byte reason ({@link #BREAK} or {@link #LIMIT}, which picks the client's title template),
+ * varint countdown window in seconds, varint boss bar progress steps, and the server's boss bar title
+ * format, with {@code %s} for the remaining m:ss. A message of any other version is skipped whole and
+ * reads as a cleared schedule, so a client never misreads a format it does not know.
+ */
+record SchedulePayload(int secondsUntilKick, int reason, int countdownSeconds, int progressSteps, String bossBarTitle) implements CustomPacketPayload {
+	static final int VERSION = 1;
+	static final int NONE = -1;
+	static final int BREAK = 0;
+	static final int LIMIT = 1;
+
+	static final CustomPacketPayload.Type<SchedulePayload> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath("playtime_reminder", "schedule"));
+	static final StreamCodec<FriendlyByteBuf, SchedulePayload> CODEC = StreamCodec.of(SchedulePayload::write, SchedulePayload::read);
+
+	static SchedulePayload cleared() {
+		return new SchedulePayload(NONE, BREAK, 0, 0, "");
+	}
+
+	@Override
+	public CustomPacketPayload.Type<SchedulePayload> type() {
+		return TYPE;
+	}
+
+	private static void write(FriendlyByteBuf buf, SchedulePayload payload) {
+		buf.writeVarInt(VERSION);
+		buf.writeVarInt(payload.secondsUntilKick);
+		buf.writeByte(payload.reason);
+		buf.writeVarInt(payload.countdownSeconds);
+		buf.writeVarInt(payload.progressSteps);
+		buf.writeUtf(payload.bossBarTitle);
+	}
+
+	private static SchedulePayload read(FriendlyByteBuf buf) {
+		if (buf.readVarInt() != VERSION) {
+			buf.skipBytes(buf.readableBytes());
+			return cleared();
+		}
+		return new SchedulePayload(buf.readVarInt(), buf.readByte(), buf.readVarInt(), buf.readVarInt(), buf.readUtf());
+	}
+}
@@ -0,0 +1,82 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Decides when the session slots of disconnected players are forgotten. A slot comes due once the
+ * player's break has passed, after which a rejoin would reset its state anyway, and only a few due slots
+ * are released per tick so a burst of expiries is spread out instead of stalling one tick. Over the
+ * tracked-player cap, the players who disconnected longest ago are evicted first, whatever their break
+ * length. Online players are never scheduled, so they are never forgotten. Server thread only.
+ */
+final class SessionExpiry {
+	// Stale entries released per tick, so a burst of expiries is spread out instead of stalling one tick
+	static final int EXPIRIES_PER_TICK = 16;
+
+	private final DeadlineScheduler expiry = new DeadlineScheduler(); // Wall-clock millis after which a disconnected slot can be forgotten
+	private final DeadlineScheduler disconnected = new DeadlineScheduler(); // Wall-clock millis each slot disconnected, for eviction order
+	private final IntConsumer forget;
+
+	/** @param forget releases a slot and everything held for its player */
+	SessionExpiry(IntConsumer forget) {
+		this.forget = forget;
+	}
+
+	/** Starts the countdown to forgetting a slot whose player just left, or moves it after a break change. */
+	void schedule(int slot, long disconnectMillis, long breakMillis) {
+		expiry.schedule(slot, disconnectMillis + breakMillis);
+		disconnected.schedule(slot, disconnectMillis);
+	}
+
+	/** The player is back, so the slot stays. */
+	void cancel(int slot) {
+		expiry.cancel(slot);
+		disconnected.cancel(slot);
+	}
+
+	boolean isScheduled(int slot) {
+		return expiry.isScheduled(slot);
+	}
+
+	int size() {
+		return expiry.size();
+	}
+
+	void clear() {
+		expiry.clear();
+		disconnected.clear();
+	}
+
+	/** Forgets at most {@link #EXPIRIES_PER_TICK} slots whose break has run out; returns how many. */
+	int expireDue(long nowMillis) {
+		int expired = 0;
+		while (expired < EXPIRIES_PER_TICK) {
+			int slot = expiry.pollDue(nowMillis);
+			if (slot < 0) {
+				break;
+			}
+			disconnected.cancel(slot);
+			forget.accept(slot);
+			expired++;
+		}
+		return expired;
+	}
+
+	/**
+	 * Forgets up to {@code count} disconnected slots to make room under the tracked-player cap, the
+	 * longest disconnected first; returns how many. Fewer go when fewer players are disconnected.
+	 */
+	int evict(int count) {
+		int evicted = 0;
+		while (evicted < count) {
+			int slot = disconnected.pollDue(Long.MAX_VALUE);
+			if (slot < 0) {
+				break;
+			}
+			expiry.cancel(slot);
+			forget.accept(slot);
+			evicted++;
+		}
+		return evicted;
+	}
+}
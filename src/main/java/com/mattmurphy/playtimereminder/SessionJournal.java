@@ -0,0 +1,253 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind persistence for session state. The server thread only drops fixed-size events into a
+ * {@link RecordRing}; a background thread appends them to a binary journal, folds them into its own
+ * copy of the state and periodically compacts that copy into a snapshot. At startup the snapshot is
+ * memory-mapped and the journal replayed on top of it.
+ */
+final class SessionJournal {
+	static final long JOIN = 1;
+	static final long DISCONNECT = 2;
+	static final long CHECKPOINT = 3;
+	static final long FORGET = 4; // The player's state expired or was evicted; drop it from the snapshot
+
+	private static final int SNAPSHOT_MAGIC = 0x50545353; // "PTSS"
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final int SNAPSHOT_HEADER_BYTES = 12;
+	private static final int SNAPSHOT_RECORD_BYTES = 32;
+	private static final int JOURNAL_RECORD_BYTES = 37; // type, uuid, wall millis, ticks played, crc32
+	private static final long COMPACT_JOURNAL_BYTES = 4L * 1024 * 1024;
+	private static final long COMPACT_INTERVAL_MILLIS = 5 * 60 * 1000;
+	private static final long FORCE_INTERVAL_MILLIS = 1000;
+
+	/** Last known state of one player; playtimeTicks is the session ticks played as of lastSeenMillis. */
+	record Entry(long playtimeTicks, long lastSeenMillis) {
+	}
+
+	private final Path snapshotFile;
+	private final Path journalFile;
+	private final RecordRing ring = new RecordRing(1 << 16);
+	private final Map<UUID, Entry> state = new HashMap<>();
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(JOURNAL_RECORD_BYTES * 1024);
+	private final CRC32 crc = new CRC32();
+
+	private FileChannel journal;
+	private Thread writer;
+	private volatile boolean running;
+
+	SessionJournal(Path dir) {
+		this.snapshotFile = dir.resolve("sessions.snapshot");
+		this.journalFile = dir.resolve("sessions.journal");
+	}
+
+	/**
+	 * Restores the snapshot plus journal, compacts them and starts the writer thread. Returns an immutable
+	 * copy of the restored state, since the writer thread keeps changing its own map from then on.
+	 */
+	Map<UUID, Entry> open() throws IOException {
+		Files.createDirectories(snapshotFile.getParent());
+		state.clear();
+		loadSnapshot();
+		replayJournal();
+		writeSnapshot();
+		Map<UUID, Entry> restored = Map.copyOf(state);
+
+		journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		running = true;
+		writer = new Thread(this::runWriter, "PlaytimeReminder-Journal");
+		writer.setDaemon(true);
+		writer.start();
+		return restored;
+	}
+
+	/** Called from the server thread; never blocks. */
+	void record(long type, UUID id, long wallMillis, long ticksPlayed) {
+		ring.offer(type, id.getMostSignificantBits(), id.getLeastSignificantBits(), wallMillis, ticksPlayed);
+	}
+
+	long droppedEvents() {
+		return ring.dropped();
+	}
+
+	/** Drains outstanding events, writes a final snapshot and stops the writer thread. */
+	void close() {
+		Thread thread = writer;
+		if (thread == null) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(10_000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+	}
+
+	private void runWriter() {
+		long[] event = new long[RecordRing.RECORD_LONGS];
+		long lastForce = System.currentTimeMillis();
+		long lastCompact = lastForce;
+		try {
+			while (running || !ring.isEmpty()) {
+				boolean wrote = false;
+				while (ring.poll(event)) {
+					append(event);
+					apply(event[0], new UUID(event[1], event[2]), event[3], event[4]);
+					wrote = true;
+				}
+				flush();
+
+				long millis = System.currentTimeMillis();
+				if (wrote && millis - lastForce >= FORCE_INTERVAL_MILLIS) {
+					journal.force(false);
+					lastForce = millis;
+				}
+				if (journal.size() >= COMPACT_JOURNAL_BYTES || (millis - lastCompact >= COMPACT_INTERVAL_MILLIS && journal.size() > 0)) {
+					compact();
+					lastCompact = millis;
+				}
+				if (!wrote && running) {
+					LockSupport.parkNanos(10_000_000L);
+				}
+			}
+			compact();
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Session journal stopped: " + e.getMessage());
+		} finally {
+			try {
+				journal.close();
+			} catch (IOException ignored) {
+				// Nothing left to do
+			}
+		}
+	}
+
+	private void append(long[] event) throws IOException {
+		if (writeBuffer.remaining() < JOURNAL_RECORD_BYTES) {
+			flush();
+		}
+		int start = writeBuffer.position();
+		writeBuffer.put((byte) event[0]);
+		writeBuffer.putLong(event[1]);
+		writeBuffer.putLong(event[2]);
+		writeBuffer.putLong(event[3]);
+		writeBuffer.putLong(event[4]);
+		crc.reset();
+		crc.update(writeBuffer.array(), start, JOURNAL_RECORD_BYTES - 4);
+		writeBuffer.putInt((int) crc.getValue());
+	}
+
+	private void flush() throws IOException {
+		writeBuffer.flip();
+		while (writeBuffer.hasRemaining()) {
+			journal.write(writeBuffer);
+		}
+		writeBuffer.clear();
+	}
+
+	private void compact() throws IOException {
+		flush();
+		journal.force(false);
+		writeSnapshot();
+		// The snapshot now holds everything, so the journal can start over
+		journal.truncate(0);
+		journal.position(0);
+	}
+
+	private void apply(long type, UUID id, long wallMillis, long ticksPlayed) {
+		if (type == FORGET) {
+			state.remove(id);
+			return;
+		}
+		// Events carry absolute values, so replaying one that is already in the snapshot is harmless
+		state.put(id, new Entry(ticksPlayed, wallMillis));
+	}
+
+	private void loadSnapshot() throws IOException {
+		if (!Files.exists(snapshotFile)) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < SNAPSHOT_HEADER_BYTES) {
+				return;
+			}
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (map.getInt() != SNAPSHOT_MAGIC || map.getInt() != SNAPSHOT_VERSION) {
+				System.err.println("[PlaytimeReminder] Ignoring unrecognised session snapshot " + snapshotFile);
+				return;
+			}
+			int count = map.getInt();
+			if (SNAPSHOT_HEADER_BYTES + (long) count * SNAPSHOT_RECORD_BYTES > size) {
+				System.err.println("[PlaytimeReminder] Session snapshot is truncated, ignoring it");
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				UUID id = new UUID(map.getLong(), map.getLong());
+				state.put(id, new Entry(map.getLong(), map.getLong()));
+			}
+		}
+	}
+
+	private void replayJournal() throws IOException {
+		if (!Files.exists(journalFile)) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size == 0) {
+				return;
+			}
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			byte[] record = new byte[JOURNAL_RECORD_BYTES];
+			ByteBuffer view = ByteBuffer.wrap(record);
+			while (map.remaining() >= JOURNAL_RECORD_BYTES) {
+				map.get(record);
+				crc.reset();
+				crc.update(record, 0, JOURNAL_RECORD_BYTES - 4);
+				if ((int) crc.getValue() != view.getInt(JOURNAL_RECORD_BYTES - 4)) {
+					// A torn write from a crash; nothing after it can be trusted
+					break;
+				}
+				apply(record[0], new UUID(view.getLong(1), view.getLong(9)), view.getLong(17), view.getLong(25));
+			}
+		}
+	}
+
+	private void writeSnapshot() throws IOException {
+		Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES + state.size() * SNAPSHOT_RECORD_BYTES);
+		buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(state.size());
+		for (Map.Entry<UUID, Entry> e : state.entrySet()) {
+			buffer.putLong(e.getKey().getMostSignificantBits());
+			buffer.putLong(e.getKey().getLeastSignificantBits());
+			buffer.putLong(e.getValue().playtimeTicks());
+			buffer.putLong(e.getValue().lastSeenMillis());
+		}
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,275 @@
+package com.mattmurphy.playtimereminder;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.BossEvent;
+
+/**
+ * Per-player session state in one place. Each tracked UUID gets a dense slot index at JOIN and every
+ * field lives in a primitive column indexed by that slot, so the tick path does a single UUID lookup
+ * (or none, when it already holds the slot) and never boxes a value.
+ */
+final class SessionStore {
+	static final int NO_SLOT = -1;
+
+	// Flag bits
+	static final int WARNED_5MIN = PlaytimeCore.WARNED_5MIN;
+	static final int WARNED_1MIN = PlaytimeCore.WARNED_1MIN;
+	static final int WARNED_10S = PlaytimeCore.WARNED_10S;
+	static final int WARNED_MASK = WARNED_5MIN | WARNED_1MIN | WARNED_10S;
+	static final int HAS_JOIN_TICK = 1 << 3;
+	static final int HAS_SAVED_PLAYTIME = 1 << 4; // playtimeTicks holds the session from before the last disconnect
+	static final int DISCONNECTED = 1 << 5; // disconnectMillis is valid
+	static final int LIMIT_REACHED = 1 << 6; // Being kicked for a daily/weekly/monthly limit rather than a break
+	static final int IDLE = 1 << 7; // AFK since idleSinceTick; the session clock is stopped
+	static final long NOT_SENT = Long.MIN_VALUE; // companionKickTick before a schedule was sent this session
+
+	// Slot columns
+	long[] joinTick; // Session timeline tick the current session started at
+	long[] lastTicksPlayed; // Session ticks played as of the last time the slot was processed
+	long[] playtimeTicks; // Ticks played in the session before last disconnect
+	long[] disconnectMillis; // Wall-clock time the player disconnected
+	int[] lastReminderMinute;
+	int[] dailyMinutes; // Minutes credited to the history today, this week and this month
+	int[] weeklyMinutes;
+	int[] monthlyMinutes;
+	long[] creditedTicks; // Session ticks already credited to the history
+	long[] limitTicksPlayed; // Session ticks played at which the tightest playtime limit runs out
+	int[] historyRecord; // Record in PlaytimeHistory, or PlaytimeHistory.NO_RECORD
+	long[] lastActivityTick; // Session timeline tick of the last movement, chat or interaction seen
+	long[] activitySample; // Block position and view direction at the last activity sample
+	long[] idleSinceTick; // Session timeline tick the player went idle, while IDLE is set
+	boolean[] companion; // Has the companion client, which draws the countdown from SchedulePayload
+	long[] companionKickTick; // Session timeline kick tick last sent to the companion client, or NOT_SENT
+	long[] companionDeadlineMillis; // Wall-clock time the companion client expects the kick at
+	PlaytimePolicies.Policy[] policy; // Resolved on join; null for sessions restored before the player rejoined
+	byte[] flags;
+	UUID[] ids;
+	ServerPlayer[] players; // Non-null while online
+	BossEvent[] bossBars; // The countdown bar shown to the player, from SessionUpdater.Output.addBar
+	String[] delayedJoinMessages; // Messages to send after a short delay
+	long[] delayedMessageTick; // Session timeline tick the delayed join message is due at
+
+	// Open-addressing UUID -> slot index with linear probing
+	private long[] keyMost;
+	private long[] keyLeast;
+	private int[] keySlot; // NO_SLOT marks an empty bucket
+	private int mask;
+
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+	private int highWater; // Slots below this have been handed out at least once
+	private int size;
+
+	SessionStore() {
+		allocateColumns(64);
+		allocateIndex(128);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Exclusive upper bound of slot indices that may be in use. */
+	int highWater() {
+		return highWater;
+	}
+
+	int slotOf(UUID id) {
+		long most = id.getMostSignificantBits();
+		long least = id.getLeastSignificantBits();
+		for (int i = mix(most, least) & mask; ; i = (i + 1) & mask) {
+			int slot = keySlot[i];
+			if (slot == NO_SLOT) {
+				return NO_SLOT;
+			}
+			if (keyMost[i] == most && keyLeast[i] == least) {
+				return slot;
+			}
+		}
+	}
+
+	/** Returns the slot for {@code id}, assigning a fresh or recycled one if the UUID is not tracked yet. */
+	int acquire(UUID id) {
+		int existing = slotOf(id);
+		if (existing != NO_SLOT) {
+			return existing;
+		}
+
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (highWater == ids.length) {
+				allocateColumns(ids.length * 2);
+			}
+			slot = highWater++;
+		}
+		resetSlot(slot);
+		ids[slot] = id;
+
+		if ((size + 1) * 2 > keySlot.length) {
+			allocateIndex(keySlot.length * 2);
+		}
+		insertKey(id.getMostSignificantBits(), id.getLeastSignificantBits(), slot);
+		size++;
+		return slot;
+	}
+
+	/** Forgets a slot entirely and makes it available for reuse. */
+	void release(int slot) {
+		UUID id = ids[slot];
+		if (id == null) {
+			return;
+		}
+		removeKey(id.getMostSignificantBits(), id.getLeastSignificantBits());
+		resetSlot(slot);
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+		size--;
+	}
+
+	void clear() {
+		for (int slot = 0; slot < highWater; slot++) {
+			resetSlot(slot);
+		}
+		Arrays.fill(keySlot, NO_SLOT);
+		highWater = 0;
+		freeCount = 0;
+		size = 0;
+	}
+
+	boolean hasFlag(int slot, int flag) {
+		return (flags[slot] & flag) != 0;
+	}
+
+	void setFlag(int slot, int flag) {
+		flags[slot] |= (byte) flag;
+	}
+
+	void clearFlag(int slot, int flag) {
+		flags[slot] &= (byte) ~flag;
+	}
+
+	private void resetSlot(int slot) {
+		joinTick[slot] = 0;
+		lastTicksPlayed[slot] = 0;
+		playtimeTicks[slot] = 0;
+		disconnectMillis[slot] = 0;
+		lastReminderMinute[slot] = -1;
+		dailyMinutes[slot] = 0;
+		weeklyMinutes[slot] = 0;
+		monthlyMinutes[slot] = 0;
+		creditedTicks[slot] = 0;
+		limitTicksPlayed[slot] = PlaytimeCore.NO_LIMIT;
+		historyRecord[slot] = PlaytimeHistory.NO_RECORD;
+		lastActivityTick[slot] = 0;
+		activitySample[slot] = 0;
+		idleSinceTick[slot] = 0;
+		companion[slot] = false;
+		companionKickTick[slot] = NOT_SENT;
+		companionDeadlineMillis[slot] = 0;
+		policy[slot] = null;
+		flags[slot] = 0;
+		ids[slot] = null;
+		players[slot] = null;
+		bossBars[slot] = null;
+		delayedJoinMessages[slot] = null;
+		delayedMessageTick[slot] = 0;
+	}
+
+	private void allocateColumns(int capacity) {
+		joinTick = joinTick == null ? new long[capacity] : Arrays.copyOf(joinTick, capacity);
+		lastTicksPlayed = lastTicksPlayed == null ? new long[capacity] : Arrays.copyOf(lastTicksPlayed, capacity);
+		playtimeTicks = playtimeTicks == null ? new long[capacity] : Arrays.copyOf(playtimeTicks, capacity);
+		disconnectMillis = disconnectMillis == null ? new long[capacity] : Arrays.copyOf(disconnectMillis, capacity);
+		lastReminderMinute = lastReminderMinute == null ? new int[capacity] : Arrays.copyOf(lastReminderMinute, capacity);
+		dailyMinutes = dailyMinutes == null ? new int[capacity] : Arrays.copyOf(dailyMinutes, capacity);
+		weeklyMinutes = weeklyMinutes == null ? new int[capacity] : Arrays.copyOf(weeklyMinutes, capacity);
+		monthlyMinutes = monthlyMinutes == null ? new int[capacity] : Arrays.copyOf(monthlyMinutes, capacity);
+		creditedTicks = creditedTicks == null ? new long[capacity] : Arrays.copyOf(creditedTicks, capacity);
+		limitTicksPlayed = limitTicksPlayed == null ? new long[capacity] : Arrays.copyOf(limitTicksPlayed, capacity);
+		historyRecord = historyRecord == null ? new int[capacity] : Arrays.copyOf(historyRecord, capacity);
+		lastActivityTick = lastActivityTick == null ? new long[capacity] : Arrays.copyOf(lastActivityTick, capacity);
+		activitySample = activitySample == null ? new long[capacity] : Arrays.copyOf(activitySample, capacity);
+		idleSinceTick = idleSinceTick == null ? new long[capacity] : Arrays.copyOf(idleSinceTick, capacity);
+		companion = companion == null ? new boolean[capacity] : Arrays.copyOf(companion, capacity);
+		companionKickTick = companionKickTick == null ? new long[capacity] : Arrays.copyOf(companionKickTick, capacity);
+		companionDeadlineMillis = companionDeadlineMillis == null ? new long[capacity] : Arrays.copyOf(companionDeadlineMillis, capacity);
+		policy = policy == null ? new PlaytimePolicies.Policy[capacity] : Arrays.copyOf(policy, capacity);
+		flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+		ids = ids == null ? new UUID[capacity] : Arrays.copyOf(ids, capacity);
+		players = players == null ? new ServerPlayer[capacity] : Arrays.copyOf(players, capacity);
+		bossBars = bossBars == null ? new BossEvent[capacity] : Arrays.copyOf(bossBars, capacity);
+		delayedJoinMessages = delayedJoinMessages == null ? new String[capacity] : Arrays.copyOf(delayedJoinMessages, capacity);
+		delayedMessageTick = delayedMessageTick == null ? new long[capacity] : Arrays.copyOf(delayedMessageTick, capacity);
+	}
+
+	private void allocateIndex(int capacity) {
+		long[] oldMost = keyMost;
+		long[] oldLeast = keyLeast;
+		int[] oldSlot = keySlot;
+
+		keyMost = new long[capacity];
+		keyLeast = new long[capacity];
+		keySlot = new int[capacity];
+		Arrays.fill(keySlot, NO_SLOT);
+		mask = capacity - 1;
+
+		if (oldSlot != null) {
+			for (int i = 0; i < oldSlot.length; i++) {
+				if (oldSlot[i] != NO_SLOT) {
+					insertKey(oldMost[i], oldLeast[i], oldSlot[i]);
+				}
+			}
+		}
+	}
+
+	private void insertKey(long most, long least, int slot) {
+		int i = mix(most, least) & mask;
+		while (keySlot[i] != NO_SLOT) {
+			i = (i + 1) & mask;
+		}
+		keyMost[i] = most;
+		keyLeast[i] = least;
+		keySlot[i] = slot;
+	}
+
+	private void removeKey(long most, long least) {
+		int i = mix(most, least) & mask;
+		while (keySlot[i] != NO_SLOT) {
+			if (keyMost[i] == most && keyLeast[i] == least) {
+				break;
+			}
+			i = (i + 1) & mask;
+		}
+		if (keySlot[i] == NO_SLOT) {
+			return;
+		}
+
+		// Backward-shift deletion keeps probe chains intact without tombstones
+		int hole = i;
+		for (int j = (hole + 1) & mask; keySlot[j] != NO_SLOT; j = (j + 1) & mask) {
+			int home = mix(keyMost[j], keyLeast[j]) & mask;
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keyMost[hole] = keyMost[j];
+				keyLeast[hole] = keyLeast[j];
+				keySlot[hole] = keySlot[j];
+				hole = j;
+			}
+		}
+		keySlot[hole] = NO_SLOT;
+	}
+
+	private static int mix(long most, long least) {
+		long h = most ^ least;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+}
@@ -0,0 +1,308 @@
+package com.mattmurphy.playtimereminder;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.BossEvent;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/**
+ * The per-player part of a tick, shared by the mod and the headless benchmarks. A due player's inputs are
+ * copied into the tick's {@link DecisionBatch}, the batch is decided by the {@link PlaytimeCore} of each
+ * player's policy, and each decision is carried out on the {@link SessionStore}: messages rendered from
+ * the {@link MessageTemplates}, the countdown handed to the {@link CountdownDisplay} or synced to a
+ * companion client, and the next deadline scheduled. Only what actually reaches a player goes through {@link Output}, which the mod
+ * implements with packets and the benchmarks with counters. Server thread only.
+ */
+final class SessionUpdater {
+	// A companion client's countdown is corrected once it is this far from the server's, e.g. when the server lags
+	private static final long COMPANION_DRIFT_MILLIS = 2000;
+	private static final int TICKS_PER_MINUTE = PlaytimeCore.TICKS_PER_MINUTE;
+
+	/** Where the effects of a decision leave the server. Slots passed in are online. */
+	interface Output {
+		void sendMessage(int slot, Component message);
+
+		/** Sends the title animation, title and subtitle so the client applies them in one frame. */
+		void sendTitle(int slot, Component title, Component subtitle);
+
+		/** Creates a countdown bar already at {@code progress} and shows it to the player. */
+		BossEvent addBar(int slot, Component label, float progress);
+
+		void removeBar(int slot, BossEvent bar);
+
+		/** A kick decided on {@code decidedTick}, to be carried out once the tick's budget allows. */
+		void queueKick(int slot, long decidedTick);
+
+		void sendSchedule(int slot, SchedulePayload payload);
+	}
+
+	final CountdownDisplay display;
+
+	private final SessionStore sessions;
+	private final DeadlineScheduler scheduler;
+	private final PlaytimeClock clock;
+	private final PlaytimeMetrics metrics;
+	private final Output output;
+	private final DecisionBatch batch = new DecisionBatch(); // Due players of the current tick, decided before anything is sent
+
+	private Config config;
+	private MessageTemplates messages;
+	private PlaytimePolicies policies;
+	private AuditLog audit; // Null when the audit log is not running
+
+	SessionUpdater(SessionStore sessions, DeadlineScheduler scheduler, PlaytimeClock clock, PlaytimeMetrics metrics, Output output) {
+		this.sessions = sessions;
+		this.scheduler = scheduler;
+		this.clock = clock;
+		this.metrics = metrics;
+		this.output = output;
+		this.display = new CountdownDisplay(sessions, metrics, output);
+	}
+
+	/** Switches to a new config snapshot and what was compiled from it. */
+	void configure(Config config, MessageTemplates messages, PlaytimePolicies policies) {
+		this.config = config;
+		this.messages = messages;
+		this.policies = policies;
+	}
+
+	void setAuditLog(AuditLog audit) {
+		this.audit = audit;
+	}
+
+	void close() {
+		batch.close();
+	}
+
+	/** Starts a tick's batch of due players. */
+	void beginTick() {
+		batch.clear();
+	}
+
+	/**
+	 * Decides and carries out one due player right away, or with {@code parallel} only prepares them for
+	 * {@link #finishTick}. A player's next event is never due in the tick it was processed, so batching a
+	 * tick changes nothing.
+	 */
+	void process(int slot, boolean parallel, long now) {
+		if (!parallel) {
+			batch.clear();
+		}
+		prepare(slot, now);
+		if (!parallel) {
+			batch.decide(false);
+			apply(0, now);
+		}
+	}
+
+	/** With {@code parallel}, decides the whole tick's batch on the fork/join pool and carries it out. */
+	void finishTick(boolean parallel, long now) {
+		if (parallel) {
+			batch.decide(true);
+			for (int i = 0; i < batch.size; i++) {
+				apply(i, now);
+			}
+		}
+	}
+
+	// Policy for the decisions about a slot; players restored from the journal have none until they rejoin
+	PlaytimePolicies.Policy policyOf(int slot) {
+		PlaytimePolicies.Policy policy = sessions.policy[slot];
+		return policy != null ? policy : policies.defaultPolicy();
+	}
+
+	// Deterministic per-player offset below deadlineJitterSeconds, so players who joined together come due apart
+	long jitterTicks(int slot) {
+		int range = config.deadlineJitterSeconds * 20;
+		return range == 0 ? 0 : Math.floorMod(sessions.ids[slot].hashCode() * 0x9E3779B9, range);
+	}
+
+	// Session ticks as seen by reminders, warnings and kicks: the real session, held back by the player's jitter
+	long decisionTicks(int slot, long now) {
+		return Math.max(0, sessionTicks(slot, now) - jitterTicks(slot));
+	}
+
+	// Ticks the current session counts for; while a player is idle their session clock stands still
+	long sessionTicks(int slot, long now) {
+		return (sessions.hasFlag(slot, SessionStore.IDLE) ? sessions.idleSinceTick[slot] : now) - sessions.joinTick[slot];
+	}
+
+	// Gone idle: the session clock stops and nothing is scheduled until the player is back
+	void goIdle(int slot, long now) {
+		sessions.setFlag(slot, SessionStore.IDLE);
+		sessions.idleSinceTick[slot] = now;
+		scheduler.cancel(slot);
+		display.hide(slot);
+		if (sessions.companion[slot]) {
+			output.sendSchedule(slot, SchedulePayload.cleared());
+			sessions.companionKickTick[slot] = SessionStore.NOT_SENT;
+			metrics.increment(PlaytimeMetrics.COMPANION_SCHEDULES);
+		}
+		metrics.increment(PlaytimeMetrics.AFK_PERIODS);
+	}
+
+	// Coming back from idle moves the join tick forward by the idle time, so the schedule picks up where it stopped
+	void markActive(int slot, long now) {
+		sessions.lastActivityTick[slot] = now;
+		if (sessions.hasFlag(slot, SessionStore.IDLE)) {
+			sessions.joinTick[slot] += now - sessions.idleSinceTick[slot];
+			sessions.clearFlag(slot, SessionStore.IDLE);
+			scheduler.schedule(slot, now + 1);
+		}
+	}
+
+	// Phase one: anything with side effects that the decision depends on, then the decision's inputs
+	private void prepare(int slot, long now) {
+		// Delayed join messages go out on the next whole second (1 second delay = 20 ticks)
+		String message = sessions.delayedJoinMessages[slot];
+		if (message != null && now >= sessions.delayedMessageTick[slot]) {
+			sessions.delayedJoinMessages[slot] = null;
+			output.sendMessage(slot, Component.literal(message).withStyle(ChatFormatting.RED));
+		}
+
+		boolean isDelayedMessagePending = sessions.delayedJoinMessages[slot] != null;
+		if (!sessions.hasFlag(slot, SessionStore.HAS_JOIN_TICK)) {
+			sessions.joinTick[slot] = now; // fallback if missed join event
+			sessions.lastTicksPlayed[slot] = 0;
+			sessions.setFlag(slot, SessionStore.HAS_JOIN_TICK);
+		}
+		long ticksPlayed = decisionTicks(slot, now);
+
+		int i = batch.add(slot);
+		batch.cores[i] = policyOf(slot).core();
+		batch.ticksPlayed[i] = ticksPlayed;
+		// Ticks played when this slot was last processed. With wall-clock accounting a slot can be processed
+		// a little after its deadline, so every check asks whether a boundary was crossed since then.
+		batch.previousTicksPlayed[i] = sessions.lastTicksPlayed[slot];
+		batch.lastReminderMinute[i] = sessions.lastReminderMinute[slot];
+		batch.warnedFlags[i] = sessions.flags[slot] & SessionStore.WARNED_MASK;
+		batch.messagePending[i] = isDelayedMessagePending;
+		batch.limitTicksPlayed[i] = sessions.limitTicksPlayed[slot];
+		sessions.lastTicksPlayed[slot] = ticksPlayed;
+	}
+
+	// Phase two: carries out one decision of the batch
+	private void apply(int i, long now) {
+		int slot = batch.slots[i];
+		PlaytimeCore core = batch.cores[i];
+		long ticksPlayed = batch.ticksPlayed[i];
+		long limitTicksPlayed = batch.limitTicksPlayed[i];
+		int actions = batch.actions[i];
+		boolean companion = sessions.companion[slot];
+		int minutesPlayed = PlaytimeCore.minutesPlayed(ticksPlayed);
+		// Credited minutes plus the whole minutes played since the last credit
+		int dailyMinutes = sessions.dailyMinutes[slot] + (int) ((sessionTicks(slot, now) - sessions.creditedTicks[slot]) / TICKS_PER_MINUTE);
+
+		// 1. Kick Check
+		if ((actions & PlaytimeCore.KICK) != 0) {
+			output.queueKick(slot, now);
+			metrics.increment(PlaytimeMetrics.KICKS);
+			audit(AuditLog.KICK, slot, minutesPlayed);
+
+			// Reset for next interval
+			sessions.clearFlag(slot, SessionStore.WARNED_MASK);
+			sessions.lastReminderMinute[slot] = minutesPlayed;
+
+			// A limit kick always disconnects, and the limit stays due until then, so it is not scheduled again.
+			// Otherwise the player stays online when disconnectOnStrong is off, so their next interval still needs scheduling.
+			if ((actions & PlaytimeCore.LIMIT) != 0) {
+				sessions.setFlag(slot, SessionStore.LIMIT_REACHED);
+			} else {
+				if (companion) {
+					syncCompanion(slot, core, ticksPlayed, limitTicksPlayed);
+				}
+				scheduleNext(slot, ticksPlayed);
+			}
+			return;
+		}
+
+		// 2. Warning Logic
+		int secondsUntilKick = (int) core.secondsUntilKick(ticksPlayed, limitTicksPlayed);
+
+		// Regular reminders (once per minute)
+		if ((actions & PlaytimeCore.REMINDER) != 0) {
+			output.sendMessage(slot, messages.regular.render(minutesPlayed, 0, dailyMinutes));
+			metrics.increment(PlaytimeMetrics.REMINDERS);
+			audit(AuditLog.REMINDER, slot, minutesPlayed);
+			sessions.lastReminderMinute[slot] = minutesPlayed;
+		}
+
+		// Boss Bar Logic; companion clients draw their own from the schedule
+		if (companion) {
+			syncCompanion(slot, core, ticksPlayed, limitTicksPlayed);
+		} else if ((actions & PlaytimeCore.SHOW_BAR) != 0) {
+			Component titleText = messages.bossBarTitle.render(0, secondsUntilKick, 0);
+			display.show(slot, titleText, secondsUntilKick, PlaytimeCore.COUNTDOWN_SECONDS, config.bossBarProgressSteps);
+		} else {
+			// Remove boss bar if time is up or > 5 minutes away
+			display.hide(slot);
+		}
+
+		if ((actions & PlaytimeCore.WARN_5MIN) != 0) {
+			output.sendMessage(slot, messages.warning5min.render(minutesPlayed, secondsUntilKick, dailyMinutes));
+			audit(AuditLog.WARNING_5MIN, slot, minutesPlayed);
+			sessions.setFlag(slot, SessionStore.WARNED_5MIN);
+			metrics.increment(PlaytimeMetrics.WARNINGS_5MIN);
+		}
+
+		// Send 60-sec warning as a big on-screen title/subtitle message.
+		// This also serves as the 1-minute system message warning.
+		if ((actions & PlaytimeCore.WARN_1MIN) != 0) {
+			if (!companion) {
+				display.sendTitle(slot, messages.titleText, messages.subtitle1min);
+			}
+
+			output.sendMessage(slot, messages.warning1min.render(minutesPlayed, secondsUntilKick, dailyMinutes));
+			audit(AuditLog.WARNING_1MIN, slot, minutesPlayed);
+			sessions.setFlag(slot, SessionStore.WARNED_1MIN);
+			metrics.increment(PlaytimeMetrics.WARNINGS_1MIN);
+		}
+
+		// Send 10-sec warning as a big on-screen title/subtitle message.
+		if ((actions & PlaytimeCore.WARN_10S) != 0) {
+			if (!companion) {
+				display.sendTitle(slot, messages.titleText, messages.subtitle10s);
+			}
+
+			output.sendMessage(slot, messages.warning10s.render(minutesPlayed, secondsUntilKick, dailyMinutes));
+			audit(AuditLog.WARNING_10S, slot, minutesPlayed);
+			sessions.setFlag(slot, SessionStore.WARNED_10S);
+			metrics.increment(PlaytimeMetrics.WARNINGS_10S);
+		}
+
+		scheduleNext(slot, ticksPlayed);
+	}
+
+	// Fixed-size record into the audit ring; formatting and file IO happen on the audit thread
+	void audit(int type, int slot, int minutesPlayed) {
+		if (audit != null) {
+			audit.record(type, sessions.ids[slot], clock.now(), minutesPlayed, clock.currentTimeMillis());
+		}
+	}
+
+	private void scheduleNext(int slot, long ticksPlayed) {
+		long dueTick = sessions.joinTick[slot] + jitterTicks(slot) + policyOf(slot).core().nextDueTicksPlayed(ticksPlayed, sessions.limitTicksPlayed[slot]);
+		if (sessions.delayedJoinMessages[slot] != null) {
+			// Warnings wait for the delayed join message, which goes out on the next whole second.
+			dueTick = Math.min(dueTick, Math.max(sessions.delayedMessageTick[slot], clock.now() + 1));
+		}
+		scheduler.schedule(slot, dueTick);
+	}
+
+	// Sends a companion client the kick deadline when it moved, or when the client's countdown has drifted from the server's
+	private void syncCompanion(int slot, PlaytimeCore core, long ticksPlayed, long limitTicksPlayed) {
+		long kickTicksPlayed = core.nextKickTick(ticksPlayed, limitTicksPlayed);
+		long kickTick = sessions.joinTick[slot] + jitterTicks(slot) + kickTicksPlayed;
+		long deadlineMillis = clock.currentTimeMillis() + (kickTicksPlayed - ticksPlayed) * 50;
+		if (kickTick == sessions.companionKickTick[slot] && Math.abs(deadlineMillis - sessions.companionDeadlineMillis[slot]) < COMPANION_DRIFT_MILLIS) {
+			return;
+		}
+		int seconds = (int) Math.min(Integer.MAX_VALUE, (kickTicksPlayed - ticksPlayed) / 20);
+		int reason = kickTicksPlayed == limitTicksPlayed ? SchedulePayload.LIMIT : SchedulePayload.BREAK;
+		output.sendSchedule(slot, new SchedulePayload(seconds, reason, PlaytimeCore.COUNTDOWN_SECONDS, config.bossBarProgressSteps, config.bossBarTitle));
+		sessions.companionKickTick[slot] = kickTick;
+		sessions.companionDeadlineMillis[slot] = deadlineMillis;
+		metrics.increment(PlaytimeMetrics.COMPANION_SCHEDULES);
+	}
+}
@@ -0,0 +1,214 @@
+package com.mattmurphy.playtimereminder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Session table shared by every server instance on the host, so a break or kick on one backend follows the
+ * player to the others. It is a memory-mapped file of fixed-size entries (uuid, ticks played, disconnect
+ * time), split into stripes that each hold an open-addressed table of their own. A read or write locks
+ * only the player's stripe with an OS file lock, so instances touching different players never wait on
+ * each other. It is only used on join and disconnect; between those the local {@link SessionStore} is
+ * the cache. Server thread only.
+ */
+final class SharedSessions {
+	private static final int MAGIC = 0x50545348; // "PTSH"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int ENTRY_BYTES = 32; // uuid, ticks played, disconnect millis
+	private static final int STRIPES = 64;
+	private static final int ENTRIES_PER_STRIPE = 1024;
+	private static final int STRIPE_BYTES = ENTRIES_PER_STRIPE * ENTRY_BYTES;
+	private static final long FILE_BYTES = HEADER_BYTES + (long) STRIPES * STRIPE_BYTES;
+
+	/** What another instance last saw of a player. */
+	record Entry(long ticksPlayed, long disconnectMillis) {
+	}
+
+	private final Path file;
+	private FileChannel channel;
+	private MappedByteBuffer map;
+
+	SharedSessions(Path file) {
+		this.file = file;
+	}
+
+	void open() throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		// Whoever gets here first lays out the file; the others wait on the header lock and find it ready
+		FileLock headerLock = channel.lock(0, HEADER_BYTES, false);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			channel.read(header, 0);
+			header.flip();
+			boolean valid = channel.size() >= FILE_BYTES && header.getInt() == MAGIC && header.getInt() == VERSION
+				&& header.getInt() == STRIPES && header.getInt() == ENTRIES_PER_STRIPE;
+			// Mapping only ever grows the file. It is never truncated, since another instance may still have it
+			// mapped and would fault on the missing pages.
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+			if (!valid) {
+				if (header.limit() > 0) {
+					System.err.println("[PlaytimeReminder] Resetting unrecognised shared session table " + file);
+					clearEntries();
+				}
+				map.putInt(0, MAGIC);
+				map.putInt(4, VERSION);
+				map.putInt(8, STRIPES);
+				map.putInt(12, ENTRIES_PER_STRIPE);
+			}
+		} finally {
+			release(headerLock);
+		}
+	}
+
+	// Zeroes every stripe in place, holding all of their locks so no instance reads a half-cleared entry
+	private void clearEntries() throws IOException {
+		FileLock entriesLock = channel.lock(HEADER_BYTES, FILE_BYTES - HEADER_BYTES, false);
+		try {
+			byte[] zeros = new byte[STRIPE_BYTES];
+			for (int stripe = 0; stripe < STRIPES; stripe++) {
+				map.put(stripeOffset(stripe), zeros);
+			}
+		} finally {
+			release(entriesLock);
+		}
+	}
+
+	void close() {
+		if (map != null) {
+			map.force();
+			map = null;
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// Nothing left to do
+			}
+			channel = null;
+		}
+	}
+
+	/** The player's last shared disconnect, or null if no instance has recorded one. */
+	Entry read(UUID id) {
+		int stripe = stripe(id);
+		FileLock lock = null;
+		try {
+			lock = lockStripe(stripe);
+			int at = find(stripe, id, false);
+			if (at < 0 || !matches(at, id)) {
+				return null;
+			}
+			return new Entry(map.getLong(at + 16), map.getLong(at + 24));
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Could not read shared session: " + e.getMessage());
+			return null;
+		} finally {
+			release(lock);
+		}
+	}
+
+	/** Publishes a disconnect so every instance continues from it. */
+	void write(UUID id, long ticksPlayed, long disconnectMillis) {
+		int stripe = stripe(id);
+		FileLock lock = null;
+		try {
+			lock = lockStripe(stripe);
+			int at = find(stripe, id, true);
+			map.putLong(at, id.getMostSignificantBits());
+			map.putLong(at + 8, id.getLeastSignificantBits());
+			map.putLong(at + 16, ticksPlayed);
+			map.putLong(at + 24, disconnectMillis);
+		} catch (IOException e) {
+			System.err.println("[PlaytimeReminder] Could not write shared session: " + e.getMessage());
+		} finally {
+			release(lock);
+		}
+	}
+
+	/**
+	 * Takes over a joining player's session from another instance if they left it more recently than this
+	 * one, as a saved session for the break logic to decide on. Returns whether it did.
+	 */
+	boolean adopt(SessionStore sessions, int slot) {
+		Entry entry = read(sessions.ids[slot]);
+		if (entry == null) {
+			return false;
+		}
+		boolean known = sessions.hasFlag(slot, SessionStore.DISCONNECTED);
+		if (known && entry.disconnectMillis() <= sessions.disconnectMillis[slot]) {
+			return false;
+		}
+		sessions.playtimeTicks[slot] = entry.ticksPlayed();
+		sessions.disconnectMillis[slot] = entry.disconnectMillis();
+		// Played elsewhere, so this instance's history must not be credited with it
+		sessions.creditedTicks[slot] = entry.ticksPlayed();
+		sessions.setFlag(slot, SessionStore.HAS_SAVED_PLAYTIME | SessionStore.DISCONNECTED);
+		return true;
+	}
+
+	private FileLock lockStripe(int stripe) throws IOException {
+		return channel.lock(stripeOffset(stripe), STRIPE_BYTES, false);
+	}
+
+	private static void release(FileLock lock) {
+		if (lock == null) {
+			return;
+		}
+		try {
+			lock.release();
+		} catch (IOException e) {
+			// The lock goes with the channel at the latest
+			System.err.println("[PlaytimeReminder] Could not release shared session lock: " + e.getMessage());
+		}
+	}
+
+	// Linear probe within the stripe. Returns the player's entry, else the first empty one; when the stripe
+	// is full and a slot is wanted for writing, the entry that disconnected longest ago is reused instead.
+	private int find(int stripe, UUID id, boolean forWrite) {
+		int base = stripeOffset(stripe);
+		int start = (int) (mix(id) >>> 32) & (ENTRIES_PER_STRIPE - 1);
+		int oldest = -1;
+		long oldestMillis = Long.MAX_VALUE;
+		for (int probe = 0; probe < ENTRIES_PER_STRIPE; probe++) {
+			int at = base + ((start + probe) & (ENTRIES_PER_STRIPE - 1)) * ENTRY_BYTES;
+			if (matches(at, id) || (map.getLong(at) == 0 && map.getLong(at + 8) == 0)) {
+				return at;
+			}
+			long disconnectMillis = map.getLong(at + 24);
+			if (disconnectMillis < oldestMillis) {
+				oldestMillis = disconnectMillis;
+				oldest = at;
+			}
+		}
+		return forWrite ? oldest : -1;
+	}
+
+	private boolean matches(int at, UUID id) {
+		return map.getLong(at) == id.getMostSignificantBits() && map.getLong(at + 8) == id.getLeastSignificantBits();
+	}
+
+	// Package-private so tests can pick players that share a stripe
+	static int stripe(UUID id) {
+		return (int) mix(id) & (STRIPES - 1);
+	}
+
+	private static int stripeOffset(int stripe) {
+		return HEADER_BYTES + stripe * STRIPE_BYTES;
+	}
+
+	private static long mix(UUID id) {
+		long h = id.getMostSignificantBits() ^ id.getLeastSignificantBits() * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+}
@@ -0,0 +1,79 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AuditLogTest {
+	private static final UUID ALEX = new UUID(1, 1);
+	private static final UUID SAM = new UUID(2, 2);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void eventsGoOutAsJsonLinesWithTheNameSeenAtJoin() throws IOException {
+		AuditLog audit = new AuditLog(dir);
+		audit.open();
+		audit.rememberName(ALEX, "Alex");
+		audit.record(AuditLog.REMINDER, ALEX, 12_000, 10, 0);
+		audit.record(AuditLog.KICK, ALEX, 72_000, 60, 3_000_000);
+		audit.forget(ALEX);
+		audit.close();
+
+		List<String> lines = Files.readAllLines(dir.resolve("audit.jsonl"));
+		assertEquals(List.of(
+				"{\"time\":\"1970-01-01T00:00:00Z\",\"event\":\"reminder\",\"uuid\":\"" + ALEX + "\",\"name\":\"Alex\",\"tick\":12000,\"minutesPlayed\":10}",
+				"{\"time\":\"1970-01-01T00:50:00Z\",\"event\":\"kick\",\"uuid\":\"" + ALEX + "\",\"name\":\"Alex\",\"tick\":72000,\"minutesPlayed\":60}"), lines);
+		assertEquals(lines, audit.recentEvents(ALEX));
+		assertEquals(0, audit.namedPlayers());
+	}
+
+	@Test
+	void findResolvesTheNameFromTheLinesAndReadsRotatedFiles() throws IOException {
+		Files.write(dir.resolve("audit.2.jsonl"), List.of(line("join", ALEX, "Alex", 1), line("join", SAM, "Sam", 2)));
+		Files.write(dir.resolve("audit.1.jsonl"), List.of(line("reminder", ALEX, "Alex", 3), line("kick", SAM, "Sam", 4)));
+		Files.write(dir.resolve("audit.jsonl"), List.of(line("disconnect", ALEX, null, 5), line("join", SAM, "Sam", 6)));
+
+		assertEquals(List.of(line("join", ALEX, "Alex", 1), line("reminder", ALEX, "Alex", 3), line("disconnect", ALEX, null, 5)),
+				AuditLog.find(dir, "alex", null, 20));
+		assertEquals(List.of(line("kick", SAM, "Sam", 4), line("join", SAM, "Sam", 6)), AuditLog.find(dir, "Sam", SAM, 2));
+		assertEquals(List.of(), AuditLog.find(dir, "Kim", null, 20));
+	}
+
+	@Test
+	void searchRepliesOnTheGivenExecutor() throws Exception {
+		AuditLog audit = new AuditLog(dir);
+		audit.open();
+		audit.rememberName(ALEX, "Alex");
+		audit.record(AuditLog.JOIN, ALEX, 0, 0, 0);
+		audit.forget(ALEX);
+		// Once the name is forgotten, only the file can tell who Alex is
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (audit.namedPlayers() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		CompletableFuture<List<String>> reply = new CompletableFuture<>();
+		audit.search("ALEX", null, Runnable::run, reply::complete);
+		List<String> lines = reply.get(5, TimeUnit.SECONDS);
+		audit.close();
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0).contains("\"event\":\"join\""));
+	}
+
+	private static String line(String event, UUID id, String name, long tick) {
+		return "{\"time\":\"1970-01-01T00:00:00Z\",\"event\":\"" + event + "\",\"uuid\":\"" + id + "\""
+				+ (name != null ? ",\"name\":\"" + name + "\"" : "") + ",\"tick\":" + tick + ",\"minutesPlayed\":0}";
+	}
+}
@@ -0,0 +1,67 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/** The client's countdown shows what the server would have sent, counted from when the schedule arrived. */
+class CompanionCountdownTest {
+	private static final long NOW = 1_700_000_000_000L;
+
+	private final Config config = new Config();
+	private final MessageTemplates messages = new MessageTemplates(config);
+	private final CompanionCountdown countdown = new CompanionCountdown();
+
+	@Test
+	void theBarFollowsTheWindowAndTheTitlesFireOnce() {
+		countdown.start(schedule(400), NOW);
+		assertEquals(0, countdown.update(NOW + 99_000));
+
+		assertEquals(CompanionCountdown.BAR_SHOWN, countdown.update(NOW + 100_000));
+		assertEquals(messages.bossBarTitle.render(0, 300, 0).getString(), countdown.barLabel().getString());
+		assertEquals(1.0f, countdown.barProgress());
+		// Redrawn once per whole second only
+		assertEquals(CompanionCountdown.BAR_CHANGED, countdown.update(NOW + 100_500));
+		assertEquals(0, countdown.update(NOW + 101_000));
+		countdown.update(NOW + 250_000);
+		assertEquals(0.5f, countdown.barProgress());
+
+		assertEquals(CompanionCountdown.BAR_CHANGED | CompanionCountdown.TITLE_1MIN, countdown.update(NOW + 340_000));
+		assertEquals(CompanionCountdown.BAR_CHANGED, countdown.update(NOW + 341_000));
+		assertEquals(CompanionCountdown.BAR_CHANGED | CompanionCountdown.TITLE_10S, countdown.update(NOW + 390_000));
+		assertEquals(CompanionCountdown.BAR_REMOVED, countdown.update(NOW + 400_000));
+		assertEquals(0, countdown.update(NOW + 401_000));
+	}
+
+	@Test
+	void aResyncKeepsTheTitlesAndAMovedDeadlineStartsOver() {
+		countdown.start(schedule(400), NOW);
+		countdown.update(NOW + 340_000);
+		// The server corrects a drifted countdown by a second or two; the 1-minute title is not shown again
+		countdown.start(schedule(59), NOW + 340_000);
+		assertEquals(CompanionCountdown.BAR_CHANGED, countdown.update(NOW + 340_000));
+
+		// After the kick the next break is far away, so the bar goes and the titles are due again
+		countdown.start(schedule(3_600), NOW + 400_000);
+		assertEquals(CompanionCountdown.BAR_REMOVED, countdown.update(NOW + 400_000));
+		assertEquals(CompanionCountdown.BAR_SHOWN, countdown.update(NOW + 3_700_000));
+		assertEquals(CompanionCountdown.BAR_CHANGED | CompanionCountdown.TITLE_1MIN, countdown.update(NOW + 3_940_000));
+	}
+
+	@Test
+	void aClearedScheduleRemovesTheBarAndALimitKeepsItsReason() {
+		countdown.start(new SchedulePayload(120, SchedulePayload.LIMIT, 300, 60, config.bossBarTitle), NOW);
+		assertEquals(CompanionCountdown.BAR_SHOWN, countdown.update(NOW));
+		assertEquals(SchedulePayload.LIMIT, countdown.reason());
+
+		countdown.start(SchedulePayload.cleared(), NOW + 1_000);
+		assertEquals(CompanionCountdown.BAR_REMOVED, countdown.update(NOW + 1_000));
+		assertEquals(0, countdown.update(NOW + 61_000));
+	}
+
+	private SchedulePayload schedule(int secondsUntilKick) {
+		return new SchedulePayload(secondsUntilKick, SchedulePayload.BREAK, PlaytimeCore.COUNTDOWN_SECONDS, config.bossBarProgressSteps, config.bossBarTitle);
+	}
+}
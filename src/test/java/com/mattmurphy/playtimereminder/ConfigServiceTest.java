@@ -0,0 +1,83 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+class ConfigServiceTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void defaultsAreValid() {
+		assertEquals(List.of(), ConfigService.validate(new Config()));
+	}
+
+	@Test
+	void rejectsOutOfRangeValues() {
+		Config config = new Config();
+		config.breakDurationMinutes = 0;
+		config.timeZone = "Mars/Olympus_Mons";
+		config.accountingMode = "sundial";
+		assertEquals(3, ConfigService.validate(config).size());
+	}
+
+	@Test
+	void bossBarTitleIsCheckedWithTheRenderingParser() {
+		Config config = new Config();
+		config.bossBarTitle = "Break in %s (100%%)";
+		assertEquals(List.of(), ConfigService.validate(config));
+		for (String title : new String[] {"Break soon", "%1$s left", "%S left", "%5s left"}) {
+			config.bossBarTitle = title;
+			assertEquals(1, ConfigService.validate(config).size(), title);
+		}
+	}
+
+	@Test
+	void loadAcceptsTrailingCommasAndFillsMissingFields() throws IOException {
+		Files.writeString(dir.resolve("playtime_reminder.json5"), "{\n  \"breakDurationMinutes\": 45,\n}\n");
+		ConfigService service = new ConfigService(dir);
+		service.load();
+		service.close();
+
+		assertEquals(45, service.current().breakDurationMinutes);
+		assertEquals(new Config().bossBarTitle, service.current().bossBarTitle);
+		assertTrue(Files.readString(dir.resolve("playtime_reminder.json5")).contains("\"bossBarTitle\""));
+	}
+
+	@Test
+	void invalidFileKeepsTheDefaults() throws IOException {
+		Files.writeString(dir.resolve("playtime_reminder.json5"), "{ \"reminderIntervalMinutes\": -5 }");
+		ConfigService service = new ConfigService(dir);
+		service.load();
+		service.close();
+
+		assertEquals(new Config().reminderIntervalMinutes, service.current().reminderIntervalMinutes);
+	}
+
+	@Test
+	void updatePublishesACopyOnlyWhenValid() {
+		ConfigService service = new ConfigService(dir);
+		Config before = service.current();
+
+		assertFalse(service.update(config -> config.reminderIntervalMinutes = 0).isEmpty());
+		assertEquals(before, service.current());
+
+		assertEquals(List.of(), service.update(config -> config.reminderIntervalMinutes = 15));
+		assertNotSame(before, service.current());
+		assertEquals(15, service.current().reminderIntervalMinutes);
+		assertEquals(new Config().reminderIntervalMinutes, before.reminderIntervalMinutes);
+		service.close();
+	}
+}
@@ -0,0 +1,151 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+/** Windows land on the right wall-clock instants, and the transitions come in order with their lead points. */
+class CurfewScheduleTest {
+	// Has daylight saving time; in 2026 it starts on March 8 and ends on November 1
+	private static final ZoneId ZONE = ZoneId.of("America/New_York");
+	private static final long LEAD = 360 * 1000L;
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	private final List<Config.Curfew> curfews = new ArrayList<>();
+
+	@Test
+	void aWindowEndingBeforeItStartsRunsIntoTheNextDay() {
+		curfews.add(curfew("22:00", "06:00", List.of("night")));
+		Config.Curfew friday = curfew("23:00", "01:00", null);
+		friday.days = List.of("friday");
+		curfews.add(friday);
+		// Wednesday noon
+		CurfewSchedule schedule = CurfewSchedule.compile(curfews, ZONE, at("2026-10-14T12:00"));
+
+		assertEquals(at("2026-10-14T22:00"), schedule.nextStartMillis("night", at("2026-10-14T12:00")));
+		assertTrue(schedule.inCurfew("night", at("2026-10-15T05:59")));
+		assertFalse(schedule.inCurfew("night", at("2026-10-15T06:00")));
+		// Friday's window only covers the small hours of Saturday
+		assertEquals(at("2026-10-16T23:00"), schedule.nextStartMillis(PlaytimePolicies.DEFAULT, at("2026-10-14T12:00")));
+		assertTrue(schedule.inCurfew(PlaytimePolicies.DEFAULT, at("2026-10-17T00:30")));
+		assertFalse(schedule.inCurfew(PlaytimePolicies.DEFAULT, at("2026-10-18T00:30")));
+
+		// Compiled in the small hours, yesterday's window is already in force
+		schedule = CurfewSchedule.compile(curfews, ZONE, at("2026-10-15T03:00"));
+		assertEquals(at("2026-10-14T22:00"), schedule.nextStartMillis("night", at("2026-10-15T03:00")));
+		assertEquals(at("2026-10-15T06:00"), schedule.nextTransitionMillis());
+	}
+
+	@Test
+	void windowsFollowTheWallClockAcrossDaylightSavingChanges() {
+		curfews.add(curfew("22:00", "06:00", null));
+		FakeTimeSource time = new FakeTimeSource(at("2026-10-31T12:00"));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.WALL_CLOCK, ZONE);
+		CurfewSchedule schedule = CurfewSchedule.compile(curfews, clock.zone(), clock.currentTimeMillis());
+
+		// The night the clocks go back is an hour longer
+		long start = at("2026-10-31T22:00");
+		long end = at("2026-11-01T06:00");
+		assertEquals(9 * HOUR, end - start);
+		assertEquals(List.of(start - LEAD, start, end), walk(schedule, time, end));
+		assertTrue(schedule.inCurfew(PlaytimePolicies.DEFAULT, end - 1));
+		assertFalse(schedule.inCurfew(PlaytimePolicies.DEFAULT, time.currentTimeMillis()));
+		// The daily rebuild falls 24 real hours after compiling, which reads 11:00 once the clocks are back
+		assertEquals(at("2026-11-01T11:00"), schedule.nextTransitionMillis());
+		walk(schedule, time, at("2026-11-01T11:00"));
+		assertEquals(at("2026-11-01T22:00") - LEAD, schedule.nextTransitionMillis());
+
+		// A start in the hour skipped in spring moves on by that hour
+		curfews.set(0, curfew("02:30", "07:00", null));
+		schedule = CurfewSchedule.compile(curfews, ZONE, at("2026-03-07T12:00"));
+		assertEquals(at("2026-03-08T03:30"), schedule.nextStartMillis(PlaytimePolicies.DEFAULT, at("2026-03-08T00:00")));
+	}
+
+	@Test
+	void profilesOnlySeeTheirOwnWindows() {
+		curfews.add(curfew("21:00", "07:00", List.of("minors")));
+		curfews.add(curfew("23:00", "05:00", null));
+		CurfewSchedule schedule = CurfewSchedule.compile(curfews, ZONE, at("2026-10-14T12:00"));
+
+		assertEquals(at("2026-10-14T21:00"), schedule.nextStartMillis("minors", at("2026-10-14T12:00")));
+		assertEquals(at("2026-10-14T23:00"), schedule.nextStartMillis(PlaytimePolicies.DEFAULT, at("2026-10-14T12:00")));
+		assertEquals(at("2026-10-14T23:00"), schedule.nextStartMillis("staff", at("2026-10-14T12:00")));
+		assertTrue(schedule.inCurfew("minors", at("2026-10-14T22:00")));
+		assertFalse(schedule.inCurfew(PlaytimePolicies.DEFAULT, at("2026-10-14T22:00")));
+		// The shared window ends first, the minors' one later
+		assertFalse(schedule.inCurfew(PlaytimePolicies.DEFAULT, at("2026-10-15T06:00")));
+		assertTrue(schedule.inCurfew("minors", at("2026-10-15T06:00")));
+	}
+
+	@Test
+	void eachStartIsPrecededByATransitionAtTheCountdownLead() {
+		curfews.add(curfew("21:00", "07:00", List.of("minors")));
+		curfews.add(curfew("23:00", "05:00", null));
+		FakeTimeSource time = new FakeTimeSource(at("2026-10-14T12:00"));
+		CurfewSchedule schedule = CurfewSchedule.compile(curfews, ZONE, time.currentTimeMillis());
+
+		// Six minutes: the 5-minute countdown plus a minute to correct the deadlines first
+		assertEquals(List.of(
+				at("2026-10-14T20:54"),
+				at("2026-10-14T21:00"),
+				at("2026-10-14T22:54"),
+				at("2026-10-14T23:00"),
+				at("2026-10-15T05:00"),
+				at("2026-10-15T07:00"),
+				at("2026-10-15T12:00")), walk(schedule, time, at("2026-10-15T12:00")));
+		// After the daily rebuild the next evening's lead point comes next
+		assertEquals(at("2026-10-15T20:54"), schedule.nextTransitionMillis());
+	}
+
+	@Test
+	void badCurfewsAreReported() {
+		curfews.add(curfew("22:00", "22:00", null));
+		Config.Curfew typo = curfew("9pm", "06:00", List.of("admins"));
+		typo.days = List.of("Fryday");
+		curfews.add(typo);
+		Config config = new Config();
+		config.curfews = curfews;
+
+		List<String> problems = new ArrayList<>();
+		CurfewSchedule.validate(config, problems);
+		assertEquals(List.of(
+				"curfew 1: start and end must differ",
+				"curfew 2: start and end must be times like \"22:00\"",
+				"curfew 2: 'Fryday' is not a day of the week",
+				"curfew 2: 'admins' is not a known policy profile"), problems);
+	}
+
+	// Moves the time to each transition up to until, like the mod's tick would, and returns them in order
+	private static List<Long> walk(CurfewSchedule schedule, FakeTimeSource time, long until) {
+		List<Long> seen = new ArrayList<>();
+		while (schedule.nextTransitionMillis() <= until) {
+			long next = schedule.nextTransitionMillis();
+			time.advanceMillis(next - time.currentTimeMillis());
+			seen.add(next);
+			schedule.advance(time.currentTimeMillis());
+		}
+		return seen;
+	}
+
+	private static Config.Curfew curfew(String start, String end, List<String> profiles) {
+		Config.Curfew curfew = new Config.Curfew();
+		curfew.start = start;
+		curfew.end = end;
+		curfew.profiles = profiles;
+		return curfew;
+	}
+
+	private static long at(String localDateTime) {
+		return LocalDateTime.parse(localDateTime).atZone(ZONE).toInstant().toEpochMilli();
+	}
+}
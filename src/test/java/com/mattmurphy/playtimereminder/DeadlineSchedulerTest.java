@@ -0,0 +1,89 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DeadlineSchedulerTest {
+	@Test
+	void pollsOnlyDueSlotsInDeadlineOrder() {
+		DeadlineScheduler scheduler = new DeadlineScheduler();
+		scheduler.schedule(3, 30);
+		scheduler.schedule(1, 10);
+		scheduler.schedule(2, 20);
+
+		assertEquals(-1, scheduler.pollDue(9));
+		assertEquals(1, scheduler.pollDue(25));
+		assertEquals(2, scheduler.pollDue(25));
+		assertEquals(-1, scheduler.pollDue(25));
+		assertEquals(30, scheduler.peekDeadline());
+		assertEquals(3, scheduler.pollDue(30));
+		assertEquals(0, scheduler.size());
+	}
+
+	@Test
+	void reschedulingMovesTheExistingEntry() {
+		DeadlineScheduler scheduler = new DeadlineScheduler();
+		scheduler.schedule(1, 10);
+		scheduler.schedule(2, 20);
+		scheduler.schedule(1, 30);
+		assertEquals(2, scheduler.size());
+		assertEquals(2, scheduler.pollDue(100));
+		assertEquals(1, scheduler.pollDue(100));
+
+		scheduler.schedule(4, 40);
+		scheduler.schedule(4, 5);
+		assertEquals(4, scheduler.pollDue(5));
+	}
+
+	@Test
+	void cancelRemovesTheSlot() {
+		DeadlineScheduler scheduler = new DeadlineScheduler();
+		scheduler.schedule(1, 10);
+		scheduler.schedule(200, 5); // Past the initial capacity
+		assertTrue(scheduler.isScheduled(200));
+		scheduler.cancel(200);
+		scheduler.cancel(7); // Never scheduled
+		assertFalse(scheduler.isScheduled(200));
+		assertEquals(1, scheduler.pollDue(100));
+		assertEquals(-1, scheduler.pollDue(100));
+	}
+
+	@Test
+	void randomOperationsMatchASortedOrder() {
+		Random random = new Random(7);
+		DeadlineScheduler scheduler = new DeadlineScheduler();
+		long[] expected = new long[500];
+		Arrays.fill(expected, Long.MAX_VALUE);
+		for (int i = 0; i < 20_000; i++) {
+			int slot = random.nextInt(expected.length);
+			if (random.nextInt(4) == 0) {
+				scheduler.cancel(slot);
+				expected[slot] = Long.MAX_VALUE;
+			} else {
+				long deadline = random.nextInt(1_000_000);
+				scheduler.schedule(slot, deadline);
+				expected[slot] = deadline;
+			}
+		}
+		long previous = Long.MIN_VALUE;
+		int slot;
+		int polled = 0;
+		while ((slot = scheduler.pollDue(Long.MAX_VALUE - 1)) >= 0) {
+			assertTrue(expected[slot] >= previous, "deadlines must come out in order");
+			assertTrue(expected[slot] != Long.MAX_VALUE, "cancelled slot was polled");
+			previous = expected[slot];
+			expected[slot] = Long.MAX_VALUE;
+			polled++;
+		}
+		for (long deadline : expected) {
+			assertEquals(Long.MAX_VALUE, deadline);
+		}
+		assertTrue(polled > 0);
+	}
+}
@@ -0,0 +1,50 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/** Deciding a batch on the fork/join pool must give exactly the actions of the serial path. */
+class DecisionBatchTest {
+	// Well above the leaf size, so the pool splits the batch several times
+	private static final int PLAYERS = 5000;
+
+	@Test
+	void poolDecidesLikeTheSerialPath() {
+		PlaytimeCore[] cores = {
+			new PlaytimeCore(15, 120, 30, 15),
+			new PlaytimeCore(1, 6, 2, 1),
+			new PlaytimeCore(10, 60, 60, 30)
+		};
+		DecisionBatch batch = new DecisionBatch();
+		try {
+			Random random = new Random(42);
+			for (int n = 0; n < PLAYERS; n++) {
+				int i = batch.add(n);
+				batch.cores[i] = cores[random.nextInt(cores.length)];
+				long ticksPlayed = random.nextInt(4 * 60 * PlaytimeCore.TICKS_PER_MINUTE);
+				batch.ticksPlayed[i] = ticksPlayed;
+				batch.previousTicksPlayed[i] = Math.max(0, ticksPlayed - random.nextInt(100));
+				batch.lastReminderMinute[i] = random.nextBoolean() ? PlaytimeCore.minutesPlayed(ticksPlayed) : -1;
+				batch.warnedFlags[i] = random.nextInt(8);
+				batch.messagePending[i] = random.nextInt(10) == 0;
+				batch.limitTicksPlayed[i] = random.nextBoolean() ? PlaytimeCore.NO_LIMIT : ticksPlayed + random.nextInt(20 * 400) - 20 * 20;
+			}
+
+			batch.decide(false);
+			int[] serial = Arrays.copyOf(batch.actions, batch.size);
+			Arrays.fill(batch.actions, 0);
+			batch.decide(true);
+			int[] parallel = Arrays.copyOf(batch.actions, batch.size);
+
+			assertArrayEquals(serial, parallel);
+			assertTrue(Arrays.stream(serial).anyMatch(actions -> actions != 0), "the inputs exercise some actions");
+		} finally {
+			batch.close();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.mattmurphy.playtimereminder;
+
+/** A {@link PlaytimeClock.TimeSource} that only moves when a test moves it. */
+final class FakeTimeSource implements PlaytimeClock.TimeSource {
+	long nanos;
+	long millis;
+
+	FakeTimeSource(long millis) {
+		this.millis = millis;
+	}
+
+	/** Moves both clocks forward together, like real time passing. */
+	void advanceMillis(long delta) {
+		millis += delta;
+		nanos += delta * 1_000_000L;
+	}
+
+	@Override
+	public long nanoTime() {
+		return nanos;
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return millis;
+	}
+}
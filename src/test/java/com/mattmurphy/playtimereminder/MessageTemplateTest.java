@@ -0,0 +1,56 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import net.minecraft.network.chat.Component;
+
+import org.junit.jupiter.api.Test;
+
+class MessageTemplateTest {
+	private static final int COUNTDOWN_SECONDS = 300;
+
+	@Test
+	void everyCountdownLabelStaysCached() {
+		MessageTemplate bossBarTitle = new MessageTemplates(new PlaytimeReminderMod.Config()).bossBarTitle;
+		Component[] first = new Component[COUNTDOWN_SECONDS + 1];
+		for (int seconds = 0; seconds <= COUNTDOWN_SECONDS; seconds++) {
+			first[seconds] = bossBarTitle.render(0, seconds, 0);
+		}
+		for (int seconds = 0; seconds <= COUNTDOWN_SECONDS; seconds++) {
+			assertSame(first[seconds], bossBarTitle.render(0, seconds, 0), "label for " + seconds + "s");
+		}
+		assertEquals("Break Reminder: 4:05 remaining", first[245].getString());
+	}
+
+	@Test
+	void templatesWithSeveralPlaceholdersKeyOnAllOfThem() {
+		MessageTemplate template = new MessageTemplate(MessageTemplate.MINUTES + "m, " + MessageTemplate.DAILY + "m today", 64);
+		Component sixty = template.render(60, 0, 90);
+		assertSame(sixty, template.render(60, 0, 90));
+		assertEquals("60m, 91m today", template.render(60, 0, 91).getString());
+		assertEquals("61m, 90m today", template.render(61, 0, 90).getString());
+	}
+
+	@Test
+	void operatorTextIsNeverReadAsAPlaceholder() {
+		PlaytimeReminderMod.Config config = new PlaytimeReminderMod.Config();
+		config.regularMessagePrefix = "{time} check: ";
+		config.regularMessageSuffix = " minutes of {minutes}";
+		config.warningMessage5min = "{daily} {{";
+		MessageTemplates templates = new MessageTemplates(config);
+
+		assertEquals("{time} check: 30 minutes of {minutes} (Total today: 95m)", templates.regular.render(30, 0, 95).getString());
+		assertEquals("{daily} {{ (Total today: 95m)", templates.warning5min.render(0, 0, 95).getString());
+	}
+
+	@Test
+	void fromFormatAcceptsOnlyOnePlainPercentS() {
+		assertEquals("100% done, 1:05 left", new MessageTemplate(MessageTemplate.fromFormat("100%% done, %s left"), 8).format(0, 65, 0));
+		assertEquals("{minutes} 1:05", new MessageTemplate(MessageTemplate.fromFormat("{minutes} %s"), 8).format(7, 65, 0));
+		for (String format : new String[] {"No time", "%s and %s", "%1$s", "%S", "%5s", "%d", "ends with %"}) {
+			assertThrows(IllegalArgumentException.class, () -> MessageTemplate.fromFormat(format), format);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Many distinct players joining and being forgotten must not leave per-player state behind. */
+class PlayerChurnTest {
+	private static final int PLAYERS = 5000;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void auditLogHoldsNamesOnlyForTrackedPlayers() throws Exception {
+		AuditLog audit = new AuditLog(dir);
+		audit.open();
+		UUID kept = UUID.randomUUID();
+		audit.rememberName(kept, "Stays");
+		for (int i = 0; i < PLAYERS; i++) {
+			UUID id = new UUID(1, i);
+			audit.rememberName(id, "Player" + i);
+			audit.record(AuditLog.JOIN, id, i, 0, 0);
+			audit.record(AuditLog.DISCONNECT, id, i, 0, 0);
+			audit.forget(id);
+		}
+		audit.close();
+
+		// Three records per player fit the ring whatever the writer's pace, so nothing is dropped
+		assertEquals(0, audit.droppedEvents());
+		assertEquals(1, audit.namedPlayers());
+		assertTrue(audit.recentPlayers() <= 1024, "recent lines are bounded, got " + audit.recentPlayers());
+		assertEquals(2, audit.recentEvents(new UUID(1, PLAYERS - 1)).size());
+	}
+
+	@Test
+	void queryIndexDropsForgottenPlayersWithoutPlaytime() throws Exception {
+		PlaytimeQueries queries = new PlaytimeQueries();
+		try {
+			queries.rebuild(0, 0, 0, new UUID[0], new String[0], new int[0][]);
+			for (int i = 0; i < PLAYERS; i++) {
+				UUID id = new UUID(2, i);
+				queries.rememberName(id, "Player" + i);
+				// Every tenth player has played this period and stays ranked until it rolls over
+				queries.update(id, i % 10 == 0 ? 5 : 0, i % 10 == 0 ? 5 : 0, i % 10 == 0 ? 5 : 0);
+				queries.forget(id);
+			}
+			assertEquals(PLAYERS / 10, queries.size());
+
+			queries.periodsChanged(1, 1, 1);
+			assertEquals(0, queries.size());
+		} finally {
+			queries.close();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+
+class PlaytimeClockTest {
+	private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+	private static long at(int year, int month, int day, int hour, int minute, ZoneId zone) {
+		return LocalDateTime.of(year, month, day, hour, minute).atZone(zone).toInstant().toEpochMilli();
+	}
+
+	@Test
+	void tickAccountingCountsServerTicksWhateverTheWallClockDoes() {
+		FakeTimeSource time = new FakeTimeSource(at(2026, 3, 1, 12, 0, LONDON));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.TICKS, LONDON);
+
+		for (int i = 0; i < 100; i++) {
+			time.advanceMillis(200); // A server lagging at 5 TPS
+			clock.tick();
+		}
+		assertEquals(100, clock.now());
+		assertEquals(100, clock.serverTicks());
+	}
+
+	@Test
+	void wallClockAccountingFollowsRealTimeUnderLag() {
+		FakeTimeSource time = new FakeTimeSource(at(2026, 3, 1, 12, 0, LONDON));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.WALL_CLOCK, LONDON);
+
+		for (int i = 0; i < 100; i++) {
+			time.advanceMillis(200);
+			clock.tick();
+		}
+		assertEquals(400, clock.now()); // 20 s of real time
+		assertEquals(100, clock.serverTicks());
+	}
+
+	@Test
+	void wallClockNeverRunsBackwards() {
+		FakeTimeSource time = new FakeTimeSource(0);
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.WALL_CLOCK, ZoneId.of("UTC"));
+		time.advanceMillis(1000);
+		clock.tick();
+		time.nanos -= 500_000_000L;
+		clock.tick();
+		assertEquals(20, clock.now());
+	}
+
+	@Test
+	void switchingAccountingContinuesTheTimeline() {
+		FakeTimeSource time = new FakeTimeSource(0);
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.TICKS, ZoneId.of("UTC"));
+		for (int i = 0; i < 10; i++) {
+			time.advanceMillis(50);
+			clock.tick();
+		}
+		clock.configure(PlaytimeClock.Accounting.WALL_CLOCK, ZoneId.of("UTC"));
+		time.advanceMillis(1000);
+		clock.tick();
+		assertEquals(30, clock.now());
+	}
+
+	@Test
+	void reportsMidnightOnceInTheConfiguredZone() {
+		FakeTimeSource time = new FakeTimeSource(at(2026, 3, 1, 23, 59, LONDON));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.TICKS, LONDON);
+		assertEquals(at(2026, 3, 2, 0, 0, LONDON), clock.nextMidnightMillis());
+
+		time.advanceMillis(59_950);
+		assertFalse(clock.tick());
+		time.advanceMillis(50);
+		assertTrue(clock.tick());
+		assertFalse(clock.tick());
+		assertEquals(at(2026, 3, 3, 0, 0, LONDON), clock.nextMidnightMillis());
+	}
+
+	@Test
+	void changingZoneMovesTheNextMidnight() {
+		FakeTimeSource time = new FakeTimeSource(at(2026, 3, 1, 12, 0, LONDON));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.TICKS, LONDON);
+		ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+		clock.configure(PlaytimeClock.Accounting.TICKS, tokyo);
+		assertEquals(at(2026, 3, 2, 0, 0, tokyo), clock.nextMidnightMillis());
+	}
+
+	@Test
+	void midnightAcrossADaylightSavingChange() {
+		// London springs forward at 01:00 on 29 March 2026; that day is 23 hours long
+		FakeTimeSource time = new FakeTimeSource(at(2026, 3, 29, 0, 30, LONDON));
+		PlaytimeClock clock = new PlaytimeClock(time);
+		clock.reset(PlaytimeClock.Accounting.TICKS, LONDON);
+		assertEquals(at(2026, 3, 30, 0, 0, LONDON), clock.nextMidnightMillis());
+		assertEquals(23 * 60 * 60 * 1000L - 30 * 60 * 1000L, clock.nextMidnightMillis() - time.millis);
+	}
+}
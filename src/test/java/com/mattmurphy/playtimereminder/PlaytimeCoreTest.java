@@ -0,0 +1,126 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class PlaytimeCoreTest {
+	private static final long KICK = 60 * 1_200;
+	private static final int ALL_WARNED = PlaytimeCore.WARNED_5MIN | PlaytimeCore.WARNED_1MIN | PlaytimeCore.WARNED_10S;
+
+	// Reminders every 10 minutes, first kick at 60, then every 30, 5 minute breaks
+	private final PlaytimeCore core = new PlaytimeCore(10, 60, 30, 5);
+
+	@Test
+	void kickTicksRepeatAfterTheThreshold() {
+		assertEquals(KICK, core.nextKickTick(0));
+		assertEquals(KICK, core.nextKickTick(KICK - 1));
+		assertEquals(KICK + 36_000, core.nextKickTick(KICK));
+		assertEquals(KICK + 72_000, core.nextKickTick(KICK + 36_000));
+		assertEquals(60, core.minutesUntilKick(0));
+		assertEquals(60, core.minutesUntilKick(1));
+		assertEquals(1, core.minutesUntilKick(KICK - 1_200));
+	}
+
+	@Test
+	void remindsOnceWhenAnIntervalMinuteIsCrossed() {
+		assertEquals(PlaytimeCore.REMINDER | PlaytimeCore.HIDE_BAR, core.decide(12_000, 11_999, -1, 0, false));
+		assertEquals(PlaytimeCore.REMINDER | PlaytimeCore.HIDE_BAR, core.decide(12_030, 11_990, -1, 0, false));
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(12_000, 11_999, 10, 0, false));
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(12_001, 12_000, -1, 0, false));
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(13_200, 13_199, -1, 0, false));
+	}
+
+	@Test
+	void noRegularReminderOnceTheCountdownHasStarted() {
+		PlaytimeCore everyFive = new PlaytimeCore(5, 60, 30, 5);
+		// Minute 55 is a reminder minute, but the kick is exactly 300 seconds away
+		assertEquals(PlaytimeCore.SHOW_BAR | PlaytimeCore.WARN_5MIN, everyFive.decide(KICK - 6_000, KICK - 6_001, -1, 0, false));
+	}
+
+	@Test
+	void countdownBarCoversTheLastFiveMinutes() {
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(KICK - 6_020, KICK - 6_021, -1, PlaytimeCore.WARNED_5MIN, false));
+		assertEquals(PlaytimeCore.SHOW_BAR, core.decide(KICK - 6_019, KICK - 6_020, -1, PlaytimeCore.WARNED_5MIN, false));
+		assertEquals(KICK - PlaytimeCore.COUNTDOWN_WINDOW_TICKS, KICK - 6_019);
+		// Zero whole seconds left: the bar goes away before the kick
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(KICK - 19, KICK - 20, -1, ALL_WARNED, false));
+	}
+
+	@Test
+	void warningsFireOnceEachAndWaitForTheJoinMessage() {
+		assertEquals(PlaytimeCore.SHOW_BAR | PlaytimeCore.WARN_5MIN, core.decide(KICK - 6_019, KICK - 6_020, -1, 0, false));
+		assertEquals(PlaytimeCore.SHOW_BAR, core.decide(KICK - 6_019, KICK - 6_020, -1, 0, true));
+
+		assertEquals(PlaytimeCore.SHOW_BAR | PlaytimeCore.WARN_1MIN, core.decide(KICK - 1_219, KICK - 1_220, -1, PlaytimeCore.WARNED_5MIN, false));
+		assertEquals(PlaytimeCore.SHOW_BAR, core.decide(KICK - 1_219, KICK - 1_220, -1, PlaytimeCore.WARNED_5MIN | PlaytimeCore.WARNED_1MIN, false));
+		assertEquals(PlaytimeCore.SHOW_BAR | PlaytimeCore.WARN_10S, core.decide(KICK - 219, KICK - 220, -1, PlaytimeCore.WARNED_5MIN | PlaytimeCore.WARNED_1MIN, false));
+
+		// A player who joins inside the last minute gets the warnings still due, not the 5-minute one
+		assertEquals(PlaytimeCore.SHOW_BAR | PlaytimeCore.WARN_1MIN, core.decide(KICK - 1_000, KICK - 1_000, -1, 0, false));
+	}
+
+	@Test
+	void kicksWhenTheKickTickIsReachedOrCrossedBetweenLooks() {
+		assertEquals(PlaytimeCore.KICK, core.decide(KICK, KICK - 1, -1, 0, false));
+		assertEquals(PlaytimeCore.KICK, core.decide(KICK + 50, KICK - 10, -1, 0, false));
+		assertEquals(PlaytimeCore.KICK, core.decide(KICK + 36_000, KICK + 35_999, 60, 0, false));
+		assertEquals(PlaytimeCore.HIDE_BAR, core.decide(KICK + 1, KICK, 60, 0, false));
+	}
+
+	@Test
+	void breakRestoreKeepsPlaytimeOnlyForShortBreaks() {
+		long fiveMinutes = 5 * 60 * 1000;
+		assertFalse(core.breakTaken(1_000, 1_000 + fiveMinutes - 1));
+		assertTrue(core.breakTaken(1_000, 1_000 + fiveMinutes));
+		assertEquals(5_000, core.restoredTicksPlayed(1_000, 1_000 + fiveMinutes - 1, true, 5_000));
+		assertEquals(0, core.restoredTicksPlayed(1_000, 1_000 + fiveMinutes, true, 5_000));
+		assertEquals(0, core.restoredTicksPlayed(1_000, 2_000, false, 5_000));
+	}
+
+	@Test
+	void nextDueTickIsTheNextReminderWindowStartOrSecond() {
+		assertEquals(12_000, core.nextDueTicksPlayed(0));
+		assertEquals(KICK - 6_019, core.nextDueTicksPlayed(60_000));
+		assertEquals(KICK - 5_999, core.nextDueTicksPlayed(KICK - 6_019));
+		assertEquals(KICK, core.nextDueTicksPlayed(KICK - 1));
+	}
+
+	@Test
+	void scheduledLooksSeeEverythingATickByTickLoopWould() {
+		// The baseline looked at every player on every tick; record the ticks where that changed anything
+		Set<Long> due = new HashSet<>();
+		for (long t = 0; t <= KICK + 72_000; t = core.nextDueTicksPlayed(t)) {
+			due.add(t);
+		}
+
+		int lastReminderMinute = -1;
+		int warned = 0;
+		long lastSeconds = -1;
+		for (long t = 1; t <= KICK + 72_000; t++) {
+			int actions = core.decide(t, t - 1, lastReminderMinute, warned, false);
+			long seconds = (actions & PlaytimeCore.SHOW_BAR) != 0 ? core.secondsUntilKick(t) : -1;
+			boolean changed = (actions & ~(PlaytimeCore.SHOW_BAR | PlaytimeCore.HIDE_BAR)) != 0 || seconds != lastSeconds;
+			if (changed) {
+				assertTrue(due.contains(t), "nothing scheduled at tick " + t);
+			}
+			lastSeconds = seconds;
+			if ((actions & PlaytimeCore.KICK) != 0) {
+				warned = 0;
+				lastReminderMinute = PlaytimeCore.minutesPlayed(t);
+				continue;
+			}
+			if ((actions & PlaytimeCore.REMINDER) != 0) {
+				lastReminderMinute = PlaytimeCore.minutesPlayed(t);
+			}
+			warned |= (actions & PlaytimeCore.WARN_5MIN) != 0 ? PlaytimeCore.WARNED_5MIN : 0;
+			warned |= (actions & PlaytimeCore.WARN_1MIN) != 0 ? PlaytimeCore.WARNED_1MIN : 0;
+			warned |= (actions & PlaytimeCore.WARN_10S) != 0 ? PlaytimeCore.WARNED_10S : 0;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Minutes land in the right periods and survive a restart. */
+class PlaytimeHistoryTest {
+	private static final long MINUTE = 60 * 1000L;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+	// Midnight UTC, so day boundaries are whole buckets of either size
+	private static final long NOW = 20_000 * DAY;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void addedMinutesCountForTheirPeriodOnly() throws IOException {
+		PlaytimeHistory history = new PlaytimeHistory(dir);
+		history.open(NOW);
+		UUID id = UUID.randomUUID();
+		int record = history.recordOf(id, "Steve", NOW - 2 * DAY);
+		history.add(record, NOW - 2 * DAY + 7 * MINUTE, 30);
+		history.add(record, NOW + 3 * MINUTE, 2);
+		history.add(record, NOW + 8 * MINUTE, 4);
+
+		assertEquals(6, history.minutesSince(record, NOW, NOW + 10 * MINUTE));
+		assertEquals(4, history.minutesSince(record, NOW + 5 * MINUTE, NOW + 10 * MINUTE));
+		assertEquals(36, history.minutesSince(record, NOW - 7 * DAY, NOW + 10 * MINUTE));
+		history.close();
+	}
+
+	@Test
+	void olderDaysAreSummedByTheHour() throws IOException {
+		PlaytimeHistory history = new PlaytimeHistory(dir);
+		history.open(NOW);
+		int record = history.recordOf(UUID.randomUUID(), "Herobrine", NOW - 10 * DAY);
+		history.add(record, NOW - 10 * DAY + 20 * MINUTE, 7);
+		history.add(record, NOW - 10 * DAY + 40 * MINUTE, 5);
+		history.add(record, NOW - 3 * HOUR, 11);
+		history.add(record, NOW + 35 * MINUTE, 2);
+
+		// Ten days back only hours are left, so a start at :30 counts the whole hour it falls in
+		assertEquals(25, history.minutesSince(record, NOW - 10 * DAY, NOW + 40 * MINUTE));
+		assertEquals(25, history.minutesSince(record, NOW - 10 * DAY + 30 * MINUTE, NOW + 40 * MINUTE));
+		assertEquals(13, history.minutesSince(record, NOW - 10 * DAY + HOUR, NOW + 40 * MINUTE));
+		// The last two days are still in 5-minute buckets
+		assertEquals(2, history.minutesSince(record, NOW + 30 * MINUTE, NOW + 40 * MINUTE));
+		assertEquals(0, history.minutesSince(record, NOW - 3 * HOUR + 5 * MINUTE, NOW));
+
+		// A copy of the buckets sums the same way off the server thread
+		byte[] buckets = new byte[PlaytimeHistory.BUCKETS];
+		long newest = history.copyBuckets(record, buckets);
+		assertEquals(12, PlaytimeHistory.minutesBetween(buckets, newest, NOW - 10 * DAY, NOW - 9 * DAY));
+		assertEquals(11, PlaytimeHistory.minutesBetween(buckets, newest, NOW - DAY, NOW));
+
+		// Three weeks on, today's minutes are only in the hourly tier and the ten-day-old ones are gone
+		history.add(record, NOW + 22 * DAY, 1);
+		assertEquals(14, history.minutesSince(record, NOW - 10 * DAY, NOW + 22 * DAY));
+		assertEquals(2, history.minutesSince(record, NOW, NOW + 22 * DAY - HOUR));
+		history.close();
+	}
+
+	@Test
+	void reopeningKeepsRecentPlayersAndDropsExpiredOnes() throws IOException {
+		UUID recent = UUID.randomUUID();
+		UUID expired = UUID.randomUUID();
+		PlaytimeHistory history = new PlaytimeHistory(dir);
+		history.open(NOW - 40 * DAY);
+		history.add(history.recordOf(expired, "Gone", NOW - 40 * DAY), NOW - 40 * DAY, 50);
+		history.add(history.recordOf(recent, "Alex", NOW), NOW + 5 * MINUTE, 9);
+		history.close();
+
+		history = new PlaytimeHistory(dir);
+		history.open(NOW + 10 * MINUTE);
+		assertEquals(1, history.size());
+		int record = history.find(recent);
+		assertEquals(PlaytimeHistory.NO_RECORD, history.find(expired));
+		assertEquals("Alex", history.name(record));
+		assertEquals(recent, history.idOf("ALEX"));
+		assertEquals(9, history.minutesSince(record, NOW, NOW + 10 * MINUTE));
+
+		// A rename on the next join is picked up by name lookups
+		assertEquals(record, history.recordOf(recent, "Alexandra", NOW + 10 * MINUTE));
+		assertEquals(recent, history.idOf("alexandra"));
+		history.close();
+	}
+
+	@Test
+	void unknownVersionsAreIgnored() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(16).putInt(0x50544853).putInt(99).putInt(1).putInt(0);
+		Files.write(dir.resolve("history.bin"), header.array());
+
+		PlaytimeHistory history = new PlaytimeHistory(dir);
+		history.open(NOW);
+		assertEquals(0, history.size());
+		history.close();
+	}
+}
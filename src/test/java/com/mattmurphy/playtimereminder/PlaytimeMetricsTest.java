@@ -0,0 +1,45 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PlaytimeMetricsTest {
+	@Test
+	void quantilesReportTheUpperBoundOfTheirBucket() {
+		PlaytimeMetrics metrics = new PlaytimeMetrics();
+		for (int i = 0; i < 98; i++) {
+			metrics.recordTick(1_500); // [1024, 2048)
+		}
+		metrics.recordTick(40_000); // [32768, 65536)
+		metrics.recordTick(0);
+
+		assertEquals(100, metrics.ticks());
+		assertEquals(2_048, metrics.tickQuantileNanos(0.5));
+		assertEquals(2_048, metrics.tickQuantileNanos(0.99));
+		assertEquals(65_536, metrics.tickQuantileNanos(1.0));
+		assertEquals(40_000, metrics.maxTickNanos());
+		assertEquals((98 * 1_500 + 40_000) / 100.0, metrics.meanTickNanos());
+	}
+
+	@Test
+	void prometheusTextHasCumulativeBucketsAndEveryCounter() {
+		PlaytimeMetrics metrics = new PlaytimeMetrics();
+		metrics.increment(PlaytimeMetrics.KICKS);
+		metrics.add(PlaytimeMetrics.BYTES_SKIPPED, 46);
+		metrics.setGauge(PlaytimeMetrics.TRACKED_PLAYERS, 7);
+		metrics.recordTick(1_500);
+		metrics.recordTick(3_000);
+
+		String text = metrics.toPrometheus();
+		assertTrue(text.contains("playtime_reminder_kicks_total 1\n"));
+		assertTrue(text.contains("playtime_reminder_bytes_skipped_total 46\n"));
+		assertTrue(text.contains("playtime_reminder_reminders_total 0\n"));
+		assertTrue(text.contains("playtime_reminder_tracked_players 7\n"));
+		assertTrue(text.contains("playtime_reminder_tick_seconds_bucket{le=\"2.048E-6\"} 1\n"));
+		assertTrue(text.contains("playtime_reminder_tick_seconds_bucket{le=\"4.096E-6\"} 2\n"));
+		assertTrue(text.contains("playtime_reminder_tick_seconds_bucket{le=\"+Inf\"} 2\n"));
+		assertTrue(text.contains("playtime_reminder_tick_seconds_count 2\n"));
+	}
+}
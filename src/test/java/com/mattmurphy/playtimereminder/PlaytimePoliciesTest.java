@@ -0,0 +1,87 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+class PlaytimePoliciesTest {
+	private static final UUID ALEX = new UUID(1, 1);
+	private static final UUID SAM = new UUID(2, 2);
+
+	private final Config config = new Config();
+
+	PlaytimePoliciesTest() {
+		Config.PolicyProfile staff = new Config.PolicyProfile();
+		staff.strongReminderThresholdMinutes = 240;
+		staff.disconnectOnStrong = false;
+		config.policyProfiles.put("staff", staff);
+		Config.PolicyProfile minors = new Config.PolicyProfile();
+		minors.strongReminderThresholdMinutes = 30;
+		minors.breakDurationMinutes = 20;
+		config.policyProfiles.put("minors", minors);
+
+		Config.PolicyRule ops = new Config.PolicyRule();
+		ops.profile = "staff";
+		ops.minPermissionLevel = 2;
+		config.policyRules.add(ops);
+		Config.PolicyRule kids = new Config.PolicyRule();
+		kids.profile = "minors";
+		kids.team = "kids";
+		config.policyRules.add(kids);
+	}
+
+	@Test
+	void unsetProfileFieldsInheritTheGlobalValues() {
+		PlaytimePolicies policies = PlaytimePolicies.compile(config);
+		PlaytimePolicies.Policy staff = policies.byName("staff");
+
+		assertEquals(240, staff.core().strongReminderThresholdMinutes);
+		assertEquals(config.reminderIntervalMinutes, staff.core().reminderIntervalMinutes);
+		assertEquals(config.breakDurationMinutes, staff.breakDurationMinutes());
+		assertFalse(staff.disconnectOnStrong());
+		assertEquals(20 * 60 * 1000L, policies.longestBreakMillis());
+		// A profile that is gone from the config falls back to the default
+		assertEquals(PlaytimePolicies.DEFAULT, policies.byName("removed").name());
+	}
+
+	@Test
+	void assignmentsGoBeforeRulesAndTheFirstMatchingRuleWins() {
+		config.playerPolicies.put("Alex", "minors");
+		PlaytimePolicies policies = PlaytimePolicies.compile(config);
+
+		// Alex is an op on the kids team, but the assignment is checked first
+		assertEquals("minors", policies.resolve(ALEX, "alex", level -> true, "kids").name());
+		// Sam matches both rules, so the op rule listed first applies
+		assertEquals("staff", policies.resolve(SAM, "Sam", level -> level <= 2, "kids").name());
+		assertEquals("minors", policies.resolve(SAM, "Sam", level -> level == 0, "kids").name());
+		assertEquals(PlaytimePolicies.DEFAULT, policies.resolve(SAM, "Sam", level -> level == 0, null).name());
+
+		config.playerPolicies.clear();
+		config.playerPolicies.put(SAM.toString(), "staff");
+		assertEquals("staff", PlaytimePolicies.compile(config).resolve(SAM, "Sam", level -> false, null).name());
+	}
+
+	@Test
+	void rulesAndAssignmentsMustNameKnownProfiles() {
+		Config.PolicyRule empty = new Config.PolicyRule();
+		empty.profile = "staff";
+		config.policyRules.add(empty);
+		config.playerPolicies.put("Sam", "admins");
+		config.policyProfiles.get("minors").breakDurationMinutes = 0;
+
+		List<String> problems = new ArrayList<>();
+		PlaytimePolicies.validate(config, problems);
+		assertEquals(3, problems.size());
+		assertTrue(problems.contains("policy rule 3 needs minPermissionLevel, players or team"));
+		assertTrue(problems.contains("playerPolicies: 'Sam' is assigned unknown profile 'admins'"));
+		assertTrue(problems.contains("policy profile 'minors': breakDurationMinutes must be at least 1"));
+	}
+}
@@ -0,0 +1,51 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PlaytimeQueriesTest {
+	private static final UUID ALEX = new UUID(1, 1);
+	private static final UUID SAM = new UUID(2, 2);
+	private static final UUID KIM = new UUID(3, 3);
+
+	private final PlaytimeQueries queries = new PlaytimeQueries();
+
+	@AfterEach
+	void close() {
+		queries.close();
+	}
+
+	@Test
+	void topRanksByPeriodWithNamesFromTheHistory() throws Exception {
+		queries.rebuild(0, 0, 0, new UUID[] {ALEX, SAM}, new String[] {"Alex", ""}, new int[][] {{5, 90, 90}, {20, 30, 200}});
+		queries.rememberName(SAM, "Sam");
+		queries.update(KIM, 0, 0, 1);
+
+		assertEquals(List.of("--- Top 10 today ---", "  1. Sam - 20m", "  2. Alex - 5m"), top(PlaytimeQueries.DAY, 10));
+		assertEquals(List.of("--- Top 1 this week ---", "  1. Alex - 1h 30m"), top(PlaytimeQueries.WEEK, 1));
+		assertEquals(List.of("--- Top 10 this month ---", "  1. Sam - 3h 20m", "  2. Alex - 1h 30m", "  3. " + KIM + " - 1m"),
+				top(PlaytimeQueries.MONTH, 10));
+	}
+
+	@Test
+	void aNewDayEmptiesOnlyTheDayRanking() throws Exception {
+		queries.rebuild(0, 0, 0, new UUID[] {ALEX}, new String[] {"Alex"}, new int[][] {{5, 5, 5}});
+		queries.periodsChanged(1, 0, 0);
+
+		assertEquals(List.of("--- Top 10 today ---", "  (nobody has played today)"), top(PlaytimeQueries.DAY, 10));
+		assertEquals(List.of("--- Top 10 this week ---", "  1. Alex - 5m"), top(PlaytimeQueries.WEEK, 10));
+	}
+
+	private List<String> top(int period, int count) throws Exception {
+		CompletableFuture<List<String>> reply = new CompletableFuture<>();
+		queries.top(period, count, Runnable::run, reply::complete);
+		return reply.get(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,34 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+
+import org.junit.jupiter.api.Test;
+
+class SchedulePayloadTest {
+	@Test
+	void aScheduleReadsBackAsWritten() {
+		SchedulePayload payload = new SchedulePayload(5_400, SchedulePayload.LIMIT, 300, 60, "Break in %s");
+		FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+		SchedulePayload.CODEC.encode(buf, payload);
+
+		assertEquals(payload, SchedulePayload.CODEC.decode(buf));
+		assertEquals(0, buf.readableBytes());
+		SchedulePayload.CODEC.encode(buf, SchedulePayload.cleared());
+		assertEquals(SchedulePayload.cleared(), SchedulePayload.CODEC.decode(buf));
+	}
+
+	@Test
+	void anUnknownVersionIsSkippedAndReadsAsCleared() {
+		FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+		buf.writeVarInt(SchedulePayload.VERSION + 1);
+		buf.writeVarInt(5_400);
+		buf.writeLong(1_700_000_000_000L);
+		buf.writeUtf("a field this client does not know");
+
+		assertEquals(SchedulePayload.cleared(), SchedulePayload.CODEC.decode(buf));
+		assertEquals(0, buf.readableBytes());
+	}
+}
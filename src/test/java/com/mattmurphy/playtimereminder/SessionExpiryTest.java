@@ -0,0 +1,107 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/** Disconnected players are forgotten once their break has passed, a few per tick, or early over the cap. */
+class SessionExpiryTest {
+	private static final long BREAK_MILLIS = 30 * 60_000L;
+
+	private final FakeTimeSource time = new FakeTimeSource(1_700_000_000_000L);
+	private final SessionStore sessions = new SessionStore();
+	private final SessionExpiry expiry = new SessionExpiry(sessions::release);
+
+	private int disconnect(int player) {
+		return disconnect(player, BREAK_MILLIS);
+	}
+
+	private int disconnect(int player, long breakMillis) {
+		int slot = sessions.acquire(new UUID(3, player));
+		expiry.schedule(slot, time.currentTimeMillis(), breakMillis);
+		return slot;
+	}
+
+	@Test
+	void slotsStayUntilTheBreakHasPassed() {
+		int slot = disconnect(0);
+		time.advanceMillis(BREAK_MILLIS - 1);
+		assertEquals(0, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(1, sessions.size());
+
+		time.advanceMillis(1);
+		assertEquals(1, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(0, sessions.size());
+		assertFalse(expiry.isScheduled(slot));
+	}
+
+	@Test
+	void aBurstOfExpiriesIsSpreadOverTicks() {
+		int players = SessionExpiry.EXPIRIES_PER_TICK * 2 + 5;
+		for (int i = 0; i < players; i++) {
+			disconnect(i);
+		}
+		time.advanceMillis(BREAK_MILLIS);
+
+		assertEquals(SessionExpiry.EXPIRIES_PER_TICK, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(players - SessionExpiry.EXPIRIES_PER_TICK, sessions.size());
+		assertEquals(SessionExpiry.EXPIRIES_PER_TICK, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(5, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(0, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(0, sessions.size());
+	}
+
+	@Test
+	void rejoiningKeepsTheSlot() {
+		int slot = disconnect(0);
+		time.advanceMillis(BREAK_MILLIS / 2);
+		expiry.cancel(slot);
+		time.advanceMillis(BREAK_MILLIS);
+
+		assertEquals(0, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(1, sessions.size());
+	}
+
+	@Test
+	void evictionOverTheCapSkipsOnlinePlayers() {
+		int online = sessions.acquire(new UUID(4, 0));
+		int first = disconnect(0);
+		time.advanceMillis(60_000);
+		int second = disconnect(1);
+		time.advanceMillis(60_000);
+		int third = disconnect(2);
+
+		assertEquals(1, expiry.evict(1));
+		assertFalse(expiry.isScheduled(first));
+		assertTrue(expiry.isScheduled(second));
+		assertEquals(SessionStore.NO_SLOT, sessions.slotOf(new UUID(3, 0)));
+
+		// Asking for more than are disconnected takes only those; the online player stays
+		assertEquals(2, expiry.evict(5));
+		assertFalse(expiry.isScheduled(third));
+		assertEquals(1, sessions.size());
+		assertEquals(online, sessions.slotOf(new UUID(4, 0)));
+	}
+
+	@Test
+	void evictionGoesByDisconnectTimeNotBreakLength() {
+		int longBreak = disconnect(0, 8 * BREAK_MILLIS);
+		time.advanceMillis(60_000);
+		int shortBreak = disconnect(1, BREAK_MILLIS);
+
+		// The short break would run out first, but the long-break player has been gone longer
+		assertEquals(1, expiry.evict(1));
+		assertFalse(expiry.isScheduled(longBreak));
+		assertTrue(expiry.isScheduled(shortBreak));
+
+		// An evicted slot is not expired again later
+		time.advanceMillis(8 * BREAK_MILLIS);
+		assertEquals(1, expiry.expireDue(time.currentTimeMillis()));
+		assertEquals(0, expiry.evict(1));
+		assertEquals(0, sessions.size());
+	}
+}
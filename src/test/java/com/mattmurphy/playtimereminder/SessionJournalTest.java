@@ -0,0 +1,124 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SessionJournalTest {
+	private static final UUID ALEX = new UUID(1, 1);
+	private static final UUID SAM = new UUID(2, 2);
+	private static final UUID KIM = new UUID(3, 3);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void replayStopsAtATornFinalRecord() throws IOException {
+		ByteBuffer journal = ByteBuffer.allocate(3 * 37);
+		journal.put(record(SessionJournal.JOIN, ALEX, 1_000, 0));
+		journal.put(record(SessionJournal.CHECKPOINT, ALEX, 61_000, 1_200));
+		byte[] torn = record(SessionJournal.DISCONNECT, SAM, 90_000, 1_800);
+		journal.put(torn, 0, 20); // The crash cut this write short
+		writeJournal(journal);
+
+		Map<UUID, SessionJournal.Entry> restored = open();
+		assertEquals(Map.of(ALEX, new SessionJournal.Entry(1_200, 61_000)), restored);
+	}
+
+	@Test
+	void replayStopsAtTheFirstRecordWithABadChecksum() throws IOException {
+		byte[] corrupt = record(SessionJournal.CHECKPOINT, ALEX, 61_000, 1_200);
+		corrupt[20] ^= 0x40;
+		ByteBuffer journal = ByteBuffer.allocate(3 * 37);
+		journal.put(record(SessionJournal.JOIN, ALEX, 1_000, 0));
+		journal.put(corrupt);
+		journal.put(record(SessionJournal.JOIN, SAM, 62_000, 0)); // Valid, but after the damage
+		writeJournal(journal);
+
+		assertEquals(Map.of(ALEX, new SessionJournal.Entry(0, 1_000)), open());
+	}
+
+	@Test
+	void openCompactsSnapshotAndJournalIntoOneSnapshot() throws IOException {
+		SessionJournal first = new SessionJournal(dir);
+		first.open();
+		first.record(SessionJournal.DISCONNECT, ALEX, 10_000, 600);
+		first.record(SessionJournal.DISCONNECT, SAM, 20_000, 900);
+		first.close();
+
+		// Events written after the last compaction, as if the server crashed
+		ByteBuffer journal = ByteBuffer.allocate(2 * 37);
+		journal.put(record(SessionJournal.CHECKPOINT, SAM, 80_000, 2_100));
+		journal.put(record(SessionJournal.JOIN, KIM, 85_000, 0));
+		writeJournal(journal);
+
+		Map<UUID, SessionJournal.Entry> expected = Map.of(
+				ALEX, new SessionJournal.Entry(600, 10_000),
+				SAM, new SessionJournal.Entry(2_100, 80_000),
+				KIM, new SessionJournal.Entry(0, 85_000));
+		assertEquals(expected, open());
+		assertEquals(0, Files.size(dir.resolve("sessions.journal")));
+
+		// The merged state now lives in the snapshot alone
+		assertEquals(expected, open());
+	}
+
+	@Test
+	void restartAfterTheSnapshotRenameReplaysTheOldJournalHarmlessly() throws IOException {
+		SessionJournal first = new SessionJournal(dir);
+		first.open();
+		first.close();
+
+		// A crash between renaming the new snapshot into place and truncating the journal leaves events
+		// that the snapshot already holds, plus a stale temp file from an earlier attempt
+		ByteBuffer journal = ByteBuffer.allocate(2 * 37);
+		journal.put(record(SessionJournal.JOIN, ALEX, 1_000, 0));
+		journal.put(record(SessionJournal.DISCONNECT, ALEX, 30_000, 600));
+		writeJournal(journal);
+		Map<UUID, SessionJournal.Entry> expected = Map.of(ALEX, new SessionJournal.Entry(600, 30_000));
+		assertEquals(expected, open());
+
+		writeJournal(journal);
+		Files.write(dir.resolve("sessions.snapshot.tmp"), new byte[] {1, 2, 3});
+		assertEquals(expected, open());
+		assertFalse(Files.exists(dir.resolve("sessions.snapshot.tmp")));
+	}
+
+	private Map<UUID, SessionJournal.Entry> open() throws IOException {
+		SessionJournal journal = new SessionJournal(dir);
+		try {
+			return journal.open();
+		} finally {
+			journal.close();
+		}
+	}
+
+	private void writeJournal(ByteBuffer records) throws IOException {
+		Files.write(dir.resolve("sessions.journal"), Arrays.copyOf(records.array(), records.position()));
+	}
+
+	// Same layout as SessionJournal.append: type, uuid, wall millis, ticks played, crc32
+	private static byte[] record(long type, UUID id, long wallMillis, long ticksPlayed) {
+		ByteBuffer buffer = ByteBuffer.allocate(37);
+		buffer.put((byte) type);
+		buffer.putLong(id.getMostSignificantBits());
+		buffer.putLong(id.getLeastSignificantBits());
+		buffer.putLong(wallMillis);
+		buffer.putLong(ticksPlayed);
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, 33);
+		buffer.putInt((int) crc.getValue());
+		return buffer.array();
+	}
+}
@@ -0,0 +1,71 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class SessionStoreTest {
+	@Test
+	void releasedSlotsAreResetAndReused() {
+		SessionStore store = new SessionStore();
+		UUID first = new UUID(1, 1);
+		int slot = store.acquire(first);
+		assertEquals(slot, store.acquire(first));
+		store.joinTick[slot] = 100;
+		store.dailyMinutes[slot] = 42;
+		store.setFlag(slot, SessionStore.WARNED_1MIN | SessionStore.HAS_JOIN_TICK);
+		assertTrue(store.hasFlag(slot, SessionStore.WARNED_1MIN));
+
+		store.release(slot);
+		assertEquals(SessionStore.NO_SLOT, store.slotOf(first));
+		assertEquals(0, store.size());
+		assertNull(store.ids[slot]);
+
+		int reused = store.acquire(new UUID(2, 2));
+		assertEquals(slot, reused);
+		assertEquals(0, store.joinTick[reused]);
+		assertEquals(0, store.dailyMinutes[reused]);
+		assertEquals(-1, store.lastReminderMinute[reused]);
+		assertFalse(store.hasFlag(reused, SessionStore.WARNED_MASK | SessionStore.HAS_JOIN_TICK));
+	}
+
+	@Test
+	void indexMatchesAMapThroughGrowthAndRemoval() {
+		Random random = new Random(11);
+		SessionStore store = new SessionStore();
+		Map<UUID, Integer> expected = new HashMap<>();
+		UUID[] pool = new UUID[2_000];
+		for (int i = 0; i < pool.length; i++) {
+			// Shared high bits keep probe chains long enough to exercise backward-shift deletion
+			pool[i] = new UUID(7, random.nextInt(4_096));
+		}
+		for (int i = 0; i < 50_000; i++) {
+			UUID id = pool[random.nextInt(pool.length)];
+			if (random.nextInt(3) == 0) {
+				Integer slot = expected.remove(id);
+				if (slot != null) {
+					store.release(slot);
+				}
+			} else {
+				int slot = store.acquire(id);
+				Integer previous = expected.putIfAbsent(id, slot);
+				if (previous != null) {
+					assertEquals(previous.intValue(), slot);
+				}
+			}
+		}
+		assertEquals(expected.size(), store.size());
+		for (UUID id : pool) {
+			Integer slot = expected.get(id);
+			assertEquals(slot == null ? SessionStore.NO_SLOT : slot, store.slotOf(id));
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.BossEvent;
+
+import org.junit.jupiter.api.Test;
+
+import com.mattmurphy.playtimereminder.PlaytimeReminderMod.Config;
+
+class SessionUpdaterTest {
+	private static final long KICK = 60 * 1_200;
+
+	// Writes every effect as "<tick> <what> <text>"
+	private static final class RecordingOutput implements SessionUpdater.Output {
+		final List<String> events = new ArrayList<>();
+		PlaytimeClock clock;
+
+		@Override
+		public void sendMessage(int slot, Component message) {
+			events.add(clock.now() + " message " + message.getString());
+		}
+
+		@Override
+		public void sendTitle(int slot, Component title, Component subtitle) {
+			events.add(clock.now() + " title " + subtitle.getString());
+		}
+
+		@Override
+		public BossEvent addBar(int slot, Component label, float progress) {
+			events.add(clock.now() + " bar+ " + label.getString());
+			BossEvent bar = new BossEvent(UUID.randomUUID(), label, BossEvent.BossBarColor.RED, BossEvent.BossBarOverlay.PROGRESS) {
+			};
+			bar.setProgress(progress);
+			return bar;
+		}
+
+		@Override
+		public void removeBar(int slot, BossEvent bar) {
+			events.add(clock.now() + " bar-");
+		}
+
+		@Override
+		public void queueKick(int slot, long decidedTick) {
+			events.add(clock.now() + " kick");
+		}
+
+		@Override
+		public void sendSchedule(int slot, SchedulePayload payload) {
+			events.add(clock.now() + " schedule " + payload.secondsUntilKick() + " " + payload.reason());
+		}
+	}
+
+	private final FakeTimeSource time = new FakeTimeSource(1_700_000_000_000L);
+	private final PlaytimeClock clock = new PlaytimeClock(time);
+	private final SessionStore sessions = new SessionStore();
+	private final DeadlineScheduler scheduler = new DeadlineScheduler();
+	private final RecordingOutput output = new RecordingOutput();
+	private final SessionUpdater updater = new SessionUpdater(sessions, scheduler, clock, new PlaytimeMetrics(), output);
+	private final Config config = new Config();
+	private final MessageTemplates messages;
+
+	SessionUpdaterTest() {
+		config.reminderIntervalMinutes = 10;
+		config.strongReminderThresholdMinutes = 60;
+		config.strongReminderRepeatMinutes = 30;
+		config.breakDurationMinutes = 5;
+		messages = new MessageTemplates(config);
+		updater.configure(config, messages, PlaytimePolicies.compile(config));
+		output.clock = clock;
+		clock.reset(PlaytimeClock.Accounting.TICKS, ZoneOffset.UTC);
+	}
+
+	@Test
+	void remindsAtEachIntervalAndSleepsInBetween() {
+		int slot = join(0);
+		runUntil(24_000);
+
+		assertEquals(List.of(
+				"12000 message " + messages.regular.render(10, 0, 10).getString(),
+				"24000 message " + messages.regular.render(20, 0, 20).getString()), output.events);
+		assertEquals(20, sessions.lastReminderMinute[slot]);
+	}
+
+	@Test
+	void countdownWarnsShowsTheBarAndQueuesTheKick() {
+		int slot = join(0);
+		runUntil(KICK - 6_020);
+		output.events.clear();
+		runUntil(KICK - 6_019);
+		assertEquals(List.of(
+				(KICK - 6_019) + " bar+ " + messages.bossBarTitle.render(0, 300, 0).getString(),
+				(KICK - 6_019) + " message " + messages.warning5min.render(54, 300, 54).getString()), output.events);
+		assertEquals(messages.bossBarTitle.render(0, 300, 0).getString(), sessions.bossBars[slot].getName().getString());
+
+		runUntil(KICK - 5_999);
+		assertEquals(messages.bossBarTitle.render(0, 299, 0).getString(), sessions.bossBars[slot].getName().getString());
+
+		output.events.clear();
+		runUntil(KICK);
+		List<String> effects = output.events.stream().filter(event -> !event.contains(" bar")).toList();
+		assertEquals(List.of(
+				(KICK - 1_219) + " title " + config.warningMessage1min,
+				(KICK - 1_219) + " message " + messages.warning1min.render(58, 60, 58).getString(),
+				(KICK - 219) + " title " + config.warningMessage10s,
+				(KICK - 219) + " message " + messages.warning10s.render(59, 10, 59).getString(),
+				KICK + " kick"), effects);
+		// The bar is gone once no whole second is left, before the kick itself
+		assertEquals((KICK - 19) + " bar-", output.events.get(output.events.size() - 2));
+		assertNull(sessions.bossBars[slot]);
+		assertEquals(0, sessions.flags[slot] & SessionStore.WARNED_MASK);
+		assertEquals(KICK + 36_000 - 6_019, scheduler.peekDeadline());
+	}
+
+	@Test
+	void repeatKicksWarnAgain() {
+		join(0);
+		runUntil(KICK);
+		output.events.clear();
+		runUntil(KICK + 36_000);
+		assertEquals((KICK + 36_000 - 6_019) + " bar+ " + messages.bossBarTitle.render(0, 300, 0).getString(), output.events.get(0));
+		assertEquals((KICK + 36_000 - 6_019) + " message " + messages.warning5min.render(84, 300, 84).getString(), output.events.get(1));
+		assertEquals((KICK + 36_000) + " kick", output.events.get(output.events.size() - 1));
+	}
+
+	@Test
+	void aPlaytimeLimitCountsDownLikeABreakKick() {
+		int slot = join(0);
+		sessions.limitTicksPlayed[slot] = 25 * 1_200;
+		runUntil(25 * 1_200);
+
+		assertEquals(List.of(
+				"12000 message " + messages.regular.render(10, 0, 10).getString(),
+				(25 * 1_200 - 6_019) + " bar+ " + messages.bossBarTitle.render(0, 300, 0).getString(),
+				(25 * 1_200 - 6_019) + " message " + messages.warning5min.render(19, 300, 19).getString()),
+				output.events.subList(0, 3));
+		assertEquals((25 * 1_200) + " kick", output.events.get(output.events.size() - 1));
+		assertTrue(sessions.hasFlag(slot, SessionStore.LIMIT_REACHED));
+	}
+
+	@Test
+	void jitterShiftsEveryDeadlineOfAPlayerByTheSameOffset() {
+		config.deadlineJitterSeconds = 30;
+		int slot = join(new UUID(3, 7), 0);
+		long jitter = updater.jitterTicks(slot);
+		assertTrue(jitter > 0 && jitter < 600);
+		runUntil(KICK + jitter);
+
+		assertEquals((12_000 + jitter) + " message " + messages.regular.render(10, 0, 10).getString(), output.events.get(0));
+		assertTrue(output.events.contains((KICK - 6_019 + jitter) + " bar+ " + messages.bossBarTitle.render(0, 300, 0).getString()));
+		assertEquals((KICK + jitter) + " kick", output.events.get(output.events.size() - 1));
+		// Another player who joined on the same tick comes due at a different tick
+		assertTrue(jitter != updater.jitterTicks(sessions.acquire(new UUID(5, 2))));
+	}
+
+	@Test
+	void idleTimeStopsTheSessionClockAndTheScheduleResumesWhereItStopped() {
+		int slot = join(0);
+		runUntil(6_000);
+		updater.goIdle(slot, clock.now());
+		runUntil(30_000);
+		assertEquals(List.of(), output.events);
+		assertEquals(6_000, updater.sessionTicks(slot, clock.now()));
+
+		updater.markActive(slot, clock.now());
+		runUntil(36_000);
+		assertEquals(List.of("36000 message " + messages.regular.render(10, 0, 10).getString()), output.events);
+		assertEquals(12_000, updater.sessionTicks(slot, clock.now()));
+	}
+
+	@Test
+	void companionClientsGetTheScheduleInsteadOfBarsAndTitles() {
+		int slot = join(0);
+		sessions.companion[slot] = true;
+		sessions.companionKickTick[slot] = SessionStore.NOT_SENT;
+		runUntil(KICK);
+		List<String> countdown = output.events.stream().filter(event -> !event.contains(" message ")).toList();
+		assertEquals(List.of("1 schedule 3599 " + SchedulePayload.BREAK, KICK + " kick", KICK + " schedule 1800 " + SchedulePayload.BREAK), countdown);
+		// The chat warnings still come from the server
+		assertTrue(output.events.contains((KICK - 6_019) + " message " + messages.warning5min.render(54, 300, 54).getString()));
+
+		output.events.clear();
+		updater.goIdle(slot, clock.now());
+		assertEquals(List.of(KICK + " schedule " + SchedulePayload.NONE + " " + SchedulePayload.BREAK), output.events);
+	}
+
+	@Test
+	void delayedJoinMessageGoesFirstAndHoldsTheWarnings() {
+		// Rejoined after a short break with a little over 5 minutes left
+		int slot = join(KICK - 6_030);
+		sessions.delayedJoinMessages[slot] = "Welcome back";
+		sessions.delayedMessageTick[slot] = 20;
+		runUntil(19);
+		assertEquals(List.of("11 bar+ " + messages.bossBarTitle.render(0, 300, 0).getString()), output.events);
+		assertNotNull(sessions.delayedJoinMessages[slot]);
+
+		runUntil(20);
+		assertEquals(List.of(
+				"11 bar+ " + messages.bossBarTitle.render(0, 300, 0).getString(),
+				"20 message Welcome back",
+				"20 message " + messages.warning5min.render(54, 300, 54).getString()), output.events);
+	}
+
+	@Test
+	void scheduledLooksMatchLookingEveryTick() {
+		join(0);
+		runUntil(KICK + 36_000);
+
+		// The baseline processed every online player on every tick
+		FakeTimeSource baselineTime = new FakeTimeSource(1_700_000_000_000L);
+		PlaytimeClock baselineClock = new PlaytimeClock(baselineTime);
+		SessionStore baselineSessions = new SessionStore();
+		RecordingOutput baselineOutput = new RecordingOutput();
+		baselineOutput.clock = baselineClock;
+		SessionUpdater baseline = new SessionUpdater(baselineSessions, new DeadlineScheduler(), baselineClock, new PlaytimeMetrics(), baselineOutput);
+		baseline.configure(config, messages, PlaytimePolicies.compile(config));
+		baselineClock.reset(PlaytimeClock.Accounting.TICKS, ZoneOffset.UTC);
+		int slot = baselineSessions.acquire(new UUID(1, 1));
+		baselineSessions.setFlag(slot, SessionStore.HAS_JOIN_TICK);
+		while (baselineClock.now() < KICK + 36_000) {
+			baselineTime.advanceMillis(50);
+			baselineClock.tick();
+			baseline.process(slot, false, baselineClock.now());
+		}
+
+		assertEquals(baselineOutput.events, output.events);
+	}
+
+	private int join(long ticksPlayed) {
+		return join(new UUID(1, 1), ticksPlayed);
+	}
+
+	private int join(UUID id, long ticksPlayed) {
+		int slot = sessions.acquire(id);
+		sessions.joinTick[slot] = clock.now() - ticksPlayed;
+		sessions.lastTicksPlayed[slot] = ticksPlayed;
+		sessions.setFlag(slot, SessionStore.HAS_JOIN_TICK);
+		scheduler.schedule(slot, clock.now() + 1);
+		return slot;
+	}
+
+	// Ticks like the mod's onServerTick until the clock reads tick
+	private void runUntil(long tick) {
+		while (clock.now() < tick) {
+			time.advanceMillis(50);
+			clock.tick();
+			long now = clock.now();
+			int slot;
+			while ((slot = scheduler.pollDue(now)) >= 0) {
+				updater.process(slot, false, now);
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.mattmurphy.playtimereminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Two instances on one table, as two backends on one host would have it. */
+class SharedSessionsTest {
+	@TempDir
+	Path dir;
+
+	private SharedSessions a;
+	private SharedSessions b;
+
+	@BeforeEach
+	void open() throws IOException {
+		a = new SharedSessions(dir.resolve("sessions.bin"));
+		a.open();
+		b = new SharedSessions(dir.resolve("sessions.bin"));
+		b.open();
+	}
+
+	@AfterEach
+	void close() {
+		a.close();
+		b.close();
+	}
+
+	@Test
+	void aDisconnectOnOneInstanceIsAdoptedOnJoinAtTheOther() {
+		UUID id = new UUID(1, 1);
+		a.write(id, 30_000, 1_000_000);
+
+		SessionStore sessions = new SessionStore();
+		int slot = sessions.acquire(id);
+		assertTrue(b.adopt(sessions, slot));
+		assertEquals(30_000, sessions.playtimeTicks[slot]);
+		assertEquals(1_000_000, sessions.disconnectMillis[slot]);
+		assertEquals(30_000, sessions.creditedTicks[slot]);
+		assertTrue(sessions.hasFlag(slot, SessionStore.HAS_SAVED_PLAYTIME | SessionStore.DISCONNECTED));
+	}
+
+	@Test
+	void playersSharingAStripeKeepTheirOwnEntries() {
+		List<UUID> ids = sameStripe(3);
+		for (int i = 0; i < ids.size(); i++) {
+			a.write(ids.get(i), 1_000 * (i + 1), 2_000 * (i + 1));
+		}
+		b.write(ids.get(1), 5_000, 9_000); // Left the other backend later
+
+		for (int i = 0; i < ids.size(); i++) {
+			SharedSessions.Entry entry = b.read(ids.get(i));
+			assertEquals(i == 1 ? 5_000 : 1_000 * (i + 1), entry.ticksPlayed());
+			assertEquals(i == 1 ? 9_000 : 2_000 * (i + 1), a.read(ids.get(i)).disconnectMillis());
+		}
+		assertNull(a.read(new UUID(99, 99)));
+	}
+
+	@Test
+	void newerLocalStateIsKept() {
+		UUID id = new UUID(2, 2);
+		a.write(id, 30_000, 1_000_000);
+
+		SessionStore sessions = new SessionStore();
+		int slot = sessions.acquire(id);
+		sessions.playtimeTicks[slot] = 100;
+		sessions.disconnectMillis[slot] = 2_000_000;
+		sessions.setFlag(slot, SessionStore.HAS_SAVED_PLAYTIME | SessionStore.DISCONNECTED);
+		assertFalse(b.adopt(sessions, slot));
+		assertEquals(100, sessions.playtimeTicks[slot]);
+	}
+
+	@Test
+	void aFullStripeReusesTheLongestDisconnectedEntry() {
+		List<UUID> ids = sameStripe(1025);
+		for (int i = 0; i < 1024; i++) {
+			a.write(ids.get(i), i, 10_000 + i);
+		}
+		b.write(ids.get(1024), 7, 50_000);
+
+		assertNull(a.read(ids.get(0)));
+		assertEquals(7, a.read(ids.get(1024)).ticksPlayed());
+		assertEquals(1, a.read(ids.get(1)).ticksPlayed());
+	}
+
+	private static List<UUID> sameStripe(int count) {
+		List<UUID> ids = new ArrayList<>();
+		int stripe = SharedSessions.stripe(new UUID(7, 0));
+		for (long n = 0; ids.size() < count; n++) {
+			UUID id = new UUID(7, n);
+			if (SharedSessions.stripe(id) == stripe) {
+				ids.add(id);
+			}
+		}
+		return ids;
+	}
+}